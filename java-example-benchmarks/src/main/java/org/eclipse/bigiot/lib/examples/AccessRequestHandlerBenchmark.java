@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.bigiot.lib.serverwrapper.BigIotHttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for the AccessRequestHandlers of the example providers. The handlers are invoked directly with the input
+ * data the embedded web server would pass for a typical consumer request.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccessRequestHandlerBenchmark {
+
+    private static final String SUBSCRIPTION_ID = "TestOrganization-TestConsumer-DemoParkingQuery-Subscription";
+    private static final String CONSUMER_INFO = "TestOrganization-TestConsumer";
+
+    private Map<String, Object> inputData;
+    private Map<String, Object> complexInputData;
+
+    @Setup
+    public void setup() {
+
+        // Input data of the parking offerings with flat latitude/longitude parameters
+        inputData = new HashMap<>();
+        inputData.put("latitude", "42.0");
+        inputData.put("longitude", "9.0");
+        inputData.put("radius", "777");
+
+        // Input data of the complex parking offering with a nested center parameter
+        Map<String, Object> center = new HashMap<>();
+        center.put("latitude", "48.10");
+        center.put("longitude", "11.23");
+
+        complexInputData = new HashMap<>();
+        complexInputData.put("center", center);
+        complexInputData.put("radius", "500");
+    }
+
+    @Benchmark
+    public BigIotHttpResponse exampleProvider() {
+        return ExampleProvider.accessCallback.processRequestHandler(null, inputData, SUBSCRIPTION_ID, CONSUMER_INFO);
+    }
+
+    @Benchmark
+    public BigIotHttpResponse basicProvider() {
+        return BasicProvider.accessCallback.processRequestHandler(null, inputData, SUBSCRIPTION_ID, CONSUMER_INFO);
+    }
+
+    @Benchmark
+    public BigIotHttpResponse complexExampleProvider() {
+        return ComplexExampleProvider.accessCallbackDummy.processRequestHandler(null, complexInputData,
+                SUBSCRIPTION_ID, CONSUMER_INFO);
+    }
+
+    @Benchmark
+    public BigIotHttpResponse exampleProviderWithAccessRestriction() {
+        return ExampleProviderWithAccessRestriction.accessCallback.processRequestHandler(null, inputData,
+                SUBSCRIPTION_ID, CONSUMER_INFO);
+    }
+
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.bigiot.lib.examples.provider.ParkingSpotJsonWriter;
+import org.eclipse.bigiot.lib.examples.provider.SimulatedParkingData;
+import org.eclipse.bigiot.lib.examples.types.MyComplexParkingResultPojoAnnotated;
+import org.eclipse.bigiot.lib.examples.types.MyParkingResultPojoAnnotated;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Benchmark for mapping a parsed response with 10k parking spots to POJOs annotated with ResponseMappingType, for the
+ * flat POJO of ExampleProvider and the POJO with the nested Coordinate class of ComplexExampleProvider. The Jackson
+ * variants rename the values of every element to the fields of the POJO and bind it with treeToValue; the compiled
+ * variants use the cached {@link CompiledResponseMapper}.
+ * <p>
+ * AccessResponse.map itself cannot be measured here, since a response of the lib is only created by an access of a
+ * Consumer. The numbers compare the compiled mapper with Jackson data binding, not with the lib.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompiledResponseMappingBenchmark {
+
+    @Param({ "10000" })
+    public int elements;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Map<String, String> flatResponseNames = new HashMap<>();
+    private final Map<String, String> nestedResponseNames = new HashMap<>();
+    // Response name to field name, for the Jackson variants
+    private final Map<String, String> flatFieldNames = new HashMap<>();
+    private final Map<String, String> nestedFieldNames = new HashMap<>();
+
+    private JsonNode flatResponse;
+    private JsonNode nestedResponse;
+
+    @Setup
+    public void setup() throws IOException {
+        flatResponseNames.put("schema:latitude", "lat");
+        flatResponseNames.put("schema:longitude", "lon");
+        flatResponseNames.put("datex:distanceFromParkingSpace", "dist");
+        flatResponseNames.put("datex:parkingSpaceStatus", "status");
+        flatFieldNames.put("lat", "latitude");
+        flatFieldNames.put("lon", "longitude");
+        flatFieldNames.put("dist", "distance");
+        flatFieldNames.put("status", "status");
+
+        // The output names of ComplexExampleProvider
+        nestedResponseNames.put("schema:geoCoordinates", "geoCoordinates");
+        nestedResponseNames.put("datex:distanceFromParkingSpace", "distance");
+        nestedResponseNames.put("datex:parkingSpaceStatus", "status");
+        nestedFieldNames.put("geoCoordinates", "myCoordinate");
+        nestedFieldNames.put("distance", "myDistance");
+        nestedFieldNames.put("status", "myStatus");
+
+        StringBuilder flat = new StringBuilder("[");
+        ParkingSpotJsonWriter nested = ParkingSpotJsonWriter.get();
+        for (int i = 0; i < elements; i++) {
+            double latitude = SimulatedParkingData.nearby(42.0);
+            double longitude = SimulatedParkingData.nearby(9.0);
+            double distance = SimulatedParkingData.random().nextDouble() * 1000;
+            String status = SimulatedParkingData.status();
+            flat.append(i > 0 ? "," : "").append("{\"lat\":").append(latitude).append(",\"lon\":").append(longitude)
+                    .append(",\"dist\":").append(distance).append(",\"status\":\"").append(status).append("\"}");
+            nested.writeSpot(latitude, longitude, distance, status);
+        }
+        flatResponse = objectMapper.readTree(flat.append(']').toString());
+        nestedResponse = objectMapper.readTree(nested.toJson());
+    }
+
+    @Benchmark
+    public List<MyParkingResultPojoAnnotated> jacksonFlat() throws JsonProcessingException {
+        return bind(flatResponse, MyParkingResultPojoAnnotated.class, flatFieldNames);
+    }
+
+    @Benchmark
+    public List<MyParkingResultPojoAnnotated> compiledFlat() {
+        return CompiledResponseMapper.get(MyParkingResultPojoAnnotated.class, flatResponseNames).map(flatResponse);
+    }
+
+    @Benchmark
+    public List<MyComplexParkingResultPojoAnnotated> jacksonNested() throws JsonProcessingException {
+        return bind(nestedResponse, MyComplexParkingResultPojoAnnotated.class, nestedFieldNames);
+    }
+
+    @Benchmark
+    public List<MyComplexParkingResultPojoAnnotated> compiledNested() {
+        return CompiledResponseMapper.get(MyComplexParkingResultPojoAnnotated.class, nestedResponseNames)
+                .map(nestedResponse);
+    }
+
+    private <T> List<T> bind(JsonNode elements, Class<T> type, Map<String, String> fieldNames)
+            throws JsonProcessingException {
+        List<T> result = new ArrayList<>(elements.size());
+        for (JsonNode element : elements) {
+            ObjectNode renamed = objectMapper.createObjectNode();
+            for (Iterator<Map.Entry<String, JsonNode>> values = element.fields(); values.hasNext();) {
+                Map.Entry<String, JsonNode> value = values.next();
+                String fieldName = fieldNames.get(value.getKey());
+                renamed.set(fieldName != null ? fieldName : value.getKey(), value.getValue());
+            }
+            result.add(objectMapper.treeToValue(renamed, type));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Load test of the {@link ConsumerExecutor}: starts 10k concurrent one-time accesses of a local stub provider, which
+ * answers after a fixed latency, on a small fixed pool, on {@link ConsumerExecutor#virtualThreads()} and on
+ * ForkJoinPool.commonPool, and prints how long they take. Each executor runs two kinds of calls:
+ * <ul>
+ * <li>lib calls through {@link ConsumerExecutor#run}, the path of accessOneTime, discover and subscribe, which starts
+ * the call of the lib on the executor and completes its future there again,</li>
+ * <li>blocking calls through {@link ConsumerExecutor#call}, which wait for the future of the lib with get(), like
+ * offering.accessOneTime(accessParameters).get() in the examples.</li>
+ * </ul>
+ * The lib completes its futures on threads of its own, where its network I/O runs, so the test stands in for the lib
+ * with a pool of lib threads which access the stub and complete the futures. The executor only moves where a call
+ * starts and where its result is handled: both kinds of calls are bounded by the lib threads on every executor, and
+ * what the executors differ in is the number of threads the waiting calls hold.
+ * <p>
+ * Arguments (all optional): calls, stub latency (ms), lib threads, fixed pool size, time limit per run (s). Default:
+ * 10000 100 64 16 60
+ */
+public class ConsumerExecutorLoadTest {
+
+    private final ExecutorService lib;
+    private final String uri;
+
+    private ConsumerExecutorLoadTest(ExecutorService lib, String uri) {
+        this.lib = lib;
+        this.uri = uri;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int calls = argument(args, 0, 10000);
+        int latency = argument(args, 1, 100);
+        int libThreads = argument(args, 2, 64);
+        int poolSize = argument(args, 3, 16);
+        int timeLimit = argument(args, 4, 60);
+
+        StubProvider stub = StubProvider.start(latency);
+        ExecutorService lib = Executors.newFixedThreadPool(libThreads, FeedScheduler.daemonThreads("lib"));
+        ConsumerExecutorLoadTest test = new ConsumerExecutorLoadTest(lib, stub.getUri());
+        System.out.println(calls + " concurrent accesses with a latency of " + latency + " ms on " + libThreads
+                + " lib threads, Java " + System.getProperty("java.version"));
+
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+        test.run("Fixed pool (" + poolSize + " threads)", ConsumerExecutor.create(pool), calls, timeLimit);
+        pool.shutdownNow();
+
+        ConsumerExecutor virtualThreads = ConsumerExecutor.virtualThreads();
+        test.run("ConsumerExecutor.virtualThreads()", virtualThreads, calls, timeLimit);
+        virtualThreads.shutdown();
+
+        // Last, since the calls left over at the time limit cannot be discarded from the common pool
+        test.run("ForkJoinPool.commonPool (" + ForkJoinPool.getCommonPoolParallelism() + " threads)",
+                ConsumerExecutor.create(ForkJoinPool.commonPool()), calls, timeLimit);
+
+        lib.shutdownNow();
+        stub.stop();
+    }
+
+    private void run(String name, ConsumerExecutor executor, int calls, int timeLimit) throws InterruptedException {
+        measure(name + ", lib calls", calls, timeLimit, i -> executor.run(() -> access(i)));
+        measure(name + ", blocking calls", calls, timeLimit, i -> executor.call(() -> access(i).get()));
+    }
+
+    /**
+     * The stand-in for a one-time access of the lib: the access runs on a lib thread, which completes the future.
+     */
+    private CompletableFuture<Void> access(int call) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                StubProvider.access(uri + "?call=" + call);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, lib);
+    }
+
+    private static void measure(String name, int calls, int timeLimit, Call call) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        final CountDownLatch completed = new CountDownLatch(calls);
+        final AtomicLong failures = new AtomicLong();
+        final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            call.start(i).whenComplete((value, failure) -> {
+                if (failure != null && failures.incrementAndGet() == 1)
+                    firstFailure.set(failure);
+                completed.countDown();
+            });
+        }
+        boolean isComplete = completed.await(timeLimit, TimeUnit.SECONDS);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        long done = calls - completed.getCount();
+        System.out.println(String.format("%-60s %s %d of %d calls in %d ms (%d calls/s), %d failures, "
+                + "peak threads: %d", name, isComplete ? "completed" : "TIME LIMIT:", done, calls, elapsed,
+                done * 1000 / Math.max(1, elapsed), failures.get(), threads.getPeakThreadCount()));
+        if (firstFailure.get() != null)
+            System.out.println("    first failure: " + firstFailure.get());
+    }
+
+    private static int argument(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+    private interface Call {
+
+        CompletableFuture<?> start(int call);
+
+    }
+
+}
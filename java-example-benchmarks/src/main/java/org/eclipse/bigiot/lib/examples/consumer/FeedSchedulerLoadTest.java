@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.bigiot.lib.offering.parameters.AccessParameters;
+import org.joda.time.Duration;
+
+/**
+ * Load test of the {@link FeedScheduler}: polls a local stub provider, which answers after a fixed latency, with 10k
+ * {@link AdaptiveAccessFeed}s on one scheduler. Every few seconds the access rate, the scheduler metrics and the number
+ * of live threads of the JVM are printed.
+ * <p>
+ * Like in {@link ConsumerExecutorLoadTest}, the lib is stood in for by a pool of lib threads, which access the stub over
+ * HTTP and complete the futures of the accesses. So the accesses pay for the requests, the connections and the parsing
+ * of the responses, and the lib threads bound the accesses in flight like the I/O threads of the lib would.
+ * <p>
+ * Arguments (all optional): feeds, interval (ms), duration (s), worker threads, max in-flight, stub latency (ms), lib
+ * threads. Default: 10000 1000 60 64 64 5 64
+ */
+public class FeedSchedulerLoadTest {
+
+    private static final int REPORT_INTERVAL = 5000;
+
+    private final AtomicLong notifications = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        int feeds = argument(args, 0, 10000);
+        int interval = argument(args, 1, 1000);
+        int duration = argument(args, 2, 60);
+        int workers = argument(args, 3, 64);
+        int maxInFlight = argument(args, 4, 64);
+        int latency = argument(args, 5, 5);
+        int libThreads = argument(args, 6, 64);
+
+        // Keep a connection to the stub per lib thread alive, instead of the 5 of the JDK by default
+        System.setProperty("http.maxConnections", String.valueOf(libThreads));
+        StubProvider stub = StubProvider.start(latency);
+        ExecutorService lib = Executors.newFixedThreadPool(libThreads, FeedScheduler.daemonThreads("lib"));
+        FeedScheduler scheduler = FeedScheduler.create(workers, maxInFlight);
+        new FeedSchedulerLoadTest().run(scheduler, stubAccess(lib, stub.getUri()), feeds, interval, duration);
+
+        scheduler.shutdown();
+        lib.shutdownNow();
+        stub.stop();
+    }
+
+    /**
+     * The stand-in for an access of the lib: the access runs on a lib thread, which completes the future with the
+     * body of the response of the stub. The stub answers with new simulated parking spots every time.
+     */
+    private static PollingAccessFeed.AccessFunction stubAccess(ExecutorService lib, String uri) {
+        return accessParameters -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return StubProvider.get(uri);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, lib);
+    }
+
+    private void run(FeedScheduler scheduler, PollingAccessFeed.AccessFunction access, int feeds, int interval,
+            int duration) throws InterruptedException {
+        System.out.println("Starting " + feeds + " feeds with an interval of " + interval + " ms (expected rate: "
+                + (1000L * feeds / interval) + " accesses/s)");
+
+        // The first accesses of the feeds are spread over one interval
+        List<AdaptiveAccessFeed> accessFeeds = new ArrayList<>(feeds);
+        int perStep = Math.max(feeds / 100, 1);
+        for (int i = 0; i < feeds; i++) {
+            AdaptiveAccessFeed feed = AdaptiveAccessFeed.create(access, AccessParameters.create(),
+                    AdaptiveInterval.fixed(Duration.millis(interval))).withScheduler(scheduler);
+            feed.start((f, body) -> notifications.incrementAndGet(), (f, failure) -> failures.incrementAndGet());
+            accessFeeds.add(feed);
+            if ((i + 1) % perStep == 0)
+                Thread.sleep(interval / 100);
+        }
+
+        long end = System.currentTimeMillis() + duration * 1000L;
+        long previous = accesses(accessFeeds);
+        while (System.currentTimeMillis() < end) {
+            Thread.sleep(REPORT_INTERVAL);
+            long current = accesses(accessFeeds);
+            System.out.println(String.format("%d accesses/s, %d notifications, %d failures, %d threads, %s",
+                    (current - previous) * 1000 / REPORT_INTERVAL, notifications.get(), failures.get(),
+                    ManagementFactory.getThreadMXBean().getThreadCount(), scheduler));
+            previous = current;
+            scheduler.resetStatistics();
+        }
+        for (AdaptiveAccessFeed feed : accessFeeds)
+            feed.stop();
+    }
+
+    private static long accesses(List<AdaptiveAccessFeed> feeds) {
+        long accesses = 0;
+        for (AdaptiveAccessFeed feed : feeds)
+            accesses += feed.getAccessCount();
+        return accesses;
+    }
+
+    private static int argument(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+}
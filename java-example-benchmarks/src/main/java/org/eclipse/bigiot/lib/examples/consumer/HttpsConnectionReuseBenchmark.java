@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.io.IOException;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.HttpsURLConnection;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end latency of one-time accesses of a local HTTPS stub provider with HttpsURLConnection of the JDK, with
+ * kept-alive connections and with a new connection (TCP and TLS handshake) per access. The reuse ratio counted by the
+ * {@link JdkConnectionCounter} is printed at the end of each run. The benchmark shows what a handshake per access
+ * costs; it does not measure the HTTP client of the lib.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HttpsConnectionReuseBenchmark {
+
+    @Param({ "true", "false" })
+    public boolean keepAlive;
+
+    private StubProvider stub;
+    private JdkConnectionCounter counter;
+    private URL url;
+    private final AtomicLong requests = new AtomicLong();
+
+    @Setup
+    public void setup() throws IOException, GeneralSecurityException {
+        stub = StubProvider.startHttps(0);
+        counter = JdkConnectionCounter.create(stub.getClientContext().getSocketFactory());
+        url = new URL(stub.getUri());
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println(String.format("%n%d requests, %d connections, reuse ratio %.3f", requests.get(),
+                counter.getConnectionCount(), counter.getReuseRatio(requests.get())));
+        stub.stop();
+    }
+
+    @Benchmark
+    public int access() throws IOException {
+        HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
+        connection.setSSLSocketFactory(counter);
+        if (!keepAlive)
+            connection.setRequestProperty("Connection", "close");
+        requests.incrementAndGet();
+        return StubProvider.read(connection);
+    }
+
+}
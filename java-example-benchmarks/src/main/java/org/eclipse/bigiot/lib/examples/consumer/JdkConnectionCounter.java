@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Measurement utility of the benchmarks: counts the TLS connections which HttpsURLConnection of the JDK opens through
+ * it, to see how many requests reuse a kept-alive connection instead of paying for the TCP and TLS handshakes again.
+ * The counter wraps a socket factory, so every socket it creates is a new connection; the reuse ratio compares them
+ * with the number of requests sent.
+ * <p>
+ * It measures the keep-alive of the JDK only. The connections of the HTTP client of the lib, which the Consumer uses
+ * for its accesses, are neither counted nor pooled by it.
+ */
+final class JdkConnectionCounter extends SSLSocketFactory {
+
+    private final SSLSocketFactory delegate;
+    private final AtomicLong connections = new AtomicLong();
+
+    private JdkConnectionCounter(SSLSocketFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Creates a counter to be set as socket factory of single connections.
+     */
+    static JdkConnectionCounter create(SSLSocketFactory delegate) {
+        return new JdkConnectionCounter(delegate);
+    }
+
+    /**
+     * Returns the number of connections opened so far.
+     */
+    long getConnectionCount() {
+        return connections.get();
+    }
+
+    /**
+     * Returns the share of the given number of requests which were sent over a reused connection.
+     */
+    double getReuseRatio(long requests) {
+        return requests == 0 ? 0 : Math.max(0, 1 - (double) connections.get() / requests);
+    }
+
+    void resetStatistics() {
+        connections.set(0);
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        connections.incrementAndGet();
+        return delegate.createSocket();
+    }
+
+    @Override
+    public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+        connections.incrementAndGet();
+        return delegate.createSocket(socket, host, port, autoClose);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        connections.incrementAndGet();
+        return delegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        connections.incrementAndGet();
+        return delegate.createSocket(host, port, localHost, localPort);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        connections.incrementAndGet();
+        return delegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+            throws IOException {
+        connections.incrementAndGet();
+        return delegate.createSocket(address, port, localAddress, localPort);
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return delegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return delegate.getSupportedCipherSuites();
+    }
+
+}
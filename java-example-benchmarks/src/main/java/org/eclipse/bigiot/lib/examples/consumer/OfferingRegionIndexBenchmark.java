@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for routing a user to the offerings around a point: the offerings whose region contains the point and the
+ * 5 nearest offerings, by a linear scan over all regions versus the R-tree of {@link OfferingRegionIndex}. The regions
+ * are spread over a city of about 30 x 30 km.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OfferingRegionIndexBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({ "1000", "100000" })
+    public int offerings;
+
+    private double[][] regions;
+    private RegionTree tree;
+    private double[] latitudes = new double[QUERIES];
+    private double[] longitudes = new double[QUERIES];
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        regions = new double[offerings][];
+        for (int i = 0; i < offerings; i++) {
+            double latitude = 48.0 + random.nextDouble() * 0.3;
+            double longitude = 11.4 + random.nextDouble() * 0.4;
+            double size = random.nextDouble() * 0.01;
+            regions[i] = new double[] { latitude, longitude, latitude + size, longitude + size };
+        }
+        tree = new RegionTree(regions);
+        for (int i = 0; i < QUERIES; i++) {
+            latitudes[i] = 48.0 + random.nextDouble() * 0.3;
+            longitudes[i] = 11.4 + random.nextDouble() * 0.4;
+        }
+    }
+
+    @Benchmark
+    public int[] linearContaining() {
+        int query = next++ & QUERIES - 1;
+        double latitude = latitudes[query];
+        double longitude = longitudes[query];
+        int[] result = new int[8];
+        int count = 0;
+        for (int i = 0; i < regions.length; i++) {
+            double[] region = regions[i];
+            if (region[0] <= latitude && latitude <= region[2] && region[1] <= longitude && longitude <= region[3]) {
+                if (count == result.length)
+                    result = Arrays.copyOf(result, 2 * count);
+                result[count++] = i;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    @Benchmark
+    public int[] treeContaining() {
+        int query = next++ & QUERIES - 1;
+        return tree.overlapping(latitudes[query], longitudes[query], latitudes[query], longitudes[query]);
+    }
+
+    @Benchmark
+    public int[] linearNearest() {
+        int query = next++ & QUERIES - 1;
+        double latitude = latitudes[query];
+        double longitude = longitudes[query];
+        double longitudeScale = Math.cos(Math.toRadians(latitude));
+        // The 5 nearest so far, by insertion into a sorted array; squared distances in degrees suffice to compare
+        int[] nearest = new int[5];
+        double[] distances = new double[5];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        for (int i = 0; i < regions.length; i++) {
+            double[] region = regions[i];
+            double dLatitude = Math.max(0, Math.max(region[0] - latitude, latitude - region[2]));
+            double dLongitude = Math.max(0, Math.max(region[1] - longitude, longitude - region[3])) * longitudeScale;
+            double distance = dLatitude * dLatitude + dLongitude * dLongitude;
+            if (distance >= distances[4])
+                continue;
+            int j = 4;
+            for (; j > 0 && distances[j - 1] > distance; j--) {
+                distances[j] = distances[j - 1];
+                nearest[j] = nearest[j - 1];
+            }
+            distances[j] = distance;
+            nearest[j] = i;
+        }
+        return nearest;
+    }
+
+    @Benchmark
+    public int[] treeNearest() {
+        int query = next++ & QUERIES - 1;
+        return tree.nearest(latitudes[query], longitudes[query], 5);
+    }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.bigiot.lib.examples.provider.SimulatedParkingData;
+import org.eclipse.bigiot.lib.examples.types.MyParkingResultPojo;
+import org.json.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Benchmark for mapping a response with many parking spots to POJOs: the whole body as a JSON tree and then a list of
+ * all POJOs, as AccessResponse.map does, versus {@link StreamingResponseMapper}, which binds one element at a time
+ * while parsing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseMappingBenchmark {
+
+    @Param({ "1000", "50000" })
+    public int elements;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final StreamingResponseMapper<MyParkingResultPojo> mapper = StreamingResponseMapper
+            .create(MyParkingResultPojo.class).addNameMapping("lat", "latitude").addNameMapping("lon", "longitude");
+
+    private final StreamingResponseMapper<MyParkingResultPojo> directMapper = StreamingResponseMapper
+            .create(MyParkingResultPojo.class);
+
+    private String body;
+    private String directBody;
+
+    @Setup
+    public void setup() {
+        JSONArray parkingSpots = new JSONArray();
+        while (parkingSpots.length() < elements) {
+            JSONArray some = SimulatedParkingData.parkingSpots(42.0, 9.0);
+            for (int i = 0; i < some.length() && parkingSpots.length() < elements; i++)
+                parkingSpots.put(some.get(i));
+        }
+        body = parkingSpots.toString();
+        // The same spots with the field names of the POJO, which need no name mapping
+        directBody = body.replace("\"lat\"", "\"latitude\"").replace("\"lon\"", "\"longitude\"");
+    }
+
+    @Benchmark
+    public List<MyParkingResultPojo> treeAndList() throws IOException {
+        JsonNode tree = objectMapper.readTree(directBody);
+        List<MyParkingResultPojo> result = new ArrayList<>(tree.size());
+        for (JsonNode element : tree)
+            result.add(objectMapper.treeToValue(element, MyParkingResultPojo.class));
+        return result;
+    }
+
+    @Benchmark
+    public void streaming(Blackhole blackhole) {
+        directMapper.stream(new StringReader(directBody)).forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamingWithNameMapping(Blackhole blackhole) {
+        mapper.stream(new StringReader(body)).forEach(blackhole::consume);
+    }
+
+}
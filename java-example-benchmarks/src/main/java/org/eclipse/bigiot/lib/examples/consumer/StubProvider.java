@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.eclipse.bigiot.lib.examples.provider.SimulatedParkingData;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * Local stand-in for a provider in the load tests: answers every request on /parking with simulated parking spots
+ * after a fixed latency. The responses are delayed on a timer, so the stub holds no thread per pending request and
+ * does not limit the concurrency of a load test.
+ * <p>
+ * The HTTPS stub uses a self-signed certificate for 127.0.0.1, which is generated with the keytool of the JDK on
+ * start. Clients trust it through {@link #getClientContext()}.
+ */
+final class StubProvider {
+
+    private static final char[] PASSWORD = "stubprovider".toCharArray();
+
+    static {
+        // Otherwise the response headers and the body wait for the delayed acknowledgement of the client (~40 ms) on a
+        // kept-alive connection. Read once when the server classes are loaded.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final SSLContext clientContext;
+
+    private StubProvider(HttpServer server, int latency, SSLContext clientContext) {
+        this.server = server;
+        this.clientContext = clientContext;
+        server.createContext("/parking",
+                exchange -> timer.schedule(() -> respond(exchange), latency, TimeUnit.MILLISECONDS));
+        server.start();
+    }
+
+    static StubProvider start(int latency) throws IOException {
+        return new StubProvider(HttpServer.create(new InetSocketAddress("localhost", 0), 4096), latency, null);
+    }
+
+    static StubProvider startHttps(int latency) throws IOException, GeneralSecurityException {
+        KeyStore keyStore = generateKeyStore();
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, PASSWORD);
+        SSLContext serverContext = SSLContext.getInstance("TLS");
+        serverContext.init(keyManagers.getKeyManagers(), null, null);
+
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(keyStore);
+        SSLContext clientContext = SSLContext.getInstance("TLS");
+        clientContext.init(null, trustManagers.getTrustManagers(), null);
+
+        HttpsServer server = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.setHttpsConfigurator(new HttpsConfigurator(serverContext));
+        return new StubProvider(server, latency, clientContext);
+    }
+
+    String getUri() {
+        return clientContext == null ? "http://localhost:" + server.getAddress().getPort() + "/parking"
+                : "https://127.0.0.1:" + server.getAddress().getPort() + "/parking";
+    }
+
+    /**
+     * Returns an SSL context which trusts the certificate of the HTTPS stub.
+     */
+    SSLContext getClientContext() {
+        return clientContext;
+    }
+
+    void stop() {
+        server.stop(0);
+        timer.shutdownNow();
+    }
+
+    /**
+     * Accesses the stub like a blocking one-time access, and reads the body completely so the connection can be
+     * reused.
+     */
+    static void access(String uri) throws IOException {
+        read((HttpURLConnection) new URL(uri).openConnection());
+    }
+
+    /**
+     * Accesses the stub like {@link #access}, and returns the body.
+     */
+    static String get(String uri) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(uri).openConnection();
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK)
+            throw new IOException("Status " + connection.getResponseCode());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = connection.getInputStream()) {
+            for (int n; (n = in.read(buffer)) >= 0;)
+                body.write(buffer, 0, n);
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sends the request of the connection and reads the body completely.
+     *
+     * @return the length of the body
+     */
+    static int read(HttpURLConnection connection) throws IOException {
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK)
+            throw new IOException("Status " + connection.getResponseCode());
+        byte[] buffer = new byte[8192];
+        int length = 0;
+        try (InputStream in = connection.getInputStream()) {
+            for (int n; (n = in.read(buffer)) >= 0;)
+                length += n;
+        }
+        return length;
+    }
+
+    private static KeyStore generateKeyStore() throws IOException, GeneralSecurityException {
+        File file = File.createTempFile("stubprovider", ".p12");
+        file.delete();
+        try {
+            String keytool = System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool";
+            Process process = new ProcessBuilder(keytool, "-genkeypair", "-alias", "stub", "-keyalg", "RSA",
+                    "-keysize", "2048", "-validity", "1", "-dname", "CN=127.0.0.1", "-ext", "SAN=ip:127.0.0.1",
+                    "-storetype", "PKCS12", "-keystore", file.getPath(), "-storepass", new String(PASSWORD),
+                    "-keypass", new String(PASSWORD)).redirectErrorStream(true).start();
+            if (process.waitFor() != 0)
+                throw new IOException("keytool failed with exit code " + process.exitValue());
+            KeyStore keyStore = KeyStore.getInstance("PKCS12");
+            try (InputStream in = new FileInputStream(file)) {
+                keyStore.load(in, PASSWORD);
+            }
+            return keyStore;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void respond(HttpExchange exchange) {
+        byte[] body = SimulatedParkingData.parkingSpots(42.0, 9.0).toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // The client has gone away
+            exchange.close();
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ingests bursts of 10k parking status changes into an AccessStreamBuffer, element by element versus as one batch,
+ * while a subscriber concurrently reads the stream. This measures the cost of a burst; see
+ * {@link AccessStreamIngestionLoadTest} for a sustained rate of 10k elements per second.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class AccessStreamIngestionBenchmark {
+
+    private static final int BURST_SIZE = 10000;
+
+    private final List<JSONObject> burst = new ArrayList<>(BURST_SIZE);
+    private AccessStreamBuffer accessStream;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(42);
+        for (int i = 0; i < BURST_SIZE; i++) {
+            burst.add(new JSONObject().put("lat", 42.0 + r.nextFloat() * 0.01).put("lon", 9.0 + r.nextFloat() * 0.01)
+                    .put("status", r.nextBoolean() ? "available" : "occupied"));
+        }
+        accessStream = AccessStreamBuffer.create(10 * BURST_SIZE);
+    }
+
+    @Benchmark
+    @Group("perElement")
+    @GroupThreads(1)
+    public long appendPerElement() {
+        long sequence = 0;
+        for (JSONObject element : burst)
+            sequence = accessStream.append(element);
+        return sequence;
+    }
+
+    @Benchmark
+    @Group("perElement")
+    @GroupThreads(1)
+    public int readPerElement() {
+        return accessStream.read("subscriber").size();
+    }
+
+    @Benchmark
+    @Group("batch")
+    @GroupThreads(1)
+    public long appendBatch() {
+        return accessStream.appendAll(burst);
+    }
+
+    @Benchmark
+    @Group("batch")
+    @GroupThreads(1)
+    public int readBatch() {
+        return accessStream.read("subscriber").size();
+    }
+
+}
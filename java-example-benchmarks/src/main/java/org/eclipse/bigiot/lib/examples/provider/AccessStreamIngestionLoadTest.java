@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.bigiot.lib.model.BigIotTypes.ValueType;
+import org.json.JSONObject;
+
+/**
+ * Load test of the {@link AccessStreamBuffer}: appends parking status changes at a sustained rate of 10k elements per
+ * second, in small batches every few milliseconds, while subscribers read the stream concurrently. Every few seconds
+ * the achieved append and read rates, the elements the subscribers missed, the append latency, the lag of the producer
+ * behind its schedule and the garbage collections are printed.
+ * <p>
+ * The elements due every batch interval are appended with one appendAll call ("batch"), or element by element with
+ * append ("single"), which takes the lock of the stream and wakes its readers once per element. By default both are
+ * run, one after the other on a new stream, so the two can be compared.
+ * <p>
+ * Arguments (all optional): rate (elements/s), duration (s), batch interval (ms), capacity, subscribers, read interval
+ * (ms), store (json or columnar), append (batch, single or both). Default: 10000 60 10 100000 4 100 columnar both
+ */
+public class AccessStreamIngestionLoadTest {
+
+    private static final int REPORT_INTERVAL = 5000;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong missed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong appendNanos = new AtomicLong();
+    private final AtomicLong maxAppendNanos = new AtomicLong();
+    private final AtomicLong maxLag = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public static void main(String[] args) throws Exception {
+        int rate = argument(args, 0, 10000);
+        int duration = argument(args, 1, 60);
+        int batchInterval = argument(args, 2, 10);
+        int capacity = argument(args, 3, 100000);
+        int subscribers = argument(args, 4, 4);
+        int readInterval = argument(args, 5, 100);
+        boolean columnar = args.length <= 6 || "columnar".equals(args[6]);
+        String append = args.length > 7 ? args[7] : "both";
+
+        if (!"single".equals(append)) {
+            new AccessStreamIngestionLoadTest().run(accessStream(capacity, columnar), rate, duration, batchInterval,
+                    subscribers, readInterval, true);
+        }
+        if (!"batch".equals(append)) {
+            new AccessStreamIngestionLoadTest().run(accessStream(capacity, columnar), rate, duration, batchInterval,
+                    subscribers, readInterval, false);
+        }
+    }
+
+    private static AccessStreamBuffer accessStream(int capacity, boolean columnar) {
+        return columnar
+                ? AccessStreamBuffer.create(capacity,
+                        OutputSchema.create().addOutputData("lon", "schema:longitude", ValueType.NUMBER)
+                                .addOutputData("lat", "schema:latitude", ValueType.NUMBER)
+                                .addOutputData("status", "datex:parkingSpaceStatus", ValueType.TEXT))
+                : AccessStreamBuffer.create(capacity);
+    }
+
+    private void run(final AccessStreamBuffer accessStream, int rate, int duration, int batchInterval,
+            int subscribers, final int readInterval, boolean isBatch) throws InterruptedException {
+        System.out.println("Appending " + rate + " elements/s " + (isBatch ? "in batches" : "element by element")
+                + " every " + batchInterval + " ms for " + duration + " s, read by " + subscribers
+                + " subscribers every " + readInterval + " ms");
+
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long from = 0;
+                    List<JSONObject> elements = new ArrayList<>();
+                    while (running) {
+                        // Sequence numbers skipped by the read were evicted before the subscriber got to them
+                        long next = accessStream.read(from, elements);
+                        read.addAndGet(elements.size());
+                        missed.addAndGet(next - from - elements.size());
+                        from = next;
+                        elements.clear();
+                        try {
+                            Thread.sleep(readInterval);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }
+            }, "subscriber-" + i);
+            reader.setDaemon(true);
+            reader.start();
+            readers.add(reader);
+        }
+
+        Random r = new Random(42);
+        long start = System.nanoTime();
+        long end = start + duration * 1000000000L;
+        long nextReport = start + REPORT_INTERVAL * 1000000L;
+        long previousAppended = 0;
+        long previousRead = 0;
+        long previousGcCount = 0;
+        long previousGcTime = 0;
+
+        // The batch of tick n is due at start + n * batchInterval and holds the elements due until then, so the
+        // rate is kept exactly over time even if a single batch is late
+        for (long tick = 1;; tick++) {
+            long due = start + tick * batchInterval * 1000000L;
+            if (due > end)
+                break;
+            long now = System.nanoTime();
+            if (due > now)
+                Thread.sleep((due - now) / 1000000L, (int) ((due - now) % 1000000L));
+            maxLag.accumulateAndGet(System.nanoTime() - due, Math::max);
+
+            int size = (int) (rate * (tick * batchInterval) / 1000 - appended.get());
+            List<JSONObject> batch = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                batch.add(new JSONObject().put("lat", 42.0 + r.nextFloat() * 0.01)
+                        .put("lon", 9.0 + r.nextFloat() * 0.01)
+                        .put("status", r.nextBoolean() ? "available" : "occupied"));
+            }
+            long appendStart = System.nanoTime();
+            if (isBatch) {
+                accessStream.appendAll(batch);
+            } else {
+                for (JSONObject element : batch)
+                    accessStream.append(element);
+            }
+            long appendTime = System.nanoTime() - appendStart;
+            appendNanos.addAndGet(appendTime);
+            maxAppendNanos.accumulateAndGet(appendTime, Math::max);
+            appended.addAndGet(size);
+            batches.incrementAndGet();
+
+            if (System.nanoTime() >= nextReport) {
+                long currentAppended = appended.get();
+                long currentRead = read.get();
+                long gcCount = 0;
+                long gcTime = 0;
+                for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                    gcCount += gc.getCollectionCount();
+                    gcTime += gc.getCollectionTime();
+                }
+                System.out.println(String.format(
+                        "%d appended/s, %d read/s per subscriber, %d missed, append %d us avg %d us max, "
+                                + "lag %d ms max, %d GCs (%d ms)",
+                        (currentAppended - previousAppended) * 1000 / REPORT_INTERVAL,
+                        (currentRead - previousRead) * 1000 / REPORT_INTERVAL / Math.max(subscribers, 1),
+                        missed.getAndSet(0), appendNanos.getAndSet(0) / 1000 / Math.max(batches.getAndSet(0), 1),
+                        maxAppendNanos.getAndSet(0) / 1000, maxLag.getAndSet(0) / 1000000,
+                        gcCount - previousGcCount, gcTime - previousGcTime));
+                previousAppended = currentAppended;
+                previousRead = currentRead;
+                previousGcCount = gcCount;
+                previousGcTime = gcTime;
+                nextReport += REPORT_INTERVAL * 1000000L;
+            }
+        }
+
+        running = false;
+        for (Thread reader : readers)
+            reader.join();
+        System.out.println("Appended " + appended.get() + " elements in "
+                + (System.nanoTime() - start) / 1000000 + " ms, " + accessStream.getEvictedCount() + " evicted");
+    }
+
+    private static int argument(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+
+}
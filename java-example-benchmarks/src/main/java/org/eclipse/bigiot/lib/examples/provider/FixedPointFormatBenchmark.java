@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares FixedPointFormat with String.format for a coordinate ("%.4f") and a distance ("%.2f").
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FixedPointFormatBenchmark {
+
+    private static final int VALUES = 1024;
+
+    private final double[] coordinates = new double[VALUES];
+    private final double[] distances = new double[VALUES];
+    private final StringBuilder builder = new StringBuilder(64);
+    private final byte[] bytes = new byte[64];
+    private int index;
+
+    @Setup
+    public void setup() {
+        Random r = new Random(42);
+        for (int i = 0; i < VALUES; i++) {
+            coordinates[i] = 48.1 + r.nextFloat() * 0.01;
+            distances[i] = r.nextFloat() * 500;
+        }
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        int i = next();
+        return String.format(Locale.US, "%.4f,%.2f", coordinates[i], distances[i]);
+    }
+
+    @Benchmark
+    public int fixedPointAppend() {
+        int i = next();
+        builder.setLength(0);
+        FixedPointFormat.append(builder, coordinates[i], 4).append(',');
+        FixedPointFormat.append(builder, distances[i], 2);
+        return builder.length();
+    }
+
+    @Benchmark
+    public int fixedPointEncode() {
+        int i = next();
+        int offset = FixedPointFormat.encode(bytes, 0, coordinates[i], 4);
+        bytes[offset++] = ',';
+        return FixedPointFormat.encode(bytes, offset, distances[i], 2);
+    }
+
+    private int next() {
+        return index = (index + 1) & (VALUES - 1);
+    }
+
+}
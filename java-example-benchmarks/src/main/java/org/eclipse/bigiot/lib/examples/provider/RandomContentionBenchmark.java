@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Draws the random values of one simulated parking response (spot count plus latitude, longitude and status per spot)
+ * from 8, 16 and 32 concurrent threads, using
+ * <ul>
+ * <li>one Random shared by all threads (contending on its seed),</li>
+ * <li>a new Random per request, and</li>
+ * <li>the per-thread generator of SimulatedParkingData.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RandomContentionBenchmark {
+
+    private final Random sharedRandom = new Random();
+
+    @Benchmark
+    @Threads(8)
+    public double sharedRandom08() {
+        return drawResponse(sharedRandom);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public double sharedRandom16() {
+        return drawResponse(sharedRandom);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public double sharedRandom32() {
+        return drawResponse(sharedRandom);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public double newRandom08() {
+        return drawResponse(new Random());
+    }
+
+    @Benchmark
+    @Threads(16)
+    public double newRandom16() {
+        return drawResponse(new Random());
+    }
+
+    @Benchmark
+    @Threads(32)
+    public double newRandom32() {
+        return drawResponse(new Random());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public double threadLocalRandom08() {
+        return drawResponse(SimulatedParkingData.random());
+    }
+
+    @Benchmark
+    @Threads(16)
+    public double threadLocalRandom16() {
+        return drawResponse(SimulatedParkingData.random());
+    }
+
+    @Benchmark
+    @Threads(32)
+    public double threadLocalRandom32() {
+        return drawResponse(SimulatedParkingData.random());
+    }
+
+    private static double drawResponse(Random r) {
+        double sum = 0;
+        int n = Math.round(r.nextFloat() * 10 + 10);
+        for (int i = 0; i < n; i++) {
+            sum += r.nextFloat() * 0.01;
+            sum += r.nextFloat() * 0.01;
+            sum += r.nextBoolean() ? 1 : 0;
+        }
+        return sum;
+    }
+
+}
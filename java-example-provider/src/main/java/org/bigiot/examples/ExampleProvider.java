@@ -14,8 +14,8 @@ package org.bigiot.examples;
 import java.io.IOException;
 import java.util.Date;
 import java.util.Map;
-import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.eclipse.bigiot.lib.ProviderSpark;
 import org.eclipse.bigiot.lib.exceptions.IncompleteOfferingDescriptionException;
@@ -40,8 +40,6 @@ import org.json.JSONObject;
  */
 public class ExampleProvider {
 	
-	private static Random rand = new Random();
-
 	private static AccessRequestHandler accessCallback = new AccessRequestHandler() {
 		@Override
 		public BigIotHttpResponse processRequestHandler (
@@ -60,7 +58,7 @@ public class ExampleProvider {
 			
 		    // Prepare the offering response as a JSONObject/Array - according to the Output Data defined in the Offering Description
 		    JSONObject number = new JSONObject();
-		    number.put("value", rand.nextFloat());
+		    number.put("value", ThreadLocalRandom.current().nextFloat());
 		    number.put("timestamp", new Date().getTime()); 
 		   
 	        // Send the response as JSON in the form: { [ { "value" : 0.XXX, "timestamp" : YYYYYYY } ] }
@@ -21,6 +21,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import org.eclipse.bigiot.lib.Consumer;
+import org.eclipse.bigiot.lib.examples.consumer.OfferingIndex;
 import org.eclipse.bigiot.lib.examples.types.MyParkingResultPojo;
 import org.eclipse.bigiot.lib.examples.types.MyParkingResultPojoAnnotated;
 import org.eclipse.bigiot.lib.exceptions.AccessToNonActivatedOfferingException;
@@ -36,7 +37,6 @@ import org.eclipse.bigiot.lib.model.Location;
 import org.eclipse.bigiot.lib.model.Price.Euros;
 import org.eclipse.bigiot.lib.offering.AccessResponse;
 import org.eclipse.bigiot.lib.offering.Offering;
-import org.eclipse.bigiot.lib.offering.OfferingSelector;
 import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
 import org.eclipse.bigiot.lib.offering.mapping.OutputMapping;
 import org.eclipse.bigiot.lib.offering.parameters.AccessParameters;
@@ -93,7 +93,7 @@ public class BasicConsumer {
                 .withPricingModel(BigIotTypes.PricingModel.PER_ACCESS).withLicenseType(LicenseType.OPEN_DATA_LICENSE);
 
         CompletableFuture<SubscribableOfferingDescription> offeringDescriptionFuture = consumer.discover(query)
-                .thenApply(l -> OfferingSelector.create().onlyLocalhost().cheapest().mostPermissive().select(l));
+                .thenApply(l -> OfferingIndex.create(l).select().onlyLocalhost().cheapest().mostPermissive().first());
 
         // Alternatively you can use discover with callbacks
         // consumer.discoverContinous(query, (q, list)-> {
@@ -17,11 +17,15 @@ package org.eclipse.bigiot.lib.examples;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import org.eclipse.bigiot.lib.Consumer;
+import org.eclipse.bigiot.lib.examples.consumer.CompiledResponseMapper;
+import org.eclipse.bigiot.lib.examples.consumer.OfferingIndex;
 import org.eclipse.bigiot.lib.examples.types.AlternativeParkingPojo;
 import org.eclipse.bigiot.lib.examples.types.MyComplexParkingResultPojo;
 import org.eclipse.bigiot.lib.examples.types.MyComplexParkingResultPojoAnnotated;
@@ -40,7 +44,6 @@ import org.eclipse.bigiot.lib.model.Price.Euros;
 import org.eclipse.bigiot.lib.model.TimePeriod;
 import org.eclipse.bigiot.lib.offering.AccessResponse;
 import org.eclipse.bigiot.lib.offering.Offering;
-import org.eclipse.bigiot.lib.offering.OfferingSelector;
 import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
 import org.eclipse.bigiot.lib.offering.mapping.OutputMapping;
 import org.eclipse.bigiot.lib.offering.parameters.AccessParameters;
@@ -100,7 +103,7 @@ public class ComplexExampleConsumer {
 
         CompletableFuture<SubscribableOfferingDescription> offeringDescriptionFuture = consumer.discover(query)
                 .thenApply(SubscribableOfferingDescription::showOfferingDescriptions)
-                .thenApply(l -> OfferingSelector.create().onlyLocalhost().cheapest().mostPermissive().select(l));
+                .thenApply(l -> OfferingIndex.create(l).select().onlyLocalhost().cheapest().mostPermissive().first());
 
         SubscribableOfferingDescription offeringDescription = offeringDescriptionFuture.get();
         if (offeringDescription == null) {
@@ -141,13 +144,21 @@ public class ComplexExampleConsumer {
                         .addNameMapping("geoCoordinates.longitude", "coordinates.longitude")
                         .addNameMapping("distance", "meters"));
 
+        // For the many responses of a feed, a mapper which inspects the annotations only once and is reused
+        Map<String, String> responseNames = new HashMap<>();
+        responseNames.put("schema:geoCoordinates", "geoCoordinates");
+        responseNames.put("datex:distanceFromParkingSpace", "distance");
+        responseNames.put("datex:parkingSpaceStatus", "status");
+        CompiledResponseMapper<MyComplexParkingResultPojoAnnotated> mapper = CompiledResponseMapper
+                .get(MyComplexParkingResultPojoAnnotated.class, responseNames);
+
         Thread.sleep(5L * Helper.Second);
 
         Duration feedDuration = Duration.standardHours(1);
 
         // Create a data feed using callbacks for the received results
         AccessFeed accessFeed = offering.accessContinuous(accessParameters, feedDuration.getMillis(),
-                (f, r) -> log("Incoming feed data: " + r.asJsonNode().size() + " elements received. "),
+                (f, r) -> log("Incoming feed data: " + mapper.map(r).size() + " parking spots received. "),
                 (f, r) -> log("Feed operation failed"));
 
         Thread.sleep(23L * Helper.Second);
@@ -16,12 +16,15 @@
 package org.eclipse.bigiot.lib.examples;
 
 import java.io.IOException;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
 import java.util.Scanner;
 
 import org.eclipse.bigiot.lib.ProviderSpark;
+import org.eclipse.bigiot.lib.examples.provider.BoundInputs;
+import org.eclipse.bigiot.lib.examples.provider.InputBinding;
+import org.eclipse.bigiot.lib.examples.provider.ParkingSpotJsonWriter;
+import org.eclipse.bigiot.lib.examples.provider.SimulatedParkingData;
 import org.eclipse.bigiot.lib.exceptions.IncompleteOfferingDescriptionException;
 import org.eclipse.bigiot.lib.exceptions.NotRegisteredException;
 import org.eclipse.bigiot.lib.handlers.AccessRequestHandler;
@@ -47,44 +50,32 @@ import org.joda.time.DateTime;
  */
 public class ComplexExampleProvider {
 
-    private static AccessRequestHandler accessCallbackDummy = new AccessRequestHandler() {
+    private static final InputBinding inputBinding = InputBinding.create().addRequiredNumber("radius")
+            .addRequiredNumber("center.latitude", -90.0, 90.0).addRequiredNumber("center.longitude", -180.0, 180.0);
+
+    static AccessRequestHandler accessCallbackDummy = new AccessRequestHandler() {
         @Override
         public BigIotHttpResponse processRequestHandler(OfferingDescription offeringDescription,
                 Map<String, Object> inputData, String subscriptionId, String consumerInfo) {
 
-            double longitude = 0, latitude = 0, radius = 0;
-
-            BigIotHttpResponse errorResponse = BigIotHttpResponse.error().withBody("{\"status\":\"error\"}")
-                    .withStatus(422).asJsonType();
-            if (!inputData.containsKey("center"))
-                return errorResponse;
-            Map<String, String> center = (Map<String, String>) inputData.get("center");
-
-            if (!center.containsKey("longitude"))
-                return errorResponse;
-            longitude = new Double((String) center.get("longitude"));
-            if (!center.containsKey("latitude"))
-                return errorResponse;
-            latitude = new Double((String) center.get("latitude"));
+            BoundInputs inputs = inputBinding.bind(inputData);
+            if (!inputs.isValid())
+                return BigIotHttpResponse.error().withBody("{\"status\":\"error\"}").withStatus(422).asJsonType();
 
-            if (!inputData.containsKey("radius"))
-                return errorResponse;
-            radius = new Double((String) inputData.get("radius"));
+            double longitude = inputs.getDouble("center.longitude");
+            double latitude = inputs.getDouble("center.latitude");
+            double radius = inputs.getDouble("radius");
 
-            Random r = new Random();
-            int n = Math.round(r.nextFloat() * 10 + 10);
-            String s = "[";
+            Random r = SimulatedParkingData.random();
+            int n = SimulatedParkingData.spotCount();
+            ParkingSpotJsonWriter writer = ParkingSpotJsonWriter.get();
 
             for (int i = 0; i < n; i++) {
-                if (i > 0)
-                    s += ",\n";
-                s += String.format(Locale.US,
-                        "{\"geoCoordinates\":{\n\"latitude\": %.4f,\n\"longitude\": %.4f},\n\"distance\": %.2f,\n\"status\":\"available\"\n}",
-                        r.nextFloat() * 0.01 + latitude, r.nextFloat() * 0.01 + longitude, r.nextFloat() * radius);
+                writer.writeSpot(r.nextFloat() * 0.01 + latitude, r.nextFloat() * 0.01 + longitude,
+                        r.nextFloat() * radius, "available");
             }
-            s += "]";
 
-            return BigIotHttpResponse.okay().withBody(s).asJsonType();
+            return BigIotHttpResponse.okay().withBody(writer.toJson()).asJsonType();
 
         }
     };
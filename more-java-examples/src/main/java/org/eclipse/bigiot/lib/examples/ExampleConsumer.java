@@ -21,6 +21,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import org.eclipse.bigiot.lib.Consumer;
+import org.eclipse.bigiot.lib.examples.consumer.StreamingResponseMapper;
 import org.eclipse.bigiot.lib.examples.types.MyParkingResultPojo;
 import org.eclipse.bigiot.lib.examples.types.MyParkingResultPojoAnnotated;
 import org.eclipse.bigiot.lib.exceptions.AccessToNonActivatedOfferingException;
@@ -129,6 +130,11 @@ public class ExampleConsumer {
                         .addTypeMapping("datex:distanceFromParkingSpace", "distance")
                         .addTypeMapping("datex:parkingSpaceStatus", "status"));
 
+        // For large responses, the elements can be mapped one at a time while the body is parsed
+        StreamingResponseMapper.create(MyParkingResultPojo.class).addNameMapping("lat", "latitude")
+                .addNameMapping("lon", "longitude").addNameMapping("dist", "distance")
+                .forEach(response.get(), t -> logger.info("Record: " + t.toString()));
+
         Thread.sleep(3L * Helper.Second);
 
         Duration feedDuration = Duration.standardHours(1);
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+import org.eclipse.bigiot.lib.Consumer;
+import org.eclipse.bigiot.lib.examples.consumer.AdaptiveInterval;
+import org.eclipse.bigiot.lib.examples.consumer.IncrementalAccessFeed;
+import org.eclipse.bigiot.lib.exceptions.IncompleteOfferingQueryException;
+import org.eclipse.bigiot.lib.misc.BridgeIotProperties;
+import org.eclipse.bigiot.lib.misc.Helper;
+import org.eclipse.bigiot.lib.model.BigIotTypes;
+import org.eclipse.bigiot.lib.model.BigIotTypes.LicenseType;
+import org.eclipse.bigiot.lib.model.BigIotTypes.ValueType;
+import org.eclipse.bigiot.lib.model.BoundingBox;
+import org.eclipse.bigiot.lib.model.Location;
+import org.eclipse.bigiot.lib.model.Price.Euros;
+import org.eclipse.bigiot.lib.offering.Offering;
+import org.eclipse.bigiot.lib.offering.OfferingSelector;
+import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
+import org.eclipse.bigiot.lib.query.OfferingQuery;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Example for polling an access stream incrementally, so that every access only transfers the elements appended since
+ * the previous one. This example corresponds with ExampleProviderAccessStream.java
+ */
+public class ExampleConsumerAccessStream {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExampleConsumerAccessStream.class);
+
+    public static void main(String[] args)
+            throws InterruptedException, ExecutionException, IncompleteOfferingQueryException, IOException {
+
+        // Load example properties file
+        BridgeIotProperties prop = BridgeIotProperties.load("example.properties");
+
+        // Initialize Consumer with Consumer ID and marketplace URL
+        Consumer consumer = new Consumer(prop.CONSUMER_ID, prop.MARKETPLACE_URI).authenticate(prop.CONSUMER_SECRET);
+
+        // Construct Offering search query incrementally
+        OfferingQuery query = OfferingQuery.create("DemoParkingQueryAccessStreamPolling")
+                .withName("Demo Parking Query Access Stream").withCategory("urn:big-iot:ParkingSpaceCategory")
+                .inRegion(BoundingBox.create(Location.create(40.0, 8.0), Location.create(45.0, 12.0)))
+                .addInputData("schema:longitude", ValueType.NUMBER).addInputData("schema:latitude", ValueType.NUMBER)
+                .addOutputData("schema:longitude", ValueType.NUMBER).addOutputData("schema:latitude", ValueType.NUMBER)
+                .addOutputData("datex:parkingSpaceStatus", ValueType.TEXT)
+                .withPricingModel(BigIotTypes.PricingModel.PER_ACCESS).withMaxPrice(Euros.amount(0.5))
+                .withLicenseType(LicenseType.CREATIVE_COMMONS);
+
+        SubscribableOfferingDescription offeringDescription = consumer.discover(query)
+                .thenApply(l -> OfferingSelector.create().onlyLocalhost().cheapest().mostPermissive().select(l)).get();
+
+        if (offeringDescription == null) {
+            logger.error("Couldn't find any offering. Are sure that one is registered? It could be expired meanwhile");
+            System.exit(1);
+        }
+
+        // Subscribe the offering as usual
+        Offering offering = offeringDescription.subscribe().get();
+
+        // Every access passes the position of the previous response as input data "since". The interval doubles with
+        // every empty response, up to 30 seconds, and drops back to 1 second when new elements arrive.
+        IncrementalAccessFeed accessFeed = IncrementalAccessFeed.create(offering).withInputData("latitude", 42.0)
+                .withInputData("longitude", 9.0)
+                .withInterval(AdaptiveInterval.create(Duration.standardSeconds(1), Duration.standardSeconds(30)));
+
+        accessFeed.start(
+                (f, elements) -> logger.info("Incoming feed data: " + elements.length() + " elements received. "),
+                (f, failure) -> logger.info("Feed operation failed: " + failure));
+
+        Thread.sleep(30L * Helper.Second);
+
+        // Pausing Feed
+        accessFeed.stop();
+
+        // Printing feed status
+        logger.info(accessFeed.toString());
+
+        Thread.sleep(5L * Helper.Second);
+
+        // Resuming Feed, the elements appended in the meantime are received with the first access
+        accessFeed.resume();
+
+        Thread.sleep(30L * Helper.Second);
+
+        accessFeed.stop();
+
+        // Unsubscribe Offering
+        offering.unsubscribe();
+
+        // Terminate consumer session (unsubscribe from marketplace)
+        consumer.terminate();
+
+    }
+}
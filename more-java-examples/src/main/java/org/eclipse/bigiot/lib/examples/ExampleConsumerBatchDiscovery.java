@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.eclipse.bigiot.lib.Consumer;
+import org.eclipse.bigiot.lib.examples.consumer.BatchDiscovery;
+import org.eclipse.bigiot.lib.examples.consumer.OfferingRegionIndex;
+import org.eclipse.bigiot.lib.misc.BridgeIotProperties;
+import org.eclipse.bigiot.lib.model.BigIotTypes.ValueType;
+import org.eclipse.bigiot.lib.model.BoundingBox;
+import org.eclipse.bigiot.lib.model.Location;
+import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
+import org.eclipse.bigiot.lib.query.IOfferingQuery;
+import org.eclipse.bigiot.lib.query.OfferingQuery;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Example for discovering the offerings of many queries at startup, here parking offerings in a grid of regions, with
+ * one batch instead of one discovery after the other, and routing a user to the offerings around them.
+ */
+public class ExampleConsumerBatchDiscovery {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExampleConsumerBatchDiscovery.class);
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException, IOException {
+
+        // Load example properties file
+        BridgeIotProperties prop = BridgeIotProperties.load("example.properties");
+
+        // Initialize Consumer with Consumer ID and marketplace URL
+        Consumer consumer = new Consumer(prop.CONSUMER_ID, prop.MARKETPLACE_URI).authenticate(prop.CONSUMER_SECRET);
+
+        // One parking query per region of 1 x 1 degrees
+        List<OfferingQuery> queries = new ArrayList<>();
+        for (int latitude = 40; latitude < 45; latitude++) {
+            for (int longitude = 8; longitude < 12; longitude++) {
+                queries.add(OfferingQuery.create("DemoParkingQuery-" + latitude + "-" + longitude)
+                        .withName("Demo Parking Query " + latitude + "/" + longitude)
+                        .withCategory("urn:big-iot:ParkingSpaceCategory")
+                        .inRegion(BoundingBox.create(Location.create(latitude, longitude),
+                                Location.create(latitude + 1, longitude + 1)))
+                        .addOutputData("schema:longitude", ValueType.NUMBER)
+                        .addOutputData("schema:latitude", ValueType.NUMBER)
+                        .addOutputData("datex:parkingSpaceStatus", ValueType.TEXT));
+            }
+        }
+        // The query of the complex example, which finds the offering of ComplexExampleProvider
+        queries.add(OfferingQuery.create("ParkingQuery").withName("Parking Query")
+                .withCategory("urn:proposed:Miscellaneous")
+                .inRegion(BoundingBox.create(Location.create(48.07, 11.65), Location.create(48.13, 11.67)))
+                .addOutputData("datex:parkingSpaceStatus", ValueType.TEXT));
+
+        // Discover all queries, at most 8 at a time and each for at most 5 seconds
+        long start = System.currentTimeMillis();
+        BatchDiscovery.Result result = BatchDiscovery.create(consumer).addAll(queries).withMaxConcurrency(8)
+                .withTimeout(Duration.standardSeconds(5)).discover().get();
+        logger.info("Discovered {} queries in {} ms", queries.size(), System.currentTimeMillis() - start);
+
+        for (Map.Entry<IOfferingQuery, List<SubscribableOfferingDescription>> entry : result.getOfferingDescriptions()
+                .entrySet())
+            logger.info("{}: {} offerings", entry.getKey().getId(), entry.getValue().size());
+        for (Map.Entry<IOfferingQuery, Throwable> failure : result.getFailures().entrySet())
+            logger.info("{}: discovery failed: {}", failure.getKey().getId(), failure.getValue());
+
+        // Route a user to the parking offerings around them, among all offerings found in the regions
+        List<SubscribableOfferingDescription> parkingOfferings = new ArrayList<>();
+        for (OfferingQuery query : queries.subList(0, queries.size() - 1))
+            parkingOfferings.addAll(result.getOfferingDescriptions(query));
+        OfferingRegionIndex regions = OfferingRegionIndex.create(parkingOfferings);
+        logger.info("{} offerings cover the user, the nearest are {}", regions.containing(42.0, 9.0).size(),
+                regions.nearest(42.0, 9.0, 3));
+
+        // Terminate consumer session (unsubscribe from marketplace)
+        consumer.terminate();
+
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.bigiot.lib.Consumer;
+import org.eclipse.bigiot.lib.examples.consumer.BulkAccess;
+import org.eclipse.bigiot.lib.exceptions.IncompleteOfferingQueryException;
+import org.eclipse.bigiot.lib.misc.BridgeIotProperties;
+import org.eclipse.bigiot.lib.model.BigIotTypes;
+import org.eclipse.bigiot.lib.model.BigIotTypes.LicenseType;
+import org.eclipse.bigiot.lib.model.BigIotTypes.ValueType;
+import org.eclipse.bigiot.lib.model.BoundingBox;
+import org.eclipse.bigiot.lib.model.Location;
+import org.eclipse.bigiot.lib.model.Price.Euros;
+import org.eclipse.bigiot.lib.offering.Offering;
+import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
+import org.eclipse.bigiot.lib.offering.parameters.AccessParameters;
+import org.eclipse.bigiot.lib.query.OfferingQuery;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Example for accessing all parking offerings found in a region at once and merging their responses. Offerings which
+ * fail or do not answer in time are reported separately and leave the other responses intact.
+ */
+public class ExampleConsumerBulkAccess {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExampleConsumerBulkAccess.class);
+
+    public static void main(String[] args)
+            throws InterruptedException, ExecutionException, IncompleteOfferingQueryException, IOException {
+
+        // Load example properties file
+        BridgeIotProperties prop = BridgeIotProperties.load("example.properties");
+
+        // Initialize Consumer with Consumer ID and marketplace URL
+        Consumer consumer = new Consumer(prop.CONSUMER_ID, prop.MARKETPLACE_URI).authenticate(prop.CONSUMER_SECRET);
+
+        // Construct Offering search query incrementally
+        OfferingQuery query = OfferingQuery.create("DemoParkingQueryBulkAccess")
+                .withName("Demo Parking Query Bulk Access").withCategory("urn:big-iot:ParkingSpaceCategory")
+                .inRegion(BoundingBox.create(Location.create(40.0, 8.0), Location.create(45.0, 12.0)))
+                .addInputData("schema:longitude", ValueType.NUMBER).addInputData("schema:latitude", ValueType.NUMBER)
+                .addOutputData("schema:longitude", ValueType.NUMBER).addOutputData("schema:latitude", ValueType.NUMBER)
+                .addOutputData("datex:parkingSpaceStatus", ValueType.TEXT)
+                .withPricingModel(BigIotTypes.PricingModel.PER_ACCESS).withMaxPrice(Euros.amount(0.5))
+                .withLicenseType(LicenseType.CREATIVE_COMMONS);
+
+        List<SubscribableOfferingDescription> offeringDescriptions = consumer.discover(query).get();
+
+        if (offeringDescriptions.isEmpty()) {
+            logger.error("Couldn't find any offering. Are sure that one is registered? It could be expired meanwhile");
+            System.exit(1);
+        }
+
+        // Subscribe all offerings found, concurrently
+        List<CompletableFuture<Offering>> subscriptions = new ArrayList<>();
+        for (SubscribableOfferingDescription offeringDescription : offeringDescriptions)
+            subscriptions.add(offeringDescription.subscribe());
+        List<Offering> offerings = new ArrayList<>();
+        for (CompletableFuture<Offering> subscription : subscriptions)
+            offerings.add(subscription.get());
+
+        // Prepare access parameters
+        AccessParameters accessParameters = AccessParameters.create().addRdfTypeValue("schema:latitude", 42.0)
+                .addRdfTypeValue("schema:longitude", 9.0);
+
+        // Access all offerings, at most 8 at a time and each for at most 5 seconds. The handlers are called one at a
+        // time, so the responses can be merged without synchronization.
+        AtomicInteger parkingSpots = new AtomicInteger();
+        BulkAccess.Result result = BulkAccess.create(offerings, accessParameters).withMaxConcurrency(8)
+                .withTimeout(Duration.standardSeconds(5))
+                .start((b, offering, response) -> {
+                    parkingSpots.addAndGet(response.asJsonNode().size());
+                    logger.info(response.asJsonNode().size() + " elements received from "
+                            + offering.getOfferingDescription().getId() + ", " + parkingSpots + " in total");
+                }, (b, offering, failure) -> logger.info(
+                        "Access of " + offering.getOfferingDescription().getId() + " failed: " + failure))
+                .get();
+
+        logger.info(result.getResponseCount() + " of " + offerings.size() + " offerings answered with "
+                + parkingSpots + " parking spots, " + result.getFailures().size() + " failed");
+
+        // Unsubscribe Offerings
+        for (Offering offering : offerings)
+            offering.unsubscribe();
+
+        // Terminate consumer session (unsubscribe from marketplace)
+        consumer.terminate();
+
+    }
+}
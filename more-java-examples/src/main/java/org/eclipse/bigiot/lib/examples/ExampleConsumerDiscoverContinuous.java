@@ -21,13 +21,15 @@ import java.util.Scanner;
 import java.util.concurrent.ExecutionException;
 
 import org.eclipse.bigiot.lib.Consumer;
+import org.eclipse.bigiot.lib.examples.consumer.DiscoveryCache;
+import org.eclipse.bigiot.lib.examples.consumer.SubscriptionPool;
 import org.eclipse.bigiot.lib.examples.types.MyParkingResultPojoAnnotated;
 import org.eclipse.bigiot.lib.exceptions.AccessToNonActivatedOfferingException;
 import org.eclipse.bigiot.lib.exceptions.AccessToNonSubscribedOfferingException;
 import org.eclipse.bigiot.lib.exceptions.IncompleteOfferingQueryException;
 import org.eclipse.bigiot.lib.handlers.DiscoverFailureException;
-import org.eclipse.bigiot.lib.handlers.DiscoverResponseErrorHandler;
 import org.eclipse.bigiot.lib.handlers.DiscoverResponseHandler;
+import org.eclipse.bigiot.lib.handlers.DiscoverResponseErrorHandler;
 import org.eclipse.bigiot.lib.misc.BridgeIotProperties;
 import org.eclipse.bigiot.lib.model.BigIotTypes;
 import org.eclipse.bigiot.lib.model.BigIotTypes.LicenseType;
@@ -55,12 +57,33 @@ public class ExampleConsumerDiscoverContinuous {
 
     private static final Logger logger = LoggerFactory.getLogger(ExampleConsumerDiscoverContinuous.class);
 
+    // Subscriptions of the discovered offerings, kept as long as the offerings are discovered again
+    private static SubscriptionPool subscriptions = SubscriptionPool.create();
+
+    // Reports only the offerings which were added or removed since the previous discovery
+    private static DiscoveryCache discoveryCache = DiscoveryCache.create(new DiscoveryCache.Listener() {
+        @Override
+        public void offeringAdded(IOfferingQuery reference, SubscribableOfferingDescription offeringDescription) {
+            logger.info("Discovered offering {}", offeringDescription.getId());
+        }
+
+        @Override
+        public void offeringRemoved(IOfferingQuery reference, SubscribableOfferingDescription offeringDescription) {
+
+            logger.info("Offering {} is no longer available", offeringDescription.getId());
+
+            subscriptions.remove(offeringDescription.getId());
+        }
+    });
+
     private static DiscoverResponseHandler discoverResponseHandler = new DiscoverResponseHandler() {
         @Override
         public void processResponse(IOfferingQuery reference, List offeringDescriptions) {
 
             logger.info("Discovered {} offerings", offeringDescriptions.size());
 
+            discoveryCache.processResponse(reference, offeringDescriptions);
+
             if (offeringDescriptions.size() == 0)
                 return;
 
@@ -68,7 +91,8 @@ public class ExampleConsumerDiscoverContinuous {
                     .get(0);
 
             try {
-                Offering offering = offeringDescription.subscribe().get();
+                // Subscribes only in the first cycle, later cycles reuse the subscription of the pool
+                Offering offering = subscriptions.acquire(offeringDescription).get();
 
                 AccessParameters accessParameters = AccessParameters.create().addRdfTypeValue("schema:latitude", 42.0)
                         .addRdfTypeValue("schema:longitude", 9.0).addRdfTypeValue("schema:geoRadius", 777);
@@ -81,7 +105,7 @@ public class ExampleConsumerDiscoverContinuous {
                 List<MyParkingResultPojoAnnotated> parkingResult = response.map(MyParkingResultPojoAnnotated.class);
                 // parkingResult.forEach(t -> logger.info("Record: " + t.toString()));
 
-                offering.unsubscribe();
+                logger.info(subscriptions.toString());
 
             } catch (InterruptedException | ExecutionException e) {
                 // TODO Auto-generated catch block
@@ -134,6 +158,10 @@ public class ExampleConsumerDiscoverContinuous {
         // Stop continuous discovery
         consumer.stopDiscoverContinuous(query);
 
+        // Unsubscribe from the offerings which are still subscribed
+        logger.info(subscriptions.toString());
+        subscriptions.close();
+
         // Terminate consumer session (unsubscribe from marketplace)
         consumer.terminate();
 
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.eclipse.bigiot.lib.Consumer;
+import org.eclipse.bigiot.lib.examples.consumer.HedgedAccess;
+import org.eclipse.bigiot.lib.examples.consumer.OfferingIndex;
+import org.eclipse.bigiot.lib.exceptions.IncompleteOfferingQueryException;
+import org.eclipse.bigiot.lib.misc.BridgeIotProperties;
+import org.eclipse.bigiot.lib.misc.Helper;
+import org.eclipse.bigiot.lib.model.BigIotTypes;
+import org.eclipse.bigiot.lib.model.BigIotTypes.LicenseType;
+import org.eclipse.bigiot.lib.model.BigIotTypes.ValueType;
+import org.eclipse.bigiot.lib.model.BoundingBox;
+import org.eclipse.bigiot.lib.model.Location;
+import org.eclipse.bigiot.lib.model.Price.Euros;
+import org.eclipse.bigiot.lib.offering.AccessResponse;
+import org.eclipse.bigiot.lib.offering.Offering;
+import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
+import org.eclipse.bigiot.lib.offering.parameters.AccessParameters;
+import org.eclipse.bigiot.lib.query.OfferingQuery;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Example for hedged accesses: the best offering of a discovery result is accessed, and a slow access is repeated with
+ * the second best offering, whichever answers first wins. This keeps the latency low even if the provider of the best
+ * offering occasionally answers slowly.
+ */
+public class ExampleConsumerHedgedAccess {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExampleConsumerHedgedAccess.class);
+
+    public static void main(String[] args)
+            throws InterruptedException, ExecutionException, IncompleteOfferingQueryException, IOException {
+
+        // Load example properties file
+        BridgeIotProperties prop = BridgeIotProperties.load("example.properties");
+
+        // Initialize Consumer with Consumer ID and marketplace URL
+        Consumer consumer = new Consumer(prop.CONSUMER_ID, prop.MARKETPLACE_URI).authenticate(prop.CONSUMER_SECRET);
+
+        // Construct Offering search query incrementally
+        OfferingQuery query = OfferingQuery.create("DemoParkingQueryHedgedAccess")
+                .withName("Demo Parking Query Hedged Access").withCategory("urn:big-iot:ParkingSpaceCategory")
+                .inRegion(BoundingBox.create(Location.create(40.0, 8.0), Location.create(45.0, 12.0)))
+                .addInputData("schema:longitude", ValueType.NUMBER).addInputData("schema:latitude", ValueType.NUMBER)
+                .addOutputData("schema:longitude", ValueType.NUMBER).addOutputData("schema:latitude", ValueType.NUMBER)
+                .addOutputData("datex:parkingSpaceStatus", ValueType.TEXT)
+                .withPricingModel(BigIotTypes.PricingModel.PER_ACCESS).withMaxPrice(Euros.amount(0.5))
+                .withLicenseType(LicenseType.CREATIVE_COMMONS);
+
+        // Rank the offerings found once, and take the best two
+        List<SubscribableOfferingDescription> ranked = OfferingIndex.create(consumer.discover(query).get()).select()
+                .cheapest().mostPermissive().top(2);
+
+        if (ranked.size() < 2) {
+            logger.error("Couldn't find two equivalent offerings. Are sure that they are registered?");
+            System.exit(1);
+        }
+
+        Offering offering = ranked.get(0).subscribe().get();
+        Offering alternativeOffering = ranked.get(1).subscribe().get();
+
+        // Prepare access parameters
+        AccessParameters accessParameters = AccessParameters.create().addRdfTypeValue("schema:latitude", 42.0)
+                .addRdfTypeValue("schema:longitude", 9.0);
+
+        // Accesses which take longer than 90% of the recent ones are hedged. Until 20 responses have been seen, the
+        // accesses are hedged after 500 ms.
+        HedgedAccess hedgedAccess = HedgedAccess.create(offering, alternativeOffering).withPercentile(0.9)
+                .withInitialDelay(Duration.millis(500));
+
+        for (int i = 0; i < 100; i++) {
+            AccessResponse response = hedgedAccess.accessOneTime(accessParameters).get();
+            logger.info("One time Offering access: " + response.asJsonNode().size() + " elements received. ");
+            Thread.sleep(Helper.Second / 10);
+        }
+
+        // How often the hedges fired and won, to tune the percentile
+        logger.info(hedgedAccess.toString());
+
+        // Unsubscribe Offerings
+        offering.unsubscribe();
+        alternativeOffering.unsubscribe();
+
+        // Terminate consumer session (unsubscribe from marketplace)
+        consumer.terminate();
+
+    }
+}
@@ -17,10 +17,13 @@ package org.eclipse.bigiot.lib.examples;
 
 import java.io.IOException;
 import java.util.Map;
-import java.util.Random;
 import java.util.Scanner;
 
 import org.eclipse.bigiot.lib.ProviderSpark;
+import org.eclipse.bigiot.lib.examples.provider.BoundInputs;
+import org.eclipse.bigiot.lib.examples.provider.CachingAccessRequestHandler;
+import org.eclipse.bigiot.lib.examples.provider.InputBinding;
+import org.eclipse.bigiot.lib.examples.provider.SimulatedParkingData;
 import org.eclipse.bigiot.lib.exceptions.IncompleteOfferingDescriptionException;
 import org.eclipse.bigiot.lib.exceptions.InvalidOfferingException;
 import org.eclipse.bigiot.lib.exceptions.NotRegisteredException;
@@ -38,39 +41,32 @@ import org.eclipse.bigiot.lib.offering.RegisteredOffering;
 import org.eclipse.bigiot.lib.offering.RegistrableOfferingDescription;
 import org.eclipse.bigiot.lib.serverwrapper.BigIotHttpResponse;
 import org.joda.time.DateTime;
+import org.joda.time.Duration;
 import org.json.JSONArray;
-import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Example for using BIG IoT API as a provider.
  */
 public class ExampleProvider {
 
-    private static AccessRequestHandler accessCallback = new AccessRequestHandler() {
+    private static final Logger logger = LoggerFactory.getLogger(ExampleProvider.class);
+
+    private static final InputBinding inputBinding = InputBinding.create().addOptionalNumber("longitude", 41.0)
+            .addOptionalNumber("latitude", 9.0);
+
+    static AccessRequestHandler accessCallback = new AccessRequestHandler() {
         @Override
         public BigIotHttpResponse processRequestHandler(OfferingDescription offeringDescription,
                 Map<String, Object> inputData, String subscriptionId, String consumerInfo) {
 
-            BigIotHttpResponse errorResponse = BigIotHttpResponse.error().withBody("{\"status\":\"error\"}")
-                    .withStatus(422).asJsonType();
-
-            double longitude = 41.0;
-            if (inputData.containsKey("longitude"))
-                longitude = Double.parseDouble((String) inputData.get("longitude"));
+            BoundInputs inputs = inputBinding.bind(inputData);
+            if (!inputs.isValid())
+                return BigIotHttpResponse.error().withBody("{\"status\":\"error\"}").withStatus(422).asJsonType();
 
-            double latitude = 9.0;
-            if (inputData.containsKey("latitude"))
-                latitude = Double.parseDouble((String) inputData.get("latitude"));
-
-            Random r = new Random();
-            JSONArray jsonArray = new JSONArray();
-            int n = Math.round(r.nextFloat() * 10 + 10);
-            for (int i = 0; i < n; i++) {
-                JSONObject jsonObject = new JSONObject().put("lat", latitude + r.nextFloat() * 0.01)
-                        .put("lon", longitude + r.nextFloat() * 0.01)
-                        .put("status", r.nextBoolean() ? "available" : "occupied");
-                jsonArray.put(jsonObject);
-            }
+            JSONArray jsonArray = SimulatedParkingData.parkingSpots(inputs.getDouble("latitude"),
+                    inputs.getDouble("longitude"));
 
             return BigIotHttpResponse.okay().withBody(jsonArray);
         }
@@ -110,7 +106,11 @@ public class ExampleProvider {
                         .withPrice(Euros.amount(0.02)).withPricingModel(PricingModel.PER_ACCESS)
                         .withLicenseType(LicenseType.CREATIVE_COMMONS);
 
-        Endpoints endpoints = Endpoints.create(offeringDescription).withAccessRequestHandler(accessCallback);
+        // Identical requests within 5 seconds are answered from a cache instead of the access callback (optional)
+        CachingAccessRequestHandler cachingAccessCallback = CachingAccessRequestHandler.create(accessCallback)
+                .withMaxEntries(1000).withTimeToLive(Duration.standardSeconds(5));
+
+        Endpoints endpoints = Endpoints.create(offeringDescription).withAccessRequestHandler(cachingAccessCallback);
 
         RegisteredOffering offering = provider.register(offeringDescription, endpoints);
 
@@ -120,6 +120,8 @@ public class ExampleProvider {
         keyboard.nextLine();
         keyboard.close();
 
+        logger.info(cachingAccessCallback.toString());
+
         // Deregister your offering form Marketplace
         offering.deregister();
 
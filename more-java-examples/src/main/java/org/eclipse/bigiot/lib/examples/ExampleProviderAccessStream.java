@@ -16,10 +16,21 @@
 package org.eclipse.bigiot.lib.examples;
 
 import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
+import javax.net.ssl.SSLContext;
+
 import org.eclipse.bigiot.lib.ProviderSpark;
+import org.eclipse.bigiot.lib.examples.provider.AccessStreamBuffer;
+import org.eclipse.bigiot.lib.examples.provider.AccessStreamPushServer;
+import org.eclipse.bigiot.lib.examples.provider.BoundInputs;
+import org.eclipse.bigiot.lib.examples.provider.InputBinding;
+import org.eclipse.bigiot.lib.examples.provider.OutputSchema;
+import org.eclipse.bigiot.lib.examples.provider.ProximityIndex;
 import org.eclipse.bigiot.lib.exceptions.IncompleteOfferingDescriptionException;
 import org.eclipse.bigiot.lib.exceptions.NotRegisteredException;
 import org.eclipse.bigiot.lib.handlers.AccessStreamFilterHandler;
@@ -35,6 +46,7 @@ import org.eclipse.bigiot.lib.offering.OfferingDescription;
 import org.eclipse.bigiot.lib.offering.RegisteredOffering;
 import org.eclipse.bigiot.lib.offering.RegistrableOfferingDescription;
 import org.joda.time.DateTime;
+import org.joda.time.Duration;
 import org.json.JSONObject;
 
 /**
@@ -42,18 +54,20 @@ import org.json.JSONObject;
  */
 public class ExampleProviderAccessStream {
 
+    private static final InputBinding inputBinding = InputBinding.create().addOptionalNumber("longitude", 9.0)
+            .addOptionalNumber("latitude", 42.0);
+
     private static AccessStreamFilterHandler accessStreamFilterCallback = new AccessStreamFilterHandler() {
         @Override
         public boolean processRequestHandler(OfferingDescription offeringDescription, JSONObject jsonObj,
                 Map<String, Object> inputData, String subscriptionId, String consumerInfo) {
 
-            double longitude = 9.0;
-            if (inputData.containsKey("longitude"))
-                longitude = new Double((String) inputData.get("longitude"));
+            BoundInputs inputs = inputBinding.bind(inputData);
+            if (!inputs.isValid())
+                return false;
 
-            double latitude = 42.0;
-            if (inputData.containsKey("latitude"))
-                latitude = new Double((String) inputData.get("latitude"));
+            double longitude = inputs.getDouble("longitude");
+            double latitude = inputs.getDouble("latitude");
 
             double lon = jsonObj.getDouble("lon");
             double lat = jsonObj.getDouble("lat");
@@ -65,8 +79,15 @@ public class ExampleProviderAccessStream {
         };
     };
 
+    // Output data of the offering, also the columns in which the access stream keeps its elements
+    private static final OutputSchema outputSchema = OutputSchema.create()
+            .addOutputData("lon", "schema:longitude", ValueType.NUMBER)
+            .addOutputData("lat", "schema:latitude", ValueType.NUMBER)
+            .addOutputData("status", "datex:parkingSpaceStatus", ValueType.TEXT);
+
     public static void main(String[] args)
-            throws InterruptedException, IncompleteOfferingDescriptionException, IOException, NotRegisteredException {
+            throws InterruptedException, IncompleteOfferingDescriptionException, IOException, NotRegisteredException,
+            GeneralSecurityException {
 
         // Load example properties file
         BridgeIotProperties prop = BridgeIotProperties.load("example.properties");
@@ -93,42 +114,60 @@ public class ExampleProviderAccessStream {
                         .addInputData("longitude", "schema:longitude", ValueType.NUMBER)
                         .addInputData("latitude", "schema:latitude", ValueType.NUMBER)
                         .addInputData("radius", "schema:geoRadius", ValueType.NUMBER)
-                        .addOutputData("lon", "schema:longitude", ValueType.NUMBER)
-                        .addOutputData("lat", "schema:latitude", ValueType.NUMBER)
-                        .addOutputData("status", "datex:parkingSpaceStatus", ValueType.TEXT)
+                        .addInputData(AccessStreamBuffer.SINCE_INPUT, "proposed:sequenceNumber", ValueType.NUMBER)
+                        .addInputData(AccessStreamPushServer.PUSH_INPUT, "proposed:accessStreamPush", ValueType.TEXT)
                         .withPrice(Euros.amount(0.02)).withPricingModel(PricingModel.PER_ACCESS)
                         .withLicenseType(LicenseType.CREATIVE_COMMONS);
-
-        Endpoints endpoints = Endpoints.create(offeringDescription)
-                .withAccessStreamFilterHandler(accessStreamFilterCallback); // Optional only if filtering needed
+        outputSchema.addOutputDataTo(offeringDescription);
+
+        // Offering Access Stream of the latest 100000 elements, each retained for at most 10 minutes. Every subscriber
+        // receives the elements it has not received yet. The elements are kept in compact columns of the output data.
+        AccessStreamBuffer accessStream = AccessStreamBuffer.create(100000, outputSchema)
+                .withMaxAge(Duration.standardMinutes(10));
+
+        // Additionally push the elements to subscribers as Server-Sent Events, on the port next to the offering
+        // endpoint. An access with the input data "push" returns a ticket for it (see ExampleConsumerAccessStreamPush).
+        // The stream is served over TLS with the key store given by -Djavax.net.ssl.keyStore and
+        // -Djavax.net.ssl.keyStorePassword, e.g. the one of the offering endpoint. Each element is only passed to the
+        // subscribers near it, found in a grid of their positions instead of filtering it for every subscriber
+        ProximityIndex proximityIndex = ProximityIndex.create(0.005)
+                .withSubscriberPosition(inputBinding, "latitude", "longitude").withElementPosition("lat", "lon");
+        AccessStreamPushServer pushServer = AccessStreamPushServer
+                .create(accessStream, prop.PROVIDER_DNS_NAME, prop.PROVIDER_PORT + 1).withTls(SSLContext.getDefault())
+                .withProximityIndex(proximityIndex).withFilter(offeringDescription, accessStreamFilterCallback);
+        pushServer.start();
+
+        // The filter is optional, pass null if no filtering is needed
+        Endpoints endpoints = Endpoints.create(offeringDescription).withAccessRequestHandler(
+                pushServer.accessRequestHandler(accessStream.accessRequestHandler(accessStreamFilterCallback)));
 
         RegisteredOffering offering = provider.register(offeringDescription, endpoints);
 
         // Run until user input is obtained
         System.out.println(">>>>>>  Terminate ExampleProvider by pressing ENTER  <<<<<<");
 
-        int i = 0;
         Random r = new Random();
         while (System.in.available() == 0) {
 
-            JSONObject jsonObject = new JSONObject().put("lat", 42.0 + r.nextFloat() * 0.01)
-                    .put("lon", 9.0 + r.nextFloat() * 0.01).put("status", r.nextBoolean() ? "available" : "occupied");
+            // Status changes arrive in bursts of 1 to 5 elements
+            List<JSONObject> jsonObjects = new ArrayList<>();
+            for (int n = r.nextInt(5); n >= 0; n--) {
+                jsonObjects.add(new JSONObject().put("lat", 42.0 + r.nextFloat() * 0.01)
+                        .put("lon", 9.0 + r.nextFloat() * 0.01)
+                        .put("status", r.nextBoolean() ? "available" : "occupied"));
+            }
 
-            // add new Output Data element to the Offering Access Stream=
-            offering.queue(jsonObject);
+            // add new Output Data elements to the Offering Access Stream
+            accessStream.appendAll(jsonObjects);
 
-            System.out.println("Add output data element: " + jsonObject.toString());
+            System.out.println("Add output data elements: " + jsonObjects.toString());
 
             Thread.sleep(4000);
 
-            // Optional
-            if (i++ % 100 == 0) {
-                offering.flush(); // To flush old elements in the Offering Access Stream
-                System.out.println("Flushed offering access stream");
-            }
-
         }
 
+        pushServer.stop();
+
         // Deregister your offering form Marketplace
         offering.deregister();
 
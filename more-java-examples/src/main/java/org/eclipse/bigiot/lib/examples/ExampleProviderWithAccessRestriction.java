@@ -17,10 +17,12 @@ package org.eclipse.bigiot.lib.examples;
 
 import java.io.IOException;
 import java.util.Map;
-import java.util.Random;
 import java.util.Scanner;
 
 import org.eclipse.bigiot.lib.ProviderSpark;
+import org.eclipse.bigiot.lib.examples.provider.BoundInputs;
+import org.eclipse.bigiot.lib.examples.provider.InputBinding;
+import org.eclipse.bigiot.lib.examples.provider.SimulatedParkingData;
 import org.eclipse.bigiot.lib.exceptions.IncompleteOfferingDescriptionException;
 import org.eclipse.bigiot.lib.exceptions.NotRegisteredException;
 import org.eclipse.bigiot.lib.handlers.AccessRequestHandler;
@@ -37,38 +39,26 @@ import org.eclipse.bigiot.lib.offering.RegistrableOfferingDescription;
 import org.eclipse.bigiot.lib.serverwrapper.BigIotHttpResponse;
 import org.joda.time.DateTime;
 import org.json.JSONArray;
-import org.json.JSONObject;
 
 /**
  * Example for using BIG IoT API as a provider.
  */
 public class ExampleProviderWithAccessRestriction {
 
-    private static AccessRequestHandler accessCallback = new AccessRequestHandler() {
+    private static final InputBinding inputBinding = InputBinding.create().addOptionalNumber("longitude", 41.0)
+            .addOptionalNumber("latitude", 9.0);
+
+    static AccessRequestHandler accessCallback = new AccessRequestHandler() {
         @Override
         public BigIotHttpResponse processRequestHandler(OfferingDescription offeringDescription,
                 Map<String, Object> inputData, String subscriptionId, String consumerInfo) {
 
-            BigIotHttpResponse errorResponse = BigIotHttpResponse.error().withBody("{\"status\":\"error\"}")
-                    .withStatus(422).asJsonType();
-
-            double longitude = 41.0;
-            if (inputData.containsKey("longitude"))
-                longitude = Double.parseDouble((String) inputData.get("longitude"));
-
-            double latitude = 9.0;
-            if (inputData.containsKey("latitude"))
-                latitude = Double.parseDouble((String) inputData.get("latitude"));
-
-            Random r = new Random();
-            JSONArray jsonArray = new JSONArray();
-            int n = Math.round(r.nextFloat() * 10 + 10);
-            for (int i = 0; i < n; i++) {
-                JSONObject jsonObject = new JSONObject().put("lat", latitude + r.nextFloat() * 0.01)
-                        .put("lon", longitude + r.nextFloat() * 0.01)
-                        .put("status", r.nextBoolean() ? "available" : "occupied");
-                jsonArray.put(jsonObject);
-            }
+            BoundInputs inputs = inputBinding.bind(inputData);
+            if (!inputs.isValid())
+                return BigIotHttpResponse.error().withBody("{\"status\":\"error\"}").withStatus(422).asJsonType();
+
+            JSONArray jsonArray = SimulatedParkingData.parkingSpots(inputs.getDouble("latitude"),
+                    inputs.getDouble("longitude"));
 
             return BigIotHttpResponse.okay().withBody(jsonArray);
         }
@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.bigiot.lib.offering.Offering;
+import org.eclipse.bigiot.lib.offering.parameters.AccessParameters;
+
+/**
+ * Alternative to Offering.accessContinuous which polls with an {@link AdaptiveInterval}: while the offering keeps
+ * answering with an empty or an identical response, the feed backs off up to the maximum interval, and it polls at
+ * the minimum interval again as soon as the response changes.
+ *
+ * <pre>
+ * AdaptiveAccessFeed accessFeed = AdaptiveAccessFeed.create(offering, accessParameters,
+ *         AdaptiveInterval.create(Duration.standardSeconds(2), Duration.standardMinutes(1)));
+ * accessFeed.start((f, body) -&gt; logger.info("Incoming feed data: " + body),
+ *         (f, e) -&gt; logger.info("Feed operation failed"));
+ * </pre>
+ *
+ * The handler is only called for responses which differ from the previous one, and receives their body.
+ */
+public class AdaptiveAccessFeed extends PollingAccessFeed {
+
+    /**
+     * Receives a changed response.
+     */
+    public interface AdaptiveFeedHandler {
+        void processNotification(AdaptiveAccessFeed feed, String body);
+    }
+
+    /**
+     * Is notified when an access fails.
+     */
+    public interface AdaptiveFeedFailureHandler {
+        void processNotificationOnFailure(AdaptiveAccessFeed feed, Throwable failure);
+    }
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final AccessParameters accessParameters;
+    private AdaptiveFeedHandler handler;
+    private AdaptiveFeedFailureHandler failureHandler;
+
+    // Hash of the previous response body, so the bodies themselves are not retained
+    private long previousHash;
+    private int previousLength = -1;
+
+    private final AtomicLong notifications = new AtomicLong();
+
+    private AdaptiveAccessFeed(AccessFunction accessFunction, AccessParameters accessParameters,
+            AdaptiveInterval interval) {
+        super(accessFunction, interval);
+        this.accessParameters = accessParameters;
+    }
+
+    public static AdaptiveAccessFeed create(Offering offering, AccessParameters accessParameters,
+            AdaptiveInterval interval) {
+        return new AdaptiveAccessFeed(accessOneTime(offering), accessParameters, interval);
+    }
+
+    /**
+     * Creates a feed which makes its accesses with the given function instead of Offering.accessOneTime.
+     */
+    public static AdaptiveAccessFeed create(AccessFunction accessFunction, AccessParameters accessParameters,
+            AdaptiveInterval interval) {
+        return new AdaptiveAccessFeed(accessFunction, accessParameters, interval);
+    }
+
+    /**
+     * Runs the accesses on the given scheduler instead of the shared default one.
+     */
+    public AdaptiveAccessFeed withScheduler(FeedScheduler scheduler) {
+        setScheduler(scheduler);
+        return this;
+    }
+
+    public synchronized AdaptiveAccessFeed start(AdaptiveFeedHandler handler,
+            AdaptiveFeedFailureHandler failureHandler) {
+        this.handler = handler;
+        this.failureHandler = failureHandler;
+        start();
+        return this;
+    }
+
+    /**
+     * Returns the number of responses passed to the handler.
+     */
+    public long getNotificationCount() {
+        return notifications.get();
+    }
+
+    @Override
+    protected String details() {
+        return ", notifications=" + getNotificationCount();
+    }
+
+    @Override
+    protected AccessParameters nextAccessParameters() {
+        return accessParameters;
+    }
+
+    @Override
+    protected boolean handle(String body) {
+        if (isEmpty(body))
+            return false;
+
+        long hash = hash(body);
+        if (body.length() == previousLength && hash == previousHash)
+            return false;
+        previousLength = body.length();
+        previousHash = hash;
+
+        notifications.incrementAndGet();
+        handler.processNotification(this, body);
+        return true;
+    }
+
+    @Override
+    protected void notifyFailure(Throwable failure) {
+        failureHandler.processNotificationOnFailure(this, failure);
+    }
+
+    private static boolean isEmpty(String body) {
+        if (body == null)
+            return true;
+        String trimmed = body.trim();
+        return trimmed.isEmpty() || trimmed.equals("[]") || trimmed.equals("{}");
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the characters of the body.
+     */
+    private static long hash(String body) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < body.length(); i++) {
+            hash ^= body.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+}
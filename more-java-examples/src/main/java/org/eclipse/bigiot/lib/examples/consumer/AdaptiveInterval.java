@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.joda.time.Duration;
+
+/**
+ * Polling interval of a feed which adapts to the responses: the interval is multiplied by the backoff factor (up to the
+ * maximum) for every response which brings no new data or fails, and drops back to the minimum as soon as a response
+ * brings new data. If the provider rejects an access because of its rate limit, the feed waits for the retry delay of
+ * the provider, or the maximum interval if the provider gives none.
+ * <p>
+ * A random jitter (by default up to 10% of the interval) keeps many feeds created at the same time from polling in
+ * lockstep. The interval keeps the state of one feed, so every feed needs its own instance:
+ *
+ * <pre>
+ * IncrementalAccessFeed.create(offering)
+ *         .withInterval(AdaptiveInterval.create(Duration.standardSeconds(1), Duration.standardMinutes(1)));
+ * </pre>
+ */
+public class AdaptiveInterval {
+
+    private final long minMillis;
+    private final long maxMillis;
+    private double backoffFactor = 2.0;
+    private double jitter = 0.1;
+
+    private long intervalMillis;
+
+    private AdaptiveInterval(long minMillis, long maxMillis) {
+        if (minMillis < 0 || maxMillis < minMillis)
+            throw new IllegalArgumentException("Invalid interval bounds " + minMillis + ".." + maxMillis + " ms");
+        this.minMillis = minMillis;
+        this.maxMillis = maxMillis;
+        this.intervalMillis = minMillis;
+    }
+
+    /**
+     * Creates an interval which adapts between min and max, starting with min.
+     */
+    public static AdaptiveInterval create(Duration min, Duration max) {
+        return new AdaptiveInterval(min.getMillis(), max.getMillis());
+    }
+
+    /**
+     * Creates an interval which does not adapt and has no jitter, like the feed interval of Offering.accessContinuous.
+     * Only rate limit responses of the provider lengthen it.
+     */
+    public static AdaptiveInterval fixed(Duration interval) {
+        return new AdaptiveInterval(interval.getMillis(), interval.getMillis()).withJitter(0);
+    }
+
+    /**
+     * Sets the factor by which the interval grows per response without new data (default: 2).
+     */
+    public AdaptiveInterval withBackoffFactor(double backoffFactor) {
+        if (!(backoffFactor >= 1))
+            throw new IllegalArgumentException("Backoff factor must be at least 1");
+        this.backoffFactor = backoffFactor;
+        return this;
+    }
+
+    /**
+     * Sets the maximum random deviation as a fraction of the interval (default: 0.1).
+     */
+    public AdaptiveInterval withJitter(double jitter) {
+        if (!(jitter >= 0 && jitter < 1))
+            throw new IllegalArgumentException("Jitter must be in [0, 1)");
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * A response brought new data.
+     *
+     * @return the delay in milliseconds until the next access
+     */
+    public synchronized long changed() {
+        intervalMillis = minMillis;
+        return delay(intervalMillis);
+    }
+
+    /**
+     * A response was empty or identical to the previous one.
+     *
+     * @return the delay in milliseconds until the next access
+     */
+    public synchronized long unchanged() {
+        intervalMillis = (long) Math.min(maxMillis, Math.max(1, intervalMillis) * backoffFactor);
+        return delay(intervalMillis);
+    }
+
+    /**
+     * An access failed.
+     *
+     * @return the delay in milliseconds until the next access
+     */
+    public synchronized long failed() {
+        return unchanged();
+    }
+
+    /**
+     * The provider rejected an access because of its rate limit.
+     *
+     * @param retryAfterMillis
+     *            the delay requested by the provider, or a negative value if it requested none
+     * @return the delay in milliseconds until the next access, which is never shorter than the requested one
+     */
+    public synchronized long rateLimited(long retryAfterMillis) {
+        intervalMillis = maxMillis;
+        return retryAfterMillis < 0 ? delay(maxMillis) : Math.max(retryAfterMillis, minMillis);
+    }
+
+    /**
+     * Returns the current interval in milliseconds, without jitter.
+     */
+    public synchronized long getInterval() {
+        return intervalMillis;
+    }
+
+    public long getMin() {
+        return minMillis;
+    }
+
+    public long getMax() {
+        return maxMillis;
+    }
+
+    private long delay(long interval) {
+        if (jitter == 0 || interval == 0)
+            return interval;
+        long deviation = (long) (interval * jitter);
+        return interval - deviation + ThreadLocalRandom.current().nextLong(2 * deviation + 1);
+    }
+
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.bigiot.lib.Consumer;
+import org.eclipse.bigiot.lib.exceptions.IncompleteOfferingQueryException;
+import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
+import org.eclipse.bigiot.lib.query.IOfferingQuery;
+import org.joda.time.Duration;
+
+/**
+ * Discovers the offerings of many queries at once, e.g. the parking and other queries a consumer needs at startup, and
+ * returns the results per query. Queries which serialize to the same marketplace query are sent only once, and the
+ * remaining ones run concurrently up to a limit, each with its own timeout, so the startup takes about as long as the
+ * slowest discovery instead of the sum of all.
+ *
+ * <pre>
+ * BatchDiscovery.Result result = BatchDiscovery.create(consumer).add(parkingQuery).add(randomValuesQuery)
+ *         .withMaxConcurrency(8).discover().get();
+ * List&lt;SubscribableOfferingDescription&gt; parkingOfferings = result.getOfferingDescriptions(parkingQuery);
+ * </pre>
+ *
+ * A query which fails or does not answer in time is reported in the failures of the result and does not fail the
+ * other queries.
+ */
+public class BatchDiscovery {
+
+    /**
+     * Outcome of a batch discovery: the offerings found per query, and the failed queries with their failures.
+     */
+    public static class Result {
+
+        private final Map<IOfferingQuery, List<SubscribableOfferingDescription>> offeringDescriptions;
+        private final Map<IOfferingQuery, Throwable> failures;
+
+        Result(Map<IOfferingQuery, List<SubscribableOfferingDescription>> offeringDescriptions,
+                Map<IOfferingQuery, Throwable> failures) {
+            this.offeringDescriptions = Collections.unmodifiableMap(offeringDescriptions);
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * Returns the offerings found for the query, or an empty list if its discovery failed.
+         */
+        public List<SubscribableOfferingDescription> getOfferingDescriptions(IOfferingQuery query) {
+            List<SubscribableOfferingDescription> result = offeringDescriptions.get(query);
+            return result != null ? result : Collections.<SubscribableOfferingDescription> emptyList();
+        }
+
+        /**
+         * Returns the successful queries with the offerings found, in the order in which the queries were added.
+         */
+        public Map<IOfferingQuery, List<SubscribableOfferingDescription>> getOfferingDescriptions() {
+            return offeringDescriptions;
+        }
+
+        public Map<IOfferingQuery, Throwable> getFailures() {
+            return failures;
+        }
+
+        @Override
+        public String toString() {
+            return "BatchDiscovery.Result [discovered=" + offeringDescriptions.size() + ", failures=" + failures.size()
+                    + "]";
+        }
+
+    }
+
+    private final Consumer consumer;
+    // Queries with the same marketplace query, which are discovered once
+    private final Map<String, List<IOfferingQuery>> queries = new LinkedHashMap<>();
+    // Queries in the order in which they were added, and their marketplace queries
+    private final List<IOfferingQuery> added = new ArrayList<>();
+    private final List<String> addedKeys = new ArrayList<>();
+    private int maxConcurrency = 8;
+    private long timeoutMillis = 10000;
+    private ConsumerExecutor executor;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+    private List<List<IOfferingQuery>> batch;
+
+    // Guarded by this, by index in the batch
+    private final Map<Integer, List<SubscribableOfferingDescription>> discovered = new HashMap<>();
+    private final Map<Integer, Throwable> failed = new HashMap<>();
+
+    private BatchDiscovery(Consumer consumer) {
+        this.consumer = consumer;
+    }
+
+    public static BatchDiscovery create(Consumer consumer) {
+        return new BatchDiscovery(consumer);
+    }
+
+    public BatchDiscovery add(IOfferingQuery query) {
+        if (started.get())
+            throw new IllegalStateException("Batch discovery has already been started");
+        String key = query.toOfferingQueryString();
+        queries.computeIfAbsent(key, k -> new ArrayList<>()).add(query);
+        added.add(query);
+        addedKeys.add(key);
+        return this;
+    }
+
+    public BatchDiscovery addAll(List<? extends IOfferingQuery> queries) {
+        for (IOfferingQuery query : queries)
+            add(query);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of discoveries in progress at a time (default: 8). A discovery which timed out is not
+     * counted anymore, although the lib may still be running it.
+     */
+    public BatchDiscovery withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("Max concurrency must be positive");
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Sets the time after which a discovery without response counts as failed (default: 10 seconds).
+     */
+    public BatchDiscovery withTimeout(Duration timeout) {
+        this.timeoutMillis = timeout.getMillis();
+        return this;
+    }
+
+    /**
+     * Runs the discoveries on the given executor instead of the threads of the lib.
+     */
+    public BatchDiscovery withExecutor(ConsumerExecutor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Starts the discoveries. The returned future completes when every query has either been answered or failed.
+     */
+    public CompletableFuture<Result> discover() {
+        if (!started.compareAndSet(false, true))
+            throw new IllegalStateException("Batch discovery has already been started");
+        batch = new ArrayList<>(queries.values());
+        return new BoundedFanOut<>(batch, maxConcurrency, timeoutMillis, this::discoverOnce, this::completed).start()
+                .thenApply(v -> createResult());
+    }
+
+    /**
+     * Returns the number of discoveries sent to the marketplace, i.e. the number of distinct queries.
+     */
+    public int getDiscoveryCount() {
+        return queries.size();
+    }
+
+    /**
+     * Discovers the first of queries which serialize to the same marketplace query, for all of them.
+     */
+    private CompletableFuture<List<SubscribableOfferingDescription>> discoverOnce(List<IOfferingQuery> sameQueries)
+            throws IncompleteOfferingQueryException {
+        return executor == null ? consumer.discover(sameQueries.get(0))
+                : executor.discover(consumer, sameQueries.get(0));
+    }
+
+    private synchronized void completed(int index, List<IOfferingQuery> sameQueries,
+            List<SubscribableOfferingDescription> offeringDescriptions, Throwable failure) {
+        if (failure == null)
+            discovered.put(index, offeringDescriptions != null ? offeringDescriptions
+                    : Collections.<SubscribableOfferingDescription> emptyList());
+        else
+            failed.put(index, failure);
+    }
+
+    /**
+     * Spreads the results to the queries in the order in which they were added.
+     */
+    private synchronized Result createResult() {
+        Map<String, Integer> indexes = new HashMap<>();
+        for (String key : queries.keySet())
+            indexes.put(key, indexes.size());
+
+        Map<IOfferingQuery, List<SubscribableOfferingDescription>> offeringDescriptions = new LinkedHashMap<>();
+        Map<IOfferingQuery, Throwable> failures = new LinkedHashMap<>();
+        for (int i = 0; i < added.size(); i++) {
+            int index = indexes.get(addedKeys.get(i));
+            if (discovered.containsKey(index))
+                offeringDescriptions.put(added.get(i), discovered.get(index));
+            else
+                failures.put(added.get(i), failed.get(index));
+        }
+        return new Result(offeringDescriptions, failures);
+    }
+
+}
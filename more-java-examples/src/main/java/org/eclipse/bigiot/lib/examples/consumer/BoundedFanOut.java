@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts one asynchronous call per item, at most a given number at a time and each with its own timeout, and passes
+ * the outcome of every call to a handler, one at a time. Whichever comes first, the result or the timeout, completes
+ * a call, and a completed call starts the next one. Shared by {@link BulkAccess} and {@link BatchDiscovery}.
+ * <p>
+ * A call which timed out is not cancelled, as the lib cannot abort an access or a discovery in progress, and its slot
+ * is given to the next item right away, so a call which never completes cannot stall the others. Calls which timed out
+ * but are still running therefore come on top of the limit: the calls actually in progress can exceed maxConcurrency
+ * by the number of calls which timed out in the meantime.
+ */
+final class BoundedFanOut<T, R> {
+
+    interface Call<T, R> {
+        CompletableFuture<R> start(T item) throws Exception;
+    }
+
+    /**
+     * Receives the result of the item at the index, or its failure, which is a TimeoutException if the call did not
+     * complete in time.
+     */
+    interface Handler<T, R> {
+        void completed(int index, T item, R result, Throwable failure);
+    }
+
+    private final List<T> items;
+    private final int maxConcurrency;
+    private final long timeoutMillis;
+    private final Call<T, R> call;
+    private final Handler<T, R> handler;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicInteger nextIndex = new AtomicInteger();
+    private final AtomicInteger pendingStarts = new AtomicInteger();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    // Guarded by this
+    private int completedCount;
+
+    BoundedFanOut(List<T> items, int maxConcurrency, long timeoutMillis, Call<T, R> call, Handler<T, R> handler) {
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("Max concurrency must be positive");
+        this.items = items;
+        this.maxConcurrency = maxConcurrency;
+        this.timeoutMillis = timeoutMillis;
+        this.call = call;
+        this.handler = handler;
+    }
+
+    /**
+     * Starts the calls. The returned future completes once the handler has received the outcome of every item.
+     */
+    CompletableFuture<Void> start() {
+        if (!started.compareAndSet(false, true))
+            throw new IllegalStateException("Fan-out has already been started");
+        if (items.isEmpty())
+            completion.complete(null);
+        for (int i = 0; i < Math.min(maxConcurrency, items.size()); i++)
+            startNext();
+        return completion;
+    }
+
+    /**
+     * Starts the next call. If calls are already being started, further up the stack because a call completed right
+     * away or on another thread, this one is started there as well, so the stack does not grow with the number of
+     * items.
+     */
+    private void startNext() {
+        if (pendingStarts.getAndIncrement() > 0)
+            return;
+        do {
+            startCall();
+        } while (pendingStarts.decrementAndGet() > 0);
+    }
+
+    private void startCall() {
+        final int index = nextIndex.getAndIncrement();
+        if (index >= items.size())
+            return;
+        final T item = items.get(index);
+
+        final AtomicBoolean isDone = new AtomicBoolean();
+        final ScheduledFuture<?> timeout = SharedTimer.get().schedule(() -> {
+            if (isDone.compareAndSet(false, true))
+                completed(index, item, null, new TimeoutException("No response within " + timeoutMillis + " ms"));
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<R> result;
+        try {
+            result = call.start(item);
+        } catch (Exception e) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+        }
+        result.whenComplete((value, failure) -> {
+            if (isDone.compareAndSet(false, true)) {
+                timeout.cancel(false);
+                completed(index, item, value, failure);
+            }
+        });
+    }
+
+    private void completed(int index, T item, R result, Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() != null)
+            failure = failure.getCause();
+        boolean isLast;
+        synchronized (this) {
+            try {
+                handler.completed(index, item, result, failure);
+            } catch (RuntimeException e) {
+                // The other calls go on regardless
+            }
+            isLast = ++completedCount == items.size();
+        }
+        if (isLast)
+            completion.complete(null);
+        else
+            startNext();
+    }
+
+}
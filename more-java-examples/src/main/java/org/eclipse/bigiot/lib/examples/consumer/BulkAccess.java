@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.bigiot.lib.offering.AccessResponse;
+import org.eclipse.bigiot.lib.offering.Offering;
+import org.eclipse.bigiot.lib.offering.parameters.AccessParameters;
+import org.joda.time.Duration;
+
+/**
+ * Accesses many subscribed offerings once with the same access parameters, e.g. all parking offerings found in a
+ * region. The accesses run concurrently up to a limit, each with its own timeout, and the responses are passed to the
+ * handler as they arrive. An offering which fails or does not answer in time is passed to the failure handler and does
+ * not fail the other accesses.
+ *
+ * <pre>
+ * BulkAccess.create(offerings, accessParameters).withMaxConcurrency(8).withTimeout(Duration.standardSeconds(5))
+ *         .start((b, offering, response) -&gt; logger.info(response.asJsonNode().size() + " elements received"),
+ *                 (b, offering, failure) -&gt; logger.info("Access failed: " + failure))
+ *         .thenAccept(result -&gt; logger.info(result.toString()));
+ * </pre>
+ *
+ * The handlers are called one at a time, so they can merge the responses without further synchronization. The future
+ * returned by start completes when every offering has either answered or failed.
+ */
+public class BulkAccess {
+
+    /**
+     * Receives the response of one offering.
+     */
+    public interface BulkResponseHandler {
+        void processResponse(BulkAccess access, Offering offering, AccessResponse response);
+    }
+
+    /**
+     * Is notified when the access of one offering fails or times out, or the response handler throws an exception.
+     */
+    public interface BulkFailureHandler {
+        void processFailure(BulkAccess access, Offering offering, Throwable failure);
+    }
+
+    /**
+     * Outcome of a bulk access: the number of responses, and the failed offerings with their failures.
+     */
+    public static class Result {
+
+        private final int responseCount;
+        private final Map<Offering, Throwable> failures;
+
+        Result(int responseCount, Map<Offering, Throwable> failures) {
+            this.responseCount = responseCount;
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+
+        public int getResponseCount() {
+            return responseCount;
+        }
+
+        /**
+         * Returns the failed offerings with their failures, in the order in which they failed.
+         */
+        public Map<Offering, Throwable> getFailures() {
+            return failures;
+        }
+
+        @Override
+        public String toString() {
+            return "BulkAccess.Result [responses=" + responseCount + ", failures=" + failures.size() + "]";
+        }
+
+    }
+
+    private final List<Offering> offerings;
+    private final AccessParameters accessParameters;
+    private int maxConcurrency = 16;
+    private long timeoutMillis = 10000;
+    private ConsumerExecutor executor;
+
+    private BulkResponseHandler handler;
+    private BulkFailureHandler failureHandler;
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    // Guarded by this
+    private int responseCount;
+    private final Map<Offering, Throwable> failures = new LinkedHashMap<>();
+
+    private BulkAccess(List<Offering> offerings, AccessParameters accessParameters) {
+        this.offerings = new ArrayList<>(offerings);
+        this.accessParameters = accessParameters;
+    }
+
+    public static BulkAccess create(List<Offering> offerings, AccessParameters accessParameters) {
+        return new BulkAccess(offerings, accessParameters);
+    }
+
+    /**
+     * Sets the maximum number of accesses in progress at a time (default: 16). An access which timed out is not
+     * counted anymore, although the lib may still be running it.
+     */
+    public BulkAccess withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("Max concurrency must be positive");
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Sets the time after which an access without response counts as failed (default: 10 seconds).
+     */
+    public BulkAccess withTimeout(Duration timeout) {
+        this.timeoutMillis = timeout.getMillis();
+        return this;
+    }
+
+    /**
+     * Runs the accesses on the given executor instead of the threads of the lib.
+     */
+    public BulkAccess withExecutor(ConsumerExecutor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public CompletableFuture<Result> start(BulkResponseHandler handler, BulkFailureHandler failureHandler) {
+        if (!started.compareAndSet(false, true))
+            throw new IllegalStateException("Bulk access has already been started");
+        this.handler = handler;
+        this.failureHandler = failureHandler;
+        return new BoundedFanOut<>(offerings, maxConcurrency, timeoutMillis, this::access, this::completed).start()
+                .thenApply(v -> createResult());
+    }
+
+    public int getOfferingCount() {
+        return offerings.size();
+    }
+
+    private CompletableFuture<AccessResponse> access(Offering offering) {
+        return executor == null ? offering.accessOneTime(accessParameters)
+                : executor.accessOneTime(offering, accessParameters);
+    }
+
+    private synchronized void completed(int index, Offering offering, AccessResponse response, Throwable failure) {
+        if (failure == null) {
+            try {
+                handler.processResponse(this, offering, response);
+                responseCount++;
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            failures.put(offering, failure);
+            try {
+                failureHandler.processFailure(this, offering, failure);
+            } catch (RuntimeException e) {
+                // The other accesses go on regardless
+            }
+        }
+    }
+
+    private synchronized Result createResult() {
+        return new Result(responseCount, new LinkedHashMap<>(failures));
+    }
+
+}
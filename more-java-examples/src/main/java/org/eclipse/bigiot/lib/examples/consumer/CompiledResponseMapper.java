@@ -0,0 +1,310 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.bigiot.lib.offering.AccessResponse;
+import org.eclipse.bigiot.lib.offering.mapping.ResponseMappingType;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Maps response elements to POJOs annotated with {@link ResponseMappingType}, like AccessResponse.map, but inspects
+ * the annotations only once per POJO class and response names: every field binding is compiled into a method handle
+ * which converts the JSON value and sets the field, and the mappers are cached and reused across responses.
+ *
+ * <pre>
+ * Map&lt;String, String&gt; responseNames = new HashMap&lt;&gt;();
+ * responseNames.put("schema:latitude", "lat");
+ * responseNames.put("schema:longitude", "lon");
+ * responseNames.put("datex:distanceFromParkingSpace", "dist");
+ * responseNames.put("datex:parkingSpaceStatus", "status");
+ * List&lt;MyParkingResultPojoAnnotated&gt; parkingSpots = CompiledResponseMapper
+ *         .get(MyParkingResultPojoAnnotated.class, responseNames).map(response);
+ * </pre>
+ *
+ * The response names give the name of the output data of the offering for each RDF type, as in the offering
+ * description of the provider; dotted names address nested values. Fields without annotation are bound by their field
+ * name. Fields whose type is a POJO class, like the nested Coordinate class, are mapped recursively by the same rules;
+ * other types are bound by Jackson.
+ * <p>
+ * An annotated field without response name is rejected when the mapper is compiled, and a response element without a
+ * value for an annotated field when it is mapped, so a missing or misnamed response name does not go unnoticed. Values
+ * of fields without annotation are optional.
+ */
+public final class CompiledResponseMapper<T> {
+
+    private static final ConcurrentMap<Key, CompiledResponseMapper<?>> cache = new ConcurrentHashMap<>();
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    private final Class<T> type;
+    // () -> Object
+    private final MethodHandle constructor;
+    private final String[][] paths;
+    // (Object, JsonNode) -> void
+    private final MethodHandle[] setters;
+    // Set for the annotated fields, whose values are required
+    private final String[] requiredFields;
+
+    private CompiledResponseMapper(Class<T> type, Map<String, String> responseNames) {
+        this.type = type;
+        try {
+            this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+            List<String[]> paths = new ArrayList<>();
+            List<MethodHandle> setters = new ArrayList<>();
+            List<String> requiredFields = new ArrayList<>();
+            List<String> unmappedFields = new ArrayList<>();
+            for (Field field : type.getFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()))
+                    continue;
+                ResponseMappingType annotation = field.getAnnotation(ResponseMappingType.class);
+                String responseName = annotation == null ? field.getName() : responseNames.get(annotation.value());
+                if (responseName == null) {
+                    unmappedFields.add(field.getName() + " (" + annotation.value() + ")");
+                    continue;
+                }
+                paths.add(responseName.split("\\."));
+                setters.add(setter(field, responseNames));
+                requiredFields.add(annotation == null ? null
+                        : field.getName() + " (" + annotation.value() + " as " + responseName + ")");
+            }
+            if (!unmappedFields.isEmpty())
+                throw new IllegalArgumentException("Cannot map responses to " + type.getName()
+                        + ", there is no response name for the fields " + unmappedFields);
+            this.paths = paths.toArray(new String[paths.size()][]);
+            this.setters = setters.toArray(new MethodHandle[setters.size()]);
+            this.requiredFields = requiredFields.toArray(new String[requiredFields.size()]);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot map responses to " + type.getName()
+                    + ", it needs a public no-argument constructor", e);
+        }
+    }
+
+    /**
+     * Returns the mapper for POJOs of the given class without ResponseMappingType annotations, whose fields are all
+     * bound by their field name.
+     */
+    public static <T> CompiledResponseMapper<T> get(Class<T> type) {
+        return get(type, Collections.<String, String> emptyMap());
+    }
+
+    /**
+     * Returns the mapper for POJOs of the given class and the given response names (RDF type to output name),
+     * compiling it on first use.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> CompiledResponseMapper<T> get(Class<T> type, Map<String, String> responseNames) {
+        Key key = new Key(type, responseNames);
+        CompiledResponseMapper<?> mapper = cache.get(key);
+        if (mapper == null) {
+            // Compiled outside of the cache, since nested classes compile their own mappers
+            mapper = new CompiledResponseMapper<>(type, key.responseNames);
+            CompiledResponseMapper<?> existing = cache.putIfAbsent(key, mapper);
+            if (existing != null)
+                mapper = existing;
+        }
+        return (CompiledResponseMapper<T>) mapper;
+    }
+
+    public List<T> map(AccessResponse response) {
+        return map(response.asJsonNode());
+    }
+
+    /**
+     * Maps the elements of an array, or a single object.
+     */
+    public List<T> map(JsonNode elements) {
+        if (!elements.isArray())
+            return Collections.singletonList(mapElement(elements));
+        List<T> result = new ArrayList<>(elements.size());
+        for (JsonNode element : elements)
+            result.add(mapElement(element));
+        return result;
+    }
+
+    public T mapElement(JsonNode element) {
+        try {
+            Object target = constructor.invokeExact();
+            for (int i = 0; i < setters.length; i++) {
+                JsonNode value = at(element, paths[i]);
+                if (value == null) {
+                    if (requiredFields[i] != null)
+                        throw new IllegalArgumentException("Response element has no value for the field "
+                                + requiredFields[i] + " of " + type.getName());
+                    // Missing optional values leave the default of the field
+                } else if (!value.isNull()) {
+                    setters[i].invokeExact(target, value);
+                }
+            }
+            return type.cast(target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot map response element to " + type.getName(), e);
+        }
+    }
+
+    private static JsonNode at(JsonNode element, String[] path) {
+        for (int i = 0; i < path.length && element != null; i++)
+            element = element.get(path[i]);
+        return element;
+    }
+
+    /**
+     * Compiles the setter of the field, preceded by the conversion of the JSON value to the type of the field.
+     */
+    private static MethodHandle setter(Field field, Map<String, String> responseNames)
+            throws ReflectiveOperationException {
+        Class<?> fieldType = field.getType();
+        MethodHandle converter;
+        if (fieldType == double.class || fieldType == Double.class || fieldType == float.class
+                || fieldType == Float.class)
+            converter = jsonNodeGetter("asDouble", double.class);
+        else if (fieldType == int.class || fieldType == Integer.class || fieldType == short.class
+                || fieldType == Short.class || fieldType == byte.class || fieldType == Byte.class)
+            converter = jsonNodeGetter("asInt", int.class);
+        else if (fieldType == long.class || fieldType == Long.class)
+            converter = jsonNodeGetter("asLong", long.class);
+        else if (fieldType == boolean.class || fieldType == Boolean.class)
+            converter = jsonNodeGetter("asBoolean", boolean.class);
+        else if (fieldType == String.class)
+            converter = jsonNodeGetter("asText", String.class);
+        else if (isPojo(fieldType))
+            // Looked up on first use, since a POJO may refer to its own class
+            converter = lookup.findVirtual(NestedMapper.class, "map",
+                    MethodType.methodType(Object.class, JsonNode.class))
+                    .bindTo(new NestedMapper(fieldType, responseNames));
+        else
+            converter = MethodHandles.insertArguments(lookup.findStatic(CompiledResponseMapper.class, "bind",
+                    MethodType.methodType(Object.class, JsonNode.class, Class.class)), 1, fieldType);
+
+        // Narrowing to float, short and byte first, then boxing or casting to the type of the field
+        if (fieldType.isPrimitive() || isBoxed(fieldType))
+            converter = MethodHandles.explicitCastArguments(converter,
+                    MethodType.methodType(unboxed(fieldType), JsonNode.class));
+        converter = converter.asType(MethodType.methodType(fieldType, JsonNode.class));
+        MethodHandle setter = MethodHandles.filterArguments(lookup.unreflectSetter(field), 1, converter);
+        return setter.asType(MethodType.methodType(void.class, Object.class, JsonNode.class));
+    }
+
+    private static MethodHandle jsonNodeGetter(String name, Class<?> returnType) throws ReflectiveOperationException {
+        return lookup.findVirtual(JsonNode.class, name, MethodType.methodType(returnType));
+    }
+
+    /**
+     * A public class of the application with a public no-argument constructor, which is not a JDK or a lib type.
+     */
+    private static boolean isPojo(Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isEnum() || type.isInterface()
+                || !Modifier.isPublic(type.getModifiers()))
+            return false;
+        String name = type.getName();
+        if (name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("org.eclipse.bigiot.lib.")
+                && !name.startsWith("org.eclipse.bigiot.lib.examples."))
+            return false;
+        try {
+            type.getConstructor();
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static boolean isBoxed(Class<?> type) {
+        return type == Double.class || type == Float.class || type == Integer.class || type == Short.class
+                || type == Byte.class || type == Long.class || type == Boolean.class;
+    }
+
+    private static Class<?> unboxed(Class<?> type) {
+        return MethodType.methodType(type).unwrap().returnType();
+    }
+
+    @SuppressWarnings("unused")
+    private static Object bind(JsonNode value, Class<?> type) {
+        try {
+            return objectMapper.treeToValue(value, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot bind " + value + " to " + type.getName(), e);
+        }
+    }
+
+    private static final class NestedMapper {
+
+        private final Class<?> type;
+        private final Map<String, String> responseNames;
+        private volatile CompiledResponseMapper<?> mapper;
+
+        NestedMapper(Class<?> type, Map<String, String> responseNames) {
+            this.type = type;
+            this.responseNames = responseNames;
+        }
+
+        @SuppressWarnings("unused")
+        Object map(JsonNode value) {
+            CompiledResponseMapper<?> mapper = this.mapper;
+            if (mapper == null)
+                this.mapper = mapper = get(type, responseNames);
+            return mapper.mapElement(value);
+        }
+
+    }
+
+    private static final class Key {
+
+        private final Class<?> type;
+        private final Map<String, String> responseNames;
+
+        Key(Class<?> type, Map<String, String> responseNames) {
+            this.type = type;
+            this.responseNames = Collections.unmodifiableMap(new HashMap<>(responseNames));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key))
+                return false;
+            Key key = (Key) other;
+            return type == key.type && responseNames.equals(key.responseNames);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + responseNames.hashCode();
+        }
+
+    }
+
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.eclipse.bigiot.lib.Consumer;
+import org.eclipse.bigiot.lib.offering.AccessResponse;
+import org.eclipse.bigiot.lib.offering.Offering;
+import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
+import org.eclipse.bigiot.lib.offering.parameters.AccessParameters;
+import org.eclipse.bigiot.lib.query.IOfferingQuery;
+
+/**
+ * Starts the network calls of a consumer (discover, subscribe and accessOneTime), and runs the code which waits for
+ * their results, on a chosen executor instead of a small fixed pool or ForkJoinPool.commonPool. The returned futures
+ * are completed on the executor as well, so dependent stages and blocking get() calls in them do not hold up the
+ * threads of the lib.
+ * <p>
+ * The lib completes its futures on threads of its own, and its network I/O runs there too. The executor only moves
+ * where a call starts and where its result is handled, not where the network I/O runs: the number of accesses the lib
+ * performs at a time is still bounded by the lib. What the executor scales is the waiting code, e.g. the blocking
+ * calls run with {@link #call(Callable)}.
+ *
+ * <pre>
+ * ConsumerExecutor executor = ConsumerExecutor.virtualThreads();
+ * List&lt;CompletableFuture&lt;AccessResponse&gt;&gt; responses = new ArrayList&lt;&gt;();
+ * for (AccessParameters accessParameters : requests)
+ *     responses.add(executor.accessOneTime(offering, accessParameters));
+ * </pre>
+ *
+ * Code in the blocking style of the examples can be run as a whole with {@link #call(Callable)}:
+ *
+ * <pre>
+ * executor.call(() -&gt; offeringDescription.subscribe().get().accessOneTime(accessParameters).get());
+ * </pre>
+ */
+public class ConsumerExecutor {
+
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+
+    private ConsumerExecutor(Executor executor, ExecutorService ownExecutor) {
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * Runs the calls on the given executor, which remains owned by the caller.
+     */
+    public static ConsumerExecutor create(Executor executor) {
+        return new ConsumerExecutor(executor, null);
+    }
+
+    /**
+     * Runs every call on a virtual thread of its own on Java 21 or newer. On older JVMs every concurrent call gets a
+     * platform thread, and idle threads are reused.
+     */
+    public static ConsumerExecutor virtualThreads() {
+        ExecutorService executor;
+        try {
+            // Looked up at runtime, since the examples are compiled for Java 8
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            executor = (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            executor = Executors.newCachedThreadPool(FeedScheduler.daemonThreads("ConsumerExecutor"));
+        }
+        return new ConsumerExecutor(executor, executor);
+    }
+
+    public CompletableFuture<List<SubscribableOfferingDescription>> discover(Consumer consumer, IOfferingQuery query) {
+        return run(() -> consumer.discover(query));
+    }
+
+    public CompletableFuture<Offering> subscribe(SubscribableOfferingDescription offeringDescription) {
+        return run(() -> offeringDescription.subscribe());
+    }
+
+    public CompletableFuture<AccessResponse> accessOneTime(Offering offering, AccessParameters accessParameters) {
+        return run(() -> offering.accessOneTime(accessParameters));
+    }
+
+    /**
+     * Starts an asynchronous call of the lib on the executor and completes the returned future on the executor, like
+     * discover, subscribe and accessOneTime do for their calls.
+     */
+    public <T> CompletableFuture<T> run(Callable<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        execute(result, () -> {
+            CompletableFuture<T> future;
+            try {
+                future = call.call();
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            future.whenComplete((value, failure) -> execute(result, () -> {
+                if (failure != null)
+                    result.completeExceptionally(failure);
+                else
+                    result.complete(value);
+            }));
+        });
+        return result;
+    }
+
+    /**
+     * Runs blocking code, e.g. a sequence of calls which wait for each other with get(), on the executor.
+     */
+    public <T> CompletableFuture<T> call(Callable<T> callable) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // Completed right away: another task on the executor could queue up behind all waiting calls
+        execute(result, () -> {
+            try {
+                result.complete(callable.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Stops the threads created by {@link #virtualThreads()} once the calls in progress have completed. An executor
+     * given by the caller is not shut down.
+     */
+    public void shutdown() {
+        if (ownExecutor != null)
+            ownExecutor.shutdown();
+    }
+
+    private void execute(CompletableFuture<?> result, Runnable runnable) {
+        try {
+            executor.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import org.eclipse.bigiot.lib.handlers.DiscoverResponseHandler;
+import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
+import org.eclipse.bigiot.lib.query.IOfferingQuery;
+
+/**
+ * Response handler for continuous discovery which remembers the last result of every query and passes only the
+ * differences to its listener: offerings which were added, removed or changed since the previous discovery. Offerings
+ * which are discovered again unchanged are not reported, so their subscriptions can be kept instead of subscribing
+ * and unsubscribing on every cycle.
+ *
+ * <pre>
+ * consumer.discoverContinous(query, DiscoveryCache.create(new DiscoveryCache.Listener() {
+ *     public void offeringAdded(IOfferingQuery query, SubscribableOfferingDescription offeringDescription) {
+ *         offerings.put(offeringDescription.getId(), offeringDescription.subscribe());
+ *     }
+ *
+ *     public void offeringRemoved(IOfferingQuery query, SubscribableOfferingDescription offeringDescription) {
+ *         offerings.remove(offeringDescription.getId()).thenAccept(Offering::unsubscribe);
+ *     }
+ * }), discoverResponseErrorHandler, 10);
+ * </pre>
+ *
+ * Results are cached by the serialized query, and offerings are matched by their id. Whether a description has
+ * changed is decided by its fingerprint, by default its price and pricing model, license, endpoint URIs, and the
+ * names and semantic types of its inputs and outputs, as read from the getters of the description. Attributes which
+ * may differ between two discoveries of an unchanged offering, like its expiry, are left out, so the offering is not
+ * reported as changed on every cycle.
+ */
+public class DiscoveryCache implements DiscoverResponseHandler {
+
+    /**
+     * Receives the differences between two discoveries of the same query. By default a changed offering is reported
+     * as removed and added again.
+     */
+    public interface Listener {
+
+        void offeringAdded(IOfferingQuery query, SubscribableOfferingDescription offeringDescription);
+
+        void offeringRemoved(IOfferingQuery query, SubscribableOfferingDescription offeringDescription);
+
+        default void offeringChanged(IOfferingQuery query, SubscribableOfferingDescription previous,
+                SubscribableOfferingDescription current) {
+            offeringRemoved(query, previous);
+            offeringAdded(query, current);
+        }
+
+    }
+
+    private static class Entry {
+
+        final SubscribableOfferingDescription offeringDescription;
+        final Object fingerprint;
+
+        Entry(SubscribableOfferingDescription offeringDescription, Object fingerprint) {
+            this.offeringDescription = offeringDescription;
+            this.fingerprint = fingerprint;
+        }
+
+    }
+
+    private final Listener listener;
+    private Function<SubscribableOfferingDescription, Object> fingerprint = DiscoveryCache::defaultFingerprint;
+    // Every map is guarded by itself
+    private final ConcurrentMap<String, Map<String, Entry>> results = new ConcurrentHashMap<>();
+
+    private DiscoveryCache(Listener listener) {
+        this.listener = listener;
+    }
+
+    public static DiscoveryCache create(Listener listener) {
+        return new DiscoveryCache(listener);
+    }
+
+    /**
+     * Sets the function deciding whether a rediscovered offering has changed, e.g. its price or endpoints.
+     */
+    public DiscoveryCache withFingerprint(Function<SubscribableOfferingDescription, Object> fingerprint) {
+        this.fingerprint = fingerprint;
+        return this;
+    }
+
+    @Override
+    public void processResponse(IOfferingQuery query, @SuppressWarnings("rawtypes") List offeringDescriptions) {
+        Map<String, Entry> previous = results.computeIfAbsent(key(query), k -> new LinkedHashMap<>());
+        // Overlapping discoveries of the same query are diffed one after the other
+        synchronized (previous) {
+            Map<String, Entry> current = new LinkedHashMap<>();
+            for (Object element : offeringDescriptions) {
+                SubscribableOfferingDescription offeringDescription = (SubscribableOfferingDescription) element;
+                current.put(offeringDescription.getId(),
+                        new Entry(offeringDescription, fingerprint.apply(offeringDescription)));
+            }
+
+            for (Entry entry : previous.values()) {
+                if (!current.containsKey(entry.offeringDescription.getId()))
+                    listener.offeringRemoved(query, entry.offeringDescription);
+            }
+            for (Entry entry : current.values()) {
+                Entry previousEntry = previous.get(entry.offeringDescription.getId());
+                if (previousEntry == null)
+                    listener.offeringAdded(query, entry.offeringDescription);
+                else if (!Objects.equals(previousEntry.fingerprint, entry.fingerprint))
+                    listener.offeringChanged(query, previousEntry.offeringDescription, entry.offeringDescription);
+            }
+
+            previous.clear();
+            previous.putAll(current);
+        }
+    }
+
+    /**
+     * Returns the offerings of the last discovery of the query.
+     */
+    public List<SubscribableOfferingDescription> getOfferingDescriptions(IOfferingQuery query) {
+        Map<String, Entry> entries = results.get(key(query));
+        if (entries == null)
+            return Collections.emptyList();
+        List<SubscribableOfferingDescription> offeringDescriptions = new ArrayList<>();
+        synchronized (entries) {
+            for (Entry entry : entries.values())
+                offeringDescriptions.add(entry.offeringDescription);
+        }
+        return offeringDescriptions;
+    }
+
+    /**
+     * Forgets the last result of the query, e.g. after its continuous discovery has been stopped. The next discovery
+     * reports all offerings as added.
+     */
+    public void remove(IOfferingQuery query) {
+        results.remove(key(query));
+    }
+
+    private static String key(IOfferingQuery query) {
+        return query.toOfferingQueryString();
+    }
+
+    /**
+     * Lists the attributes of the fingerprint, any of which may be null.
+     */
+    static Object defaultFingerprint(SubscribableOfferingDescription offeringDescription) {
+        List<Object> endpoints = new ArrayList<>();
+        if (offeringDescription.getEndpoints() != null)
+            offeringDescription.getEndpoints().forEach(endpoint -> endpoints.add(endpoint.getUri()));
+        List<Object> inputs = new ArrayList<>();
+        if (offeringDescription.getInputs() != null) {
+            offeringDescription.getInputs().forEach(input -> inputs.addAll(Arrays.asList(input.getName(),
+                    input.getRdfAnnotation() == null ? null : input.getRdfAnnotation().getUri())));
+        }
+        List<Object> outputs = new ArrayList<>();
+        if (offeringDescription.getOutputs() != null) {
+            offeringDescription.getOutputs().forEach(output -> outputs.addAll(Arrays.asList(output.getName(),
+                    output.getRdfAnnotation() == null ? null : output.getRdfAnnotation().getUri())));
+        }
+
+        return Arrays.asList(
+                Optional.ofNullable(offeringDescription.getPrice()).map(price -> price.getMoney())
+                        .map(money -> money.getAmount()).orElse(null),
+                Optional.ofNullable(offeringDescription.getPrice()).map(price -> price.getMoney())
+                        .map(money -> money.getCurrency()).orElse(null),
+                Optional.ofNullable(offeringDescription.getPrice()).map(price -> price.getPricingModel()).orElse(null),
+                offeringDescription.getLicense(), endpoints, inputs, outputs);
+    }
+
+}
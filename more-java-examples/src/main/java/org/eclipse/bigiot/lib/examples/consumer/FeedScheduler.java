@@ -0,0 +1,269 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the accesses of many polling feeds with a fixed number of threads: a single timer thread keeps the due accesses
+ * of all feeds in a priority queue, and a bounded worker pool starts them. At most maxInFlight accesses are in progress
+ * at a time; due accesses beyond that wait until an access completes. So the number of threads does not grow with the
+ * number of feeds.
+ *
+ * <pre>
+ * FeedScheduler scheduler = FeedScheduler.create(8, 256);
+ * for (Offering offering : offerings)
+ *     IncrementalAccessFeed.create(offering).withScheduler(scheduler).start(handler, failureHandler);
+ * ...
+ * logger.info(scheduler.toString()); // lag, queue depth and in-flight accesses
+ * </pre>
+ *
+ * The lag of an access is the time between its due time and its start; it grows when the workers or the in-flight
+ * limit cannot keep up with the feeds.
+ */
+public class FeedScheduler {
+
+    /**
+     * An access of a feed. The access has to call done exactly once, when it has completed (also if it failed).
+     */
+    public interface Task {
+        void run(Runnable done);
+    }
+
+    private static FeedScheduler defaultScheduler;
+
+    private final ScheduledThreadPoolExecutor timer;
+    private final Executor workers;
+    private final ExecutorService ownWorkers;
+    private final int maxInFlight;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<Entry> waiting = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong totalLagNanos = new AtomicLong();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
+    private FeedScheduler(Executor workers, ExecutorService ownWorkers, int maxInFlight) {
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("Max in-flight must be positive");
+        this.timer = new ScheduledThreadPoolExecutor(1, daemonThreads("FeedScheduler-timer"));
+        this.timer.setRemoveOnCancelPolicy(true);
+        // Tasks scheduled after the shutdown are discarded
+        this.timer.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        this.workers = workers;
+        this.ownWorkers = ownWorkers;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Creates a scheduler with its own pool of worker threads.
+     */
+    public static FeedScheduler create(int workerThreads, int maxInFlight) {
+        ExecutorService pool = Executors.newFixedThreadPool(workerThreads, daemonThreads("FeedScheduler-worker"));
+        return new FeedScheduler(pool, pool, maxInFlight);
+    }
+
+    /**
+     * Creates a scheduler which starts the accesses on the given executor, e.g. one which starts a virtual thread per
+     * task on Java 21 or newer.
+     */
+    public static FeedScheduler create(Executor workers, int maxInFlight) {
+        return new FeedScheduler(workers, null, maxInFlight);
+    }
+
+    /**
+     * Returns the scheduler shared by all feeds which have not been given one: 2 worker threads, at most 64 accesses
+     * in progress.
+     */
+    public static synchronized FeedScheduler getDefault() {
+        if (defaultScheduler == null)
+            defaultScheduler = create(2, 64);
+        return defaultScheduler;
+    }
+
+    /**
+     * Runs the task once the delay (in milliseconds) has elapsed and fewer than maxInFlight tasks are in progress.
+     */
+    public void schedule(Task task, long delay) {
+        final Entry entry = new Entry(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay));
+        timer.schedule(new Runnable() {
+            @Override
+            public void run() {
+                waiting.add(entry);
+                drain();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Discards the scheduled tasks and stops the threads of the scheduler. Tasks in progress complete, tasks scheduled
+     * afterwards are discarded.
+     */
+    public void shutdown() {
+        timer.shutdownNow();
+        waiting.clear();
+        if (ownWorkers != null)
+            ownWorkers.shutdown();
+    }
+
+    /**
+     * Returns the number of tasks waiting for their due time.
+     */
+    public int getScheduledCount() {
+        return timer.getQueue().size();
+    }
+
+    /**
+     * Returns the number of due tasks waiting for a worker or for another task to complete.
+     */
+    public int getWaitingCount() {
+        return waiting.size();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public long getStartedCount() {
+        return started.get();
+    }
+
+    /**
+     * Returns the average lag in milliseconds since the creation or the last reset of the statistics.
+     */
+    public double getAverageLag() {
+        long count = started.get();
+        return count == 0 ? 0 : totalLagNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * Returns the maximum lag in milliseconds since the creation or the last reset of the statistics.
+     */
+    public double getMaxLag() {
+        return maxLagNanos.get() / 1e6;
+    }
+
+    public void resetStatistics() {
+        started.set(0);
+        totalLagNanos.set(0);
+        maxLagNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FeedScheduler [scheduled=%d, waiting=%d, inFlight=%d, started=%d, lag avg=%.1f ms, "
+                + "max=%.1f ms]", getScheduledCount(), getWaitingCount(), getInFlightCount(), getStartedCount(),
+                getAverageLag(), getMaxLag());
+    }
+
+    /**
+     * Starts waiting tasks as long as the in-flight limit allows.
+     */
+    private void drain() {
+        while (!waiting.isEmpty()) {
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                return;
+            }
+            Entry entry = waiting.poll();
+            if (entry == null) {
+                inFlight.decrementAndGet();
+                return;
+            }
+            try {
+                workers.execute(entry);
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    private void completed() {
+        inFlight.decrementAndGet();
+        // A task may have become due while the limit was reached
+        drain();
+    }
+
+    private void recordLag(long lagNanos) {
+        started.incrementAndGet();
+        totalLagNanos.addAndGet(lagNanos);
+        long max = maxLagNanos.get();
+        while (lagNanos > max && !maxLagNanos.compareAndSet(max, lagNanos))
+            max = maxLagNanos.get();
+    }
+
+    static ThreadFactory daemonThreads(final String name) {
+        final AtomicInteger number = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + "-" + number.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private final class Entry implements Runnable {
+
+        private final Task task;
+        private final long dueNanos;
+
+        Entry(Task task, long dueNanos) {
+            this.task = task;
+            this.dueNanos = dueNanos;
+        }
+
+        @Override
+        public void run() {
+            recordLag(Math.max(0, System.nanoTime() - dueNanos));
+            final AtomicBoolean isDone = new AtomicBoolean();
+            Runnable done = new Runnable() {
+                @Override
+                public void run() {
+                    if (isDone.compareAndSet(false, true))
+                        completed();
+                }
+            };
+            try {
+                task.run(done);
+            } catch (RuntimeException e) {
+                done.run();
+                throw e;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.bigiot.lib.offering.AccessResponse;
+import org.eclipse.bigiot.lib.offering.Offering;
+import org.eclipse.bigiot.lib.offering.parameters.AccessParameters;
+import org.joda.time.Duration;
+
+/**
+ * One-time accesses with hedging: every access goes to the primary offering, and if it has not answered after the
+ * hedge delay, the same access is sent to an equivalent offering (the alternatives take turns). Whichever response
+ * arrives first completes the access; the other one is ignored. An access which fails before the hedge delay is
+ * hedged right away.
+ * <p>
+ * The hedge delay is a percentile (by default the 95th) of the latencies of recent responses, so only the slowest
+ * accesses are duplicated and the additional load stays around 5%. Until enough responses have been seen, the initial
+ * delay is used.
+ *
+ * <pre>
+ * HedgedAccess hedgedAccess = HedgedAccess.create(offering, alternativeOffering).withPercentile(0.9);
+ * AccessResponse response = hedgedAccess.accessOneTime(accessParameters).get();
+ * ...
+ * logger.info(hedgedAccess.toString()); // how often hedges fired and won
+ * </pre>
+ *
+ * The alternatives have to be subscribed offerings which answer the same access parameters, e.g. further offerings
+ * of the same discovery result.
+ */
+public class HedgedAccess {
+
+    private static final int SAMPLES = 256;
+    private static final int MIN_SAMPLES = 20;
+
+    private final Offering primary;
+    private final List<Offering> alternatives;
+    private double percentile = 0.95;
+    private long initialDelayMillis = 1000;
+
+    private final AtomicInteger nextAlternative = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    // Ring buffer of the latest response latencies in milliseconds, guarded by this
+    private final long[] latencies = new long[SAMPLES];
+    private int latencyCount;
+    private long hedgeDelayMillis = -1;
+
+    private HedgedAccess(Offering primary, List<Offering> alternatives) {
+        this.primary = primary;
+        this.alternatives = new ArrayList<>(alternatives);
+    }
+
+    public static HedgedAccess create(Offering primary, Offering... alternatives) {
+        return new HedgedAccess(primary, Arrays.asList(alternatives));
+    }
+
+    public static HedgedAccess create(Offering primary, List<Offering> alternatives) {
+        return new HedgedAccess(primary, alternatives);
+    }
+
+    /**
+     * Sets the percentile of the response latencies after which an access is hedged (default: 0.95).
+     */
+    public HedgedAccess withPercentile(double percentile) {
+        if (!(percentile > 0 && percentile < 1))
+            throw new IllegalArgumentException("Percentile must be in (0, 1)");
+        this.percentile = percentile;
+        return this;
+    }
+
+    /**
+     * Sets the hedge delay used until enough responses have been seen to compute the percentile (default: 1 second).
+     */
+    public HedgedAccess withInitialDelay(Duration initialDelay) {
+        this.initialDelayMillis = initialDelay.getMillis();
+        return this;
+    }
+
+    public CompletableFuture<AccessResponse> accessOneTime(AccessParameters accessParameters) {
+        requests.incrementAndGet();
+        return new Request(accessParameters).start();
+    }
+
+    /**
+     * Returns the current hedge delay in milliseconds.
+     */
+    public synchronized long getHedgeDelay() {
+        if (latencyCount < MIN_SAMPLES)
+            return initialDelayMillis;
+        if (hedgeDelayMillis < 0) {
+            long[] sorted = Arrays.copyOf(latencies, Math.min(latencyCount, SAMPLES));
+            Arrays.sort(sorted);
+            hedgeDelayMillis = sorted[(int) Math.min(sorted.length - 1, Math.floor(percentile * sorted.length))];
+        }
+        return hedgeDelayMillis;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Returns the number of accesses which have been sent to an alternative offering.
+     */
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    /**
+     * Returns the number of accesses completed by the response of the alternative offering.
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    @Override
+    public String toString() {
+        return "HedgedAccess [requests=" + getRequestCount() + ", hedges=" + getHedgeCount() + ", hedgeWins="
+                + getHedgeWinCount() + ", hedgeDelay=" + getHedgeDelay() + " ms]";
+    }
+
+    private synchronized void recordLatency(long latencyMillis) {
+        latencies[latencyCount % SAMPLES] = latencyMillis;
+        latencyCount++;
+        // Recomputed on demand, but at most every few responses
+        if (latencyCount % 16 == 0)
+            hedgeDelayMillis = -1;
+    }
+
+    private Offering nextAlternative() {
+        return alternatives.get(Math.floorMod(nextAlternative.getAndIncrement(), alternatives.size()));
+    }
+
+    /**
+     * One access with at most one hedge. The attempts are counted under the lock of the request, so that the failure
+     * of the last attempt in progress fails the access.
+     */
+    private final class Request {
+
+        private final AccessParameters accessParameters;
+        private final CompletableFuture<AccessResponse> result = new CompletableFuture<>();
+        private ScheduledFuture<?> hedgeTimer;
+        private boolean isHedged;
+        // Set by the first successful attempt, before the result is completed
+        private boolean isAnswered;
+        private int attempts;
+        private int failedAttempts;
+
+        Request(AccessParameters accessParameters) {
+            this.accessParameters = accessParameters;
+        }
+
+        synchronized CompletableFuture<AccessResponse> start() {
+            send(primary, false);
+            if (!alternatives.isEmpty() && !result.isDone())
+                hedgeTimer = SharedTimer.get().schedule(this::hedge, getHedgeDelay(), TimeUnit.MILLISECONDS);
+            return result;
+        }
+
+        synchronized void hedge() {
+            if (isHedged || isAnswered || alternatives.isEmpty() || result.isDone())
+                return;
+            isHedged = true;
+            hedges.incrementAndGet();
+            send(nextAlternative(), true);
+        }
+
+        private void send(Offering offering, boolean isHedge) {
+            attempts++;
+            long start = System.nanoTime();
+            CompletableFuture<AccessResponse> response;
+            try {
+                response = offering.accessOneTime(accessParameters);
+            } catch (RuntimeException e) {
+                response = new CompletableFuture<>();
+                response.completeExceptionally(e);
+            }
+            response.whenComplete((value, failure) -> {
+                if (failure != null) {
+                    failed(failure);
+                    return;
+                }
+                recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                if (answered(isHedge)) {
+                    result.complete(value);
+                    cancelHedge();
+                }
+            });
+        }
+
+        /**
+         * Returns true for the first successful attempt, whose hedge win is counted before the result is completed, so
+         * the counters are up to date once the access has completed.
+         */
+        private synchronized boolean answered(boolean isHedge) {
+            if (isAnswered || result.isDone())
+                return false;
+            isAnswered = true;
+            if (isHedge)
+                hedgeWins.incrementAndGet();
+            return true;
+        }
+
+        private synchronized void failed(Throwable failure) {
+            hedge();
+            if (++failedAttempts == attempts && !isAnswered)
+                result.completeExceptionally(failure);
+        }
+
+        private synchronized void cancelHedge() {
+            if (hedgeTimer != null)
+                hedgeTimer.cancel(false);
+        }
+
+    }
+
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.bigiot.lib.examples.provider.AccessStreamBuffer;
+import org.eclipse.bigiot.lib.offering.Offering;
+import org.eclipse.bigiot.lib.offering.parameters.AccessParameters;
+import org.joda.time.Duration;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Polls an access stream offering incrementally: every access passes the sequence number the provider returned with
+ * the previous response as input data "since", and the provider answers with the elements appended since then only
+ * (see {@link org.eclipse.bigiot.lib.examples.provider.AccessStreamBuffer}). Unlike Offering.accessContinuous, the
+ * feed keeps its position itself, so a failed access is simply repeated with the same position.
+ *
+ * <pre>
+ * IncrementalAccessFeed accessFeed = IncrementalAccessFeed.create(offering).withInputData("latitude", 42.0)
+ *         .withInputData("longitude", 9.0).withInterval(Duration.standardSeconds(2));
+ * accessFeed.start((f, elements) -&gt; logger.info("Incoming feed data: " + elements.length() + " elements"),
+ *         (f, e) -&gt; logger.info("Feed operation failed"));
+ * ...
+ * accessFeed.stop();
+ * </pre>
+ *
+ * The offering has to declare the input data "since". Every access gets new access parameters with the input data of
+ * the feed and the since value. The handler is only called for responses with elements; with an
+ * {@link AdaptiveInterval}, empty responses lengthen the interval.
+ */
+public class IncrementalAccessFeed extends PollingAccessFeed {
+
+    /**
+     * Receives the elements of one response.
+     */
+    public interface IncrementalFeedHandler {
+        void processNotification(IncrementalAccessFeed feed, JSONArray elements);
+    }
+
+    /**
+     * Is notified when an access fails or its response cannot be parsed.
+     */
+    public interface IncrementalFeedFailureHandler {
+        void processNotificationOnFailure(IncrementalAccessFeed feed, Throwable failure);
+    }
+
+    private IncrementalFeedHandler handler;
+    private IncrementalFeedFailureHandler failureHandler;
+    private volatile long nextSequence;
+
+    private final AtomicLong elements = new AtomicLong();
+
+    private IncrementalAccessFeed(AccessFunction accessFunction) {
+        super(accessFunction, AdaptiveInterval.fixed(Duration.standardSeconds(2)));
+    }
+
+    public static IncrementalAccessFeed create(Offering offering) {
+        return new IncrementalAccessFeed(accessOneTime(offering));
+    }
+
+    /**
+     * Creates a feed which makes its accesses with the given function instead of Offering.accessOneTime.
+     */
+    public static IncrementalAccessFeed create(AccessFunction accessFunction) {
+        return new IncrementalAccessFeed(accessFunction);
+    }
+
+    /**
+     * Adds an input data value, which is passed with every access.
+     */
+    public IncrementalAccessFeed withInputData(String name, Object value) {
+        if (AccessStreamBuffer.SINCE_INPUT.equals(name))
+            throw new IllegalArgumentException("The since value is set by the feed, see withStartSequence");
+        putInputData(name, value);
+        return this;
+    }
+
+    /**
+     * Sets a fixed time between the completion of an access and the next access (default: 2 seconds).
+     */
+    public IncrementalAccessFeed withInterval(Duration interval) {
+        setInterval(AdaptiveInterval.fixed(interval));
+        return this;
+    }
+
+    /**
+     * Adapts the time between the completion of an access and the next access to the responses.
+     */
+    public IncrementalAccessFeed withInterval(AdaptiveInterval interval) {
+        setInterval(interval);
+        return this;
+    }
+
+    /**
+     * Runs the accesses on the given scheduler instead of the shared default one.
+     */
+    public IncrementalAccessFeed withScheduler(FeedScheduler scheduler) {
+        setScheduler(scheduler);
+        return this;
+    }
+
+    /**
+     * Starts polling at the given position (0 for the oldest element retained by the provider).
+     */
+    public IncrementalAccessFeed withStartSequence(long sequence) {
+        this.nextSequence = sequence;
+        return this;
+    }
+
+    public synchronized IncrementalAccessFeed start(IncrementalFeedHandler handler,
+            IncrementalFeedFailureHandler failureHandler) {
+        this.handler = handler;
+        this.failureHandler = failureHandler;
+        start();
+        return this;
+    }
+
+    /**
+     * Returns the sequence number passed as since with the next access.
+     */
+    public long getNextSequence() {
+        return nextSequence;
+    }
+
+    public long getElementCount() {
+        return elements.get();
+    }
+
+    @Override
+    protected String details() {
+        return ", nextSequence=" + nextSequence + ", elements=" + getElementCount();
+    }
+
+    @Override
+    protected AccessParameters nextAccessParameters() {
+        return createAccessParameters().addNameValue(AccessStreamBuffer.SINCE_INPUT, nextSequence);
+    }
+
+    @Override
+    protected boolean handle(String body) {
+        JSONObject response = new JSONObject(body);
+        long next = response.getLong("next");
+        JSONArray jsonArray = response.getJSONArray("elements");
+
+        // A smaller value than before means that the provider has been restarted, its sequence numbers start anew
+        nextSequence = next;
+        if (jsonArray.length() == 0)
+            return false;
+        elements.addAndGet(jsonArray.length());
+        handler.processNotification(this, jsonArray);
+        return true;
+    }
+
+    @Override
+    protected void notifyFailure(Throwable failure) {
+        failureHandler.processNotificationOnFailure(this, failure);
+    }
+
+}
@@ -0,0 +1,303 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.bigiot.lib.model.BoundingBox;
+import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
+
+/**
+ * Index over a discovery result for repeated selections, e.g. the best offering and its alternatives. Unlike
+ * OfferingSelector, which scans and sorts the whole list on every call, the index reads the price, license, endpoint
+ * host and region of every offering once, partitions the offerings by host, and keeps the order of each partition for
+ * every combination of criteria once it has been used. A selection then walks the kept order and stops after k
+ * matches.
+ *
+ * <pre>
+ * OfferingIndex index = OfferingIndex.create(consumer.discover(query).get());
+ * SubscribableOfferingDescription best = index.select().onlyLocalhost().cheapest().mostPermissive().first();
+ * List&lt;SubscribableOfferingDescription&gt; alternatives = index.select().cheapest().top(3);
+ * </pre>
+ *
+ * Criteria apply in the order they are added, later ones breaking the ties of earlier ones, and offerings which are
+ * equal in all criteria keep the order of the discovery result. Offerings with unknown price or license come last.
+ */
+public class OfferingIndex {
+
+    /**
+     * Reads the attributes of an offering which the index selects by.
+     */
+    public interface Attributes {
+
+        /**
+         * Returns the price per access, or NaN if unknown.
+         */
+        double getPrice(SubscribableOfferingDescription offeringDescription);
+
+        /**
+         * Returns the name of the license type, or null if unknown.
+         */
+        String getLicense(SubscribableOfferingDescription offeringDescription);
+
+        /**
+         * Returns the host of the access endpoint, or null if unknown.
+         */
+        String getEndpointHost(SubscribableOfferingDescription offeringDescription);
+
+        /**
+         * Returns the region as {minLatitude, minLongitude, maxLatitude, maxLongitude}, or null if unknown.
+         */
+        double[] getRegion(SubscribableOfferingDescription offeringDescription);
+
+    }
+
+    private enum Criterion {
+        CHEAPEST, MOST_PERMISSIVE
+    }
+
+    // From the most to the least permissive
+    private static final List<String> licenses = Arrays.asList("OPEN_DATA_LICENSE", "CREATIVE_COMMONS",
+            "NON_COMMERCIAL_DATA_LICENSE", "PROJECT_INTERNAL_USE_ONLY");
+
+    private static final String LOCALHOST = "localhost";
+
+    private final SubscribableOfferingDescription[] offeringDescriptions;
+    private final double[] prices;
+    private final int[] licenseRanks;
+    private final double[][] regions;
+
+    // Offering positions in discovery order: all, and by host
+    private final int[] all;
+    private final Map<String, int[]> byHost = new HashMap<>();
+    private final ConcurrentMap<String, int[]> orders = new ConcurrentHashMap<>();
+
+    private OfferingIndex(List<SubscribableOfferingDescription> offeringDescriptions, Attributes attributes) {
+        int size = offeringDescriptions.size();
+        this.offeringDescriptions = offeringDescriptions.toArray(new SubscribableOfferingDescription[size]);
+        this.prices = new double[size];
+        this.licenseRanks = new int[size];
+        this.regions = new double[size][];
+        this.all = new int[size];
+
+        Map<String, List<Integer>> hosts = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            SubscribableOfferingDescription offeringDescription = this.offeringDescriptions[i];
+            double price = attributes.getPrice(offeringDescription);
+            prices[i] = Double.isNaN(price) ? Double.POSITIVE_INFINITY : price;
+            int licenseRank = licenses.indexOf(attributes.getLicense(offeringDescription));
+            licenseRanks[i] = licenseRank < 0 ? licenses.size() : licenseRank;
+            regions[i] = attributes.getRegion(offeringDescription);
+            all[i] = i;
+            String host = normalizeHost(attributes.getEndpointHost(offeringDescription));
+            if (host != null)
+                hosts.computeIfAbsent(host, h -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<String, List<Integer>> host : hosts.entrySet()) {
+            int[] positions = new int[host.getValue().size()];
+            for (int i = 0; i < positions.length; i++)
+                positions[i] = host.getValue().get(i);
+            byHost.put(host.getKey(), positions);
+        }
+    }
+
+    /**
+     * Indexes the offerings with the attributes read from their descriptions: the amount of the price, the license,
+     * the host of the first endpoint and the boundary of the spatial extent.
+     */
+    public static OfferingIndex create(List<SubscribableOfferingDescription> offeringDescriptions) {
+        return new OfferingIndex(offeringDescriptions, new DescriptionAttributes());
+    }
+
+    public static OfferingIndex create(List<SubscribableOfferingDescription> offeringDescriptions,
+            Attributes attributes) {
+        return new OfferingIndex(offeringDescriptions, attributes);
+    }
+
+    public Selection select() {
+        return new Selection();
+    }
+
+    public int size() {
+        return offeringDescriptions.length;
+    }
+
+    /**
+     * A selection of offerings from the index, configured like an OfferingSelector.
+     */
+    public class Selection {
+
+        private String host;
+        private final List<Criterion> criteria = new ArrayList<>(2);
+        private double[] region;
+
+        private Selection() {
+        }
+
+        public Selection onlyLocalhost() {
+            return onlyHost(LOCALHOST);
+        }
+
+        public Selection onlyHost(String host) {
+            this.host = normalizeHost(host);
+            return this;
+        }
+
+        public Selection cheapest() {
+            criteria.add(Criterion.CHEAPEST);
+            return this;
+        }
+
+        public Selection mostPermissive() {
+            criteria.add(Criterion.MOST_PERMISSIVE);
+            return this;
+        }
+
+        /**
+         * Selects only offerings whose region overlaps the given one. Offerings without region are not selected.
+         */
+        public Selection inRegion(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+            this.region = new double[] { minLatitude, minLongitude, maxLatitude, maxLongitude };
+            return this;
+        }
+
+        /**
+         * Returns the best offering, or null if none matches.
+         */
+        public SubscribableOfferingDescription first() {
+            List<SubscribableOfferingDescription> top = top(1);
+            return top.isEmpty() ? null : top.get(0);
+        }
+
+        /**
+         * Returns the k best offerings, best first.
+         */
+        public List<SubscribableOfferingDescription> top(int k) {
+            int[] order = order(host, criteria);
+            if (order.length == 0 || k <= 0)
+                return Collections.emptyList();
+            List<SubscribableOfferingDescription> result = new ArrayList<>(Math.min(k, order.length));
+            for (int i = 0; i < order.length && result.size() < k; i++) {
+                if (region == null || overlaps(regions[order[i]], region))
+                    result.add(offeringDescriptions[order[i]]);
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Returns the positions of the offerings of the host (or all) ordered by the criteria, sorting them on first use.
+     */
+    private int[] order(String host, List<Criterion> criteria) {
+        int[] partition = host == null ? all : byHost.get(host);
+        if (partition == null)
+            return new int[0];
+        if (criteria.isEmpty())
+            return partition;
+        String key = (host == null ? "" : host) + criteria;
+        int[] order = orders.get(key);
+        if (order == null) {
+            Integer[] positions = new Integer[partition.length];
+            for (int i = 0; i < positions.length; i++)
+                positions[i] = partition[i];
+            // Stable, so equal offerings keep their discovery order
+            Arrays.sort(positions, comparator(criteria));
+            order = new int[positions.length];
+            for (int i = 0; i < order.length; i++)
+                order[i] = positions[i];
+            orders.putIfAbsent(key, order);
+        }
+        return order;
+    }
+
+    private Comparator<Integer> comparator(List<Criterion> criteria) {
+        Comparator<Integer> comparator = null;
+        for (Criterion criterion : criteria) {
+            Comparator<Integer> next = criterion == Criterion.CHEAPEST
+                    ? (a, b) -> Double.compare(prices[a], prices[b])
+                    : (a, b) -> Integer.compare(licenseRanks[a], licenseRanks[b]);
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    private static boolean overlaps(double[] a, double[] b) {
+        return a != null && a[0] <= b[2] && b[0] <= a[2] && a[1] <= b[3] && b[1] <= a[3];
+    }
+
+    private static String normalizeHost(String host) {
+        if (host == null)
+            return null;
+        host = host.toLowerCase();
+        return host.equals("127.0.0.1") || host.equals("[::1]") || host.equals("::1") ? LOCALHOST : host;
+    }
+
+    /**
+     * Reads the attributes from the getters of the description. Attributes which are not set are unknown.
+     */
+    static class DescriptionAttributes implements Attributes {
+
+        @Override
+        public double getPrice(SubscribableOfferingDescription offeringDescription) {
+            if (offeringDescription.getPrice() == null || offeringDescription.getPrice().getMoney() == null)
+                return Double.NaN;
+            return offeringDescription.getPrice().getMoney().getAmount();
+        }
+
+        @Override
+        public String getLicense(SubscribableOfferingDescription offeringDescription) {
+            return offeringDescription.getLicense() == null ? null : offeringDescription.getLicense().toString();
+        }
+
+        @Override
+        public String getEndpointHost(SubscribableOfferingDescription offeringDescription) {
+            if (offeringDescription.getEndpoints() == null || offeringDescription.getEndpoints().isEmpty()
+                    || offeringDescription.getEndpoints().get(0).getUri() == null)
+                return null;
+            try {
+                return URI.create(String.valueOf(offeringDescription.getEndpoints().get(0).getUri())).getHost();
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public double[] getRegion(SubscribableOfferingDescription offeringDescription) {
+            if (offeringDescription.getSpatialExtent() == null
+                    || offeringDescription.getSpatialExtent().getBoundary() == null)
+                return null;
+            BoundingBox boundary = offeringDescription.getSpatialExtent().getBoundary();
+            if (boundary.getL1() == null || boundary.getL2() == null)
+                return null;
+            return new double[] { Math.min(boundary.getL1().getLat(), boundary.getL2().getLat()),
+                    Math.min(boundary.getL1().getLng(), boundary.getL2().getLng()),
+                    Math.max(boundary.getL1().getLat(), boundary.getL2().getLat()),
+                    Math.max(boundary.getL1().getLng(), boundary.getL2().getLng()) };
+        }
+
+    }
+
+}
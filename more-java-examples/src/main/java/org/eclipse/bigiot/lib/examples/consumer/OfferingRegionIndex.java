@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
+
+/**
+ * Spatial index over the regions of discovered offerings, e.g. to route users to the parking offerings around them
+ * after a city-wide discovery. It is built once per discovery result and answers which offerings cover a point, which
+ * overlap a region, and which are nearest to a point, in logarithmic instead of linear time.
+ *
+ * <pre>
+ * OfferingRegionIndex regions = OfferingRegionIndex.create(consumer.discover(cityWideQuery).get());
+ * List&lt;SubscribableOfferingDescription&gt; covering = regions.containing(48.137, 11.575);
+ * List&lt;SubscribableOfferingDescription&gt; nearest = regions.nearest(48.137, 11.575, 3);
+ * </pre>
+ *
+ * The regions are read like in {@link OfferingIndex}; an offering with a location instead of a region can be given as
+ * a region of zero size. Offerings without region are not indexed. Regions crossing the antimeridian are not
+ * supported.
+ */
+public class OfferingRegionIndex {
+
+    private final List<SubscribableOfferingDescription> offeringDescriptions = new ArrayList<>();
+    private final RegionTree tree;
+
+    private OfferingRegionIndex(List<SubscribableOfferingDescription> offeringDescriptions,
+            OfferingIndex.Attributes attributes) {
+        List<double[]> regions = new ArrayList<>();
+        for (SubscribableOfferingDescription offeringDescription : offeringDescriptions) {
+            double[] region = attributes.getRegion(offeringDescription);
+            if (region != null) {
+                this.offeringDescriptions.add(offeringDescription);
+                regions.add(region);
+            }
+        }
+        this.tree = new RegionTree(regions.toArray(new double[regions.size()][]));
+    }
+
+    /**
+     * Indexes the offerings by the boundaries of their spatial extents. Offerings without spatial extent or boundary,
+     * e.g. ones only registered for a city, are not indexed; their regions can be read with
+     * {@link #create(List, OfferingIndex.Attributes)}.
+     */
+    public static OfferingRegionIndex create(List<SubscribableOfferingDescription> offeringDescriptions) {
+        return new OfferingRegionIndex(offeringDescriptions, new OfferingIndex.DescriptionAttributes());
+    }
+
+    public static OfferingRegionIndex create(List<SubscribableOfferingDescription> offeringDescriptions,
+            OfferingIndex.Attributes attributes) {
+        return new OfferingRegionIndex(offeringDescriptions, attributes);
+    }
+
+    /**
+     * Returns the offerings whose region contains the point.
+     */
+    public List<SubscribableOfferingDescription> containing(double latitude, double longitude) {
+        return offeringDescriptions(tree.overlapping(latitude, longitude, latitude, longitude));
+    }
+
+    /**
+     * Returns the offerings whose region overlaps the given one.
+     */
+    public List<SubscribableOfferingDescription> overlapping(double minLatitude, double minLongitude,
+            double maxLatitude, double maxLongitude) {
+        return offeringDescriptions(tree.overlapping(minLatitude, minLongitude, maxLatitude, maxLongitude));
+    }
+
+    /**
+     * Returns the k offerings nearest to the point, nearest first. Offerings whose region contains the point have
+     * distance 0 and come first.
+     */
+    public List<SubscribableOfferingDescription> nearest(double latitude, double longitude, int k) {
+        return offeringDescriptions(tree.nearest(latitude, longitude, k));
+    }
+
+    /**
+     * Returns the number of indexed offerings, i.e. the ones with a region.
+     */
+    public int size() {
+        return tree.size();
+    }
+
+    private List<SubscribableOfferingDescription> offeringDescriptions(int[] positions) {
+        if (positions.length == 0)
+            return Collections.emptyList();
+        List<SubscribableOfferingDescription> result = new ArrayList<>(positions.length);
+        for (int position : positions)
+            result.add(offeringDescriptions.get(position));
+        return result;
+    }
+
+}
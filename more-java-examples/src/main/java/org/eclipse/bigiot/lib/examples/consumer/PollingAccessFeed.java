@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.bigiot.lib.offering.AccessResponse;
+import org.eclipse.bigiot.lib.offering.Offering;
+import org.eclipse.bigiot.lib.offering.parameters.AccessParameters;
+
+/**
+ * Base of the consumer feeds which poll an offering with one-time accesses. The next access is scheduled when the
+ * previous one has completed, so the accesses of a feed never overlap; the delay in between is given by the
+ * {@link AdaptiveInterval} of the feed. The accesses of all feeds run on a {@link FeedScheduler}, by default the
+ * shared one. An access which fails with a {@link RateLimitedException} is repeated after its Retry-After time.
+ * <p>
+ * The accesses are made by an {@link AccessFunction}, by default Offering.accessOneTime. Another function can e.g.
+ * run the accesses on a {@link ConsumerExecutor}, recognize the rate limit answers of a provider, or stand in for the
+ * offering in a test.
+ * <p>
+ * The base class keeps the life cycle of a feed (start, stop and resume), its access and failure counts and its
+ * string form; the subclasses decide what to access and how to handle the responses.
+ */
+public abstract class PollingAccessFeed {
+
+    /**
+     * Makes one access and returns the body of the response.
+     */
+    public interface AccessFunction {
+        CompletableFuture<String> access(AccessParameters accessParameters);
+    }
+
+    private final AccessFunction accessFunction;
+    private final Map<String, Object> inputData = new LinkedHashMap<>();
+    private AdaptiveInterval interval;
+    private FeedScheduler scheduler = FeedScheduler.getDefault();
+
+    private volatile boolean running;
+    private boolean started;
+    // Incremented on every resume, so accesses scheduled before a stop do not continue after the resume
+    private volatile int generation;
+
+    private final AtomicLong accesses = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    protected PollingAccessFeed(AccessFunction accessFunction, AdaptiveInterval interval) {
+        this.accessFunction = accessFunction;
+        this.interval = interval;
+    }
+
+    /**
+     * Returns the access parameters of the next access.
+     */
+    protected abstract AccessParameters nextAccessParameters();
+
+    /**
+     * Handles the body of a response of the offering.
+     *
+     * @return true if the response brought new data
+     */
+    protected abstract boolean handle(String body) throws Exception;
+
+    /**
+     * Returns the access function which accesses the offering with Offering.accessOneTime.
+     */
+    public static AccessFunction accessOneTime(Offering offering) {
+        return accessParameters -> offering.accessOneTime(accessParameters).thenApply(AccessResponse::getBody);
+    }
+
+    /**
+     * Passes a failure to the failure handler of the feed.
+     */
+    protected abstract void notifyFailure(Throwable failure);
+
+    /**
+     * Adds an input data value to the access parameters created by {@link #createAccessParameters()}.
+     */
+    protected void putInputData(String name, Object value) {
+        inputData.put(name, value);
+    }
+
+    /**
+     * Creates new access parameters with the input data of the feed, so every access can add its own values.
+     */
+    protected AccessParameters createAccessParameters() {
+        AccessParameters accessParameters = AccessParameters.create();
+        for (Map.Entry<String, Object> entry : inputData.entrySet())
+            accessParameters.addNameValue(entry.getKey(), entry.getValue());
+        return accessParameters;
+    }
+
+    protected void setInterval(AdaptiveInterval interval) {
+        this.interval = interval;
+    }
+
+    protected void setScheduler(FeedScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    protected synchronized void start() {
+        started = true;
+        resume();
+    }
+
+    /**
+     * Pauses the feed. An access which is in progress completes, but its response is not handled.
+     */
+    public synchronized void stop() {
+        running = false;
+    }
+
+    /**
+     * Continues a stopped feed.
+     */
+    public synchronized void resume() {
+        if (running)
+            return;
+        if (!started)
+            throw new IllegalStateException("Feed has not been started");
+        running = true;
+        schedule(++generation, 0);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public AdaptiveInterval getInterval() {
+        return interval;
+    }
+
+    public long getAccessCount() {
+        return accesses.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [running=" + isRunning() + ", interval=" + interval.getInterval()
+                + ", accesses=" + getAccessCount() + ", failures=" + getFailureCount() + details() + "]";
+    }
+
+    /**
+     * Returns the counts and the state of the subclass for the string form, each preceded by ", ".
+     */
+    protected String details() {
+        return "";
+    }
+
+    /**
+     * Returns false for accesses of a stopped feed, even if the feed has been resumed in the meantime.
+     */
+    protected boolean isCurrent(int current) {
+        return running && generation == current;
+    }
+
+    /**
+     * Makes one access with the access function of the feed. Subclasses can extend the access, e.g. by a request of
+     * their own which depends on the response. The access holds a slot of the scheduler until it completes; an access
+     * which keeps running for long, like a push connection, runs release as soon as it no longer needs the slot.
+     */
+    protected CompletableFuture<String> access(AccessParameters accessParameters, Runnable release) {
+        return accessFunction.access(accessParameters);
+    }
+
+    private void startAccess(final int current, final Runnable done) {
+        if (!isCurrent(current)) {
+            done.run();
+            return;
+        }
+        accesses.incrementAndGet();
+        final AtomicBoolean isReleased = new AtomicBoolean();
+        final Runnable release = () -> {
+            if (isReleased.compareAndSet(false, true))
+                done.run();
+        };
+        try {
+            access(nextAccessParameters(), release).whenComplete((body, failure) -> {
+                release.run();
+                if (failure != null)
+                    fail(current, failure);
+                else
+                    complete(current, body);
+            });
+        } catch (RuntimeException e) {
+            release.run();
+            fail(current, e);
+        }
+    }
+
+    private void complete(int current, String body) {
+        if (!isCurrent(current))
+            return;
+        boolean changed;
+        try {
+            changed = handle(body);
+        } catch (Exception e) {
+            fail(current, e);
+            return;
+        }
+        schedule(current, changed ? interval.changed() : interval.unchanged());
+    }
+
+    private void fail(int current, Throwable failure) {
+        if (!isCurrent(current))
+            return;
+        failures.incrementAndGet();
+        notifyFailure(failure);
+        RateLimitedException rateLimited = RateLimitedException.find(failure);
+        schedule(current, rateLimited != null ? interval.rateLimited(rateLimited.getRetryAfterMillis())
+                : interval.failed());
+    }
+
+    private void schedule(final int current, long delay) {
+        if (!isCurrent(current))
+            return;
+        scheduler.schedule(new FeedScheduler.Task() {
+            @Override
+            public void run(Runnable done) {
+                startAccess(current, done);
+            }
+        }, delay);
+    }
+
+}
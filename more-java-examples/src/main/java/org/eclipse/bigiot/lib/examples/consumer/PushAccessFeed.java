@@ -0,0 +1,313 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.bigiot.lib.examples.provider.AccessStreamPushServer;
+import org.eclipse.bigiot.lib.offering.Offering;
+import org.eclipse.bigiot.lib.offering.parameters.AccessParameters;
+import org.joda.time.Duration;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Consumer side of an access stream served by an {@link AccessStreamPushServer}: the feed keeps a Server-Sent Events
+ * connection open and receives the elements as the provider appends them, instead of polling the offering with
+ * Offering.accessContinuous. Every connection starts with a one-time access of the subscribed offering with the input
+ * data "push", which the provider answers with the URL of the stream and a single-use ticket, sent as bearer token; so
+ * each connection is authorized (and accounted) by the lib like any other access. An https stream is verified with the
+ * default trust store of the JVM. The connection is re-established (with exponential backoff) when it fails, is closed
+ * by the provider or the feed is resumed; the feed then continues after the last event it has received, as far as the
+ * provider still retains the elements.
+ *
+ * <pre>
+ * PushAccessFeed accessFeed = PushAccessFeed.create(offering).withInputData("latitude", 42.0)
+ *         .withInputData("longitude", 9.0);
+ * accessFeed.start((f, elements) -&gt; logger.info("Incoming feed data: " + elements.length() + " elements"),
+ *         (f, e) -&gt; logger.info("Feed operation failed"));
+ * ...
+ * accessFeed.stop();
+ * </pre>
+ *
+ * Each access of the {@link PollingAccessFeed} is one connection: it completes when the connection is closed, and the
+ * next one is made after the reconnect delay. An open connection does not count against the in-flight limit of the
+ * {@link FeedScheduler}, only the ticket request and the connection setup do. The handlers are called on the thread of
+ * the connection, one event at a time.
+ */
+public class PushAccessFeed extends PollingAccessFeed {
+
+    private static final Duration MAX_RECONNECT_DELAY = Duration.standardMinutes(1);
+
+    // A thread per open connection, which blocks while waiting for the next event
+    private static final Executor connections = Executors
+            .newCachedThreadPool(FeedScheduler.daemonThreads("PushAccessFeed"));
+
+    /**
+     * Receives the elements of one event.
+     */
+    public interface PushFeedHandler {
+        void processNotification(PushAccessFeed feed, JSONArray elements);
+    }
+
+    /**
+     * Is notified when the connection fails or an event cannot be parsed.
+     */
+    public interface PushFeedFailureHandler {
+        void processNotificationOnFailure(PushAccessFeed feed, Throwable failure);
+    }
+
+    private long readTimeoutMillis = 60 * 1000L;
+
+    private PushFeedHandler handler;
+    private PushFeedFailureHandler failureHandler;
+    private volatile HttpURLConnection connection;
+    private volatile String lastEventId;
+    // Whether the last connection has received an event, which resets the reconnect delay
+    private final AtomicBoolean received = new AtomicBoolean();
+
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong elements = new AtomicLong();
+
+    private PushAccessFeed(AccessFunction accessFunction) {
+        super(accessFunction, AdaptiveInterval.create(Duration.standardSeconds(1), MAX_RECONNECT_DELAY));
+    }
+
+    /**
+     * Creates a feed for the access stream of a subscribed offering whose provider pushes it.
+     */
+    public static PushAccessFeed create(Offering offering) {
+        return new PushAccessFeed(accessOneTime(offering));
+    }
+
+    /**
+     * Creates a feed which requests the stream with the given function instead of Offering.accessOneTime.
+     */
+    public static PushAccessFeed create(AccessFunction accessFunction) {
+        return new PushAccessFeed(accessFunction);
+    }
+
+    /**
+     * Adds an input data value to the access of the offering, which the provider passes to its filter.
+     */
+    public PushAccessFeed withInputData(String name, Object value) {
+        putInputData(name, value);
+        return this;
+    }
+
+    /**
+     * Sets the delay before the first reconnect after a failure (default: 1 second). The delay doubles with each
+     * consecutive failure, up to one minute.
+     */
+    public PushAccessFeed withReconnectDelay(Duration reconnectDelay) {
+        setInterval(AdaptiveInterval.create(reconnectDelay, MAX_RECONNECT_DELAY));
+        return this;
+    }
+
+    /**
+     * Makes the ticket requests and connects on the given scheduler instead of the shared default one.
+     */
+    public PushAccessFeed withScheduler(FeedScheduler scheduler) {
+        setScheduler(scheduler);
+        return this;
+    }
+
+    /**
+     * Sets the time without any event or heartbeat after which the connection is considered broken (default: 60
+     * seconds). It has to be longer than the heartbeat interval of the provider.
+     */
+    public PushAccessFeed withReadTimeout(Duration readTimeout) {
+        this.readTimeoutMillis = readTimeout.getMillis();
+        return this;
+    }
+
+    /**
+     * Connects the feed; the handlers are called until the feed is stopped.
+     */
+    public synchronized PushAccessFeed start(PushFeedHandler handler, PushFeedFailureHandler failureHandler) {
+        this.handler = handler;
+        this.failureHandler = failureHandler;
+        start();
+        return this;
+    }
+
+    /**
+     * Pauses the feed by closing its connection. Elements appended in the meantime are received on resume, as far as
+     * the provider still retains them.
+     */
+    @Override
+    public synchronized void stop() {
+        super.stop();
+        HttpURLConnection current = connection;
+        if (current != null)
+            current.disconnect();
+    }
+
+    public long getEventCount() {
+        return events.get();
+    }
+
+    public long getElementCount() {
+        return elements.get();
+    }
+
+    @Override
+    protected String details() {
+        return ", events=" + getEventCount() + ", elements=" + getElementCount();
+    }
+
+    /**
+     * Requests the stream from the offering, then reads it on a thread of its own. The slot of the scheduler is
+     * released once the connection is established, so open connections do not hold up the polling feeds which share
+     * the scheduler.
+     */
+    @Override
+    protected CompletableFuture<String> access(AccessParameters accessParameters, Runnable release) {
+        return super.access(accessParameters, release).thenComposeAsync(body -> receive(body, release), connections);
+    }
+
+    @Override
+    protected AccessParameters nextAccessParameters() {
+        return createAccessParameters().addNameValue(AccessStreamPushServer.PUSH_INPUT, "sse");
+    }
+
+    /**
+     * Handles the end of a connection.
+     *
+     * @return true if the connection received events, so the next one is made after the shortest delay
+     */
+    @Override
+    protected boolean handle(String body) {
+        return received.getAndSet(false);
+    }
+
+    @Override
+    protected void notifyFailure(Throwable failure) {
+        failureHandler.processNotificationOnFailure(this, failure);
+    }
+
+    /**
+     * Connects to the stream given by the response of the offering and reads events until the connection is closed.
+     */
+    private CompletableFuture<String> receive(String body, Runnable release) {
+        CompletableFuture<String> closed = new CompletableFuture<>();
+        try {
+            String streamUri;
+            String ticket;
+            try {
+                JSONObject response = new JSONObject(body);
+                streamUri = response.getString("stream");
+                ticket = response.getString("ticket");
+            } catch (JSONException e) {
+                throw new IOException("Offering does not push its access stream: " + body, e);
+            }
+            read(streamUri, ticket, release);
+            closed.complete(body);
+        } catch (IOException e) {
+            closed.completeExceptionally(new UncheckedIOException(e));
+        }
+        return closed;
+    }
+
+    private void read(String streamUri, String ticket, Runnable release) throws IOException {
+        HttpURLConnection current = (HttpURLConnection) new URL(streamUri).openConnection();
+        current.setRequestProperty("Accept", "text/event-stream");
+        current.setRequestProperty("Authorization", "Bearer " + ticket);
+        if (lastEventId != null)
+            current.setRequestProperty("Last-Event-ID", lastEventId);
+        current.setReadTimeout((int) readTimeoutMillis);
+        connection = current;
+        try {
+            // Stopped while the ticket was requested
+            if (!isRunning())
+                return;
+            if (current.getResponseCode() != HttpURLConnection.HTTP_OK)
+                throw new IOException("Push endpoint returned status " + current.getResponseCode());
+            release.run();
+
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(current.getInputStream(), StandardCharsets.UTF_8));
+            StringBuilder data = new StringBuilder();
+            String id = null;
+            String line;
+            while (isCurrent(current) && (line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    if (id != null)
+                        lastEventId = id;
+                    if (data.length() > 0)
+                        dispatch(data.toString());
+                    data.setLength(0);
+                    id = null;
+                } else if (line.startsWith("data:")) {
+                    if (data.length() > 0)
+                        data.append('\n');
+                    data.append(value(line));
+                } else if (line.startsWith("id:")) {
+                    id = value(line);
+                }
+                // Comments (heartbeats) and other fields are ignored
+            }
+        } catch (IOException e) {
+            // Closed by stop
+            if (isCurrent(current))
+                throw e;
+        } finally {
+            current.disconnect();
+        }
+    }
+
+    /**
+     * Returns false for the connection of a stopped feed, even if the feed has been resumed in the meantime.
+     */
+    private boolean isCurrent(HttpURLConnection current) {
+        return isRunning() && connection == current;
+    }
+
+    private static String value(String line) {
+        int start = line.indexOf(':') + 1;
+        return line.substring(start < line.length() && line.charAt(start) == ' ' ? start + 1 : start);
+    }
+
+    /**
+     * Passes the elements of an event to the handler. An event which cannot be parsed fails the connection; the next
+     * one continues after it.
+     */
+    private void dispatch(String data) throws IOException {
+        JSONArray jsonArray;
+        try {
+            jsonArray = new JSONArray(data);
+        } catch (JSONException e) {
+            throw new IOException("Event cannot be parsed: " + data, e);
+        }
+        events.incrementAndGet();
+        elements.addAndGet(jsonArray.length());
+        received.set(true);
+        handler.processNotification(this, jsonArray);
+    }
+
+}
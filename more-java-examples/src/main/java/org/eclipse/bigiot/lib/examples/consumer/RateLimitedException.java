@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+/**
+ * Signals that the provider rejected an access because the consumer exceeded its rate limit. The lib passes neither
+ * the HTTP status nor the headers of a response to the consumer, so rate limits are not recognized on their own: the
+ * response handler or access function of a feed throws (or completes exceptionally with) this exception, e.g. when
+ * the provider answers with its own rate limit response, and the feed then waits as long as the provider asked for.
+ */
+public class RateLimitedException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMillis;
+
+    /**
+     * @param retryAfterMillis
+     *            time the provider asked to wait before the next access (the Retry-After value), or -1 if unknown
+     */
+    public RateLimitedException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Returns the time the provider asked to wait before the next access in milliseconds, or -1 if unknown.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * Returns the RateLimitedException among the failure and its causes, or null if the failure has another reason.
+     */
+    public static RateLimitedException find(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RateLimitedException)
+                return (RateLimitedException) cause;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Static R-tree over regions given as {minLatitude, minLongitude, maxLatitude, maxLongitude}, which answers queries
+ * with the positions of the regions in the given array.
+ * <p>
+ * The tree is packed once: the regions are sorted along a Hilbert curve through their centers, and every 16
+ * consecutive regions, and then every 16 consecutive nodes, are grouped into a node of the level above. All boxes are
+ * kept in one array, the regions first and the root last, so a node is found by its position alone.
+ */
+final class RegionTree {
+
+    private static final int NODE_SIZE = 16;
+    private static final double METERS_PER_DEGREE = 111195;
+    private static final int[] EMPTY = new int[0];
+
+    private final int size;
+    // minLatitude, minLongitude, maxLatitude, maxLongitude of every region and node
+    private final double[] boxes;
+    // Positions in the given array of the regions in tree order
+    private final int[] ids;
+    // Position of the first node of every level, and the end of the array
+    private final int[] levelStarts;
+
+    RegionTree(double[][] regions) {
+        size = regions.length;
+        ids = sortAlongHilbertCurve(regions);
+
+        int[] starts = new int[64];
+        int levels = 0;
+        int nodeCount = size;
+        for (int count = size; count > 1; count = (count + NODE_SIZE - 1) / NODE_SIZE)
+            nodeCount += (count + NODE_SIZE - 1) / NODE_SIZE;
+        boxes = new double[4 * nodeCount];
+        for (int i = 0; i < size; i++)
+            System.arraycopy(regions[ids[i]], 0, boxes, 4 * i, 4);
+
+        int start = 0;
+        int end = size;
+        starts[levels++] = start;
+        while (end - start > 1) {
+            int parent = end;
+            for (int child = start; child < end; child += NODE_SIZE, parent++) {
+                double minLatitude = Double.POSITIVE_INFINITY, minLongitude = Double.POSITIVE_INFINITY;
+                double maxLatitude = Double.NEGATIVE_INFINITY, maxLongitude = Double.NEGATIVE_INFINITY;
+                for (int i = child; i < Math.min(child + NODE_SIZE, end); i++) {
+                    minLatitude = Math.min(minLatitude, boxes[4 * i]);
+                    minLongitude = Math.min(minLongitude, boxes[4 * i + 1]);
+                    maxLatitude = Math.max(maxLatitude, boxes[4 * i + 2]);
+                    maxLongitude = Math.max(maxLongitude, boxes[4 * i + 3]);
+                }
+                boxes[4 * parent] = minLatitude;
+                boxes[4 * parent + 1] = minLongitude;
+                boxes[4 * parent + 2] = maxLatitude;
+                boxes[4 * parent + 3] = maxLongitude;
+            }
+            start = end;
+            end = parent;
+            starts[levels++] = start;
+        }
+        starts[levels] = end;
+        levelStarts = Arrays.copyOf(starts, levels + 1);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the regions which overlap the given box, a point if the minimum and maximum are equal.
+     */
+    int[] overlapping(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+        if (size == 0)
+            return EMPTY;
+        int[] result = new int[8];
+        int count = 0;
+        int[] stack = new int[2 * NODE_SIZE * levelStarts.length];
+        int top = 0;
+        stack[top++] = levelStarts[levelStarts.length - 2];
+        stack[top++] = levelStarts.length - 2;
+        while (top > 0) {
+            int level = stack[--top];
+            int node = stack[--top];
+            if (boxes[4 * node] > maxLatitude || boxes[4 * node + 2] < minLatitude
+                    || boxes[4 * node + 1] > maxLongitude || boxes[4 * node + 3] < minLongitude)
+                continue;
+            if (level == 0) {
+                if (count == result.length)
+                    result = Arrays.copyOf(result, 2 * count);
+                result[count++] = ids[node];
+                continue;
+            }
+            int first = firstChild(node, level);
+            int end = Math.min(first + NODE_SIZE, levelStarts[level]);
+            for (int child = first; child < end; child++) {
+                stack[top++] = child;
+                stack[top++] = level - 1;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Returns the k regions nearest to the point, nearest first. The distance of a region is the one from the point to
+     * its nearest edge, 0 if the region contains the point.
+     */
+    int[] nearest(double latitude, double longitude, int k) {
+        if (size == 0 || k <= 0)
+            return EMPTY;
+        double longitudeScale = Math.cos(Math.toRadians(latitude));
+        int[] result = new int[Math.min(k, size)];
+        int count = 0;
+        // Best first: nodes and regions ordered by their distance, a node not farther than any region below it
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        int root = levelStarts[levelStarts.length - 2];
+        queue.add(new Candidate(root, levelStarts.length - 2, distance(root, latitude, longitude, longitudeScale)));
+        while (count < result.length && !queue.isEmpty()) {
+            Candidate candidate = queue.poll();
+            if (candidate.level == 0) {
+                result[count++] = ids[candidate.node];
+                continue;
+            }
+            int first = firstChild(candidate.node, candidate.level);
+            int end = Math.min(first + NODE_SIZE, levelStarts[candidate.level]);
+            for (int child = first; child < end; child++)
+                queue.add(new Candidate(child, candidate.level - 1,
+                        distance(child, latitude, longitude, longitudeScale)));
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Returns the distance in meters from the point to the box of the node or region, on an equirectangular
+     * projection, which is accurate enough within a city.
+     */
+    private double distance(int node, double latitude, double longitude, double longitudeScale) {
+        double dLatitude = Math.max(0, Math.max(boxes[4 * node] - latitude, latitude - boxes[4 * node + 2]));
+        double dLongitude = Math.max(0, Math.max(boxes[4 * node + 1] - longitude, longitude - boxes[4 * node + 3]))
+                * longitudeScale;
+        return Math.sqrt(dLatitude * dLatitude + dLongitude * dLongitude) * METERS_PER_DEGREE;
+    }
+
+    private int firstChild(int node, int level) {
+        return levelStarts[level - 1] + (node - levelStarts[level]) * NODE_SIZE;
+    }
+
+    private static int[] sortAlongHilbertCurve(double[][] regions) {
+        double minLatitude = Double.POSITIVE_INFINITY, minLongitude = Double.POSITIVE_INFINITY;
+        double maxLatitude = Double.NEGATIVE_INFINITY, maxLongitude = Double.NEGATIVE_INFINITY;
+        for (double[] region : regions) {
+            minLatitude = Math.min(minLatitude, region[0]);
+            minLongitude = Math.min(minLongitude, region[1]);
+            maxLatitude = Math.max(maxLatitude, region[2]);
+            maxLongitude = Math.max(maxLongitude, region[3]);
+        }
+        double latitudeScale = maxLatitude > minLatitude ? 65535 / (maxLatitude - minLatitude) : 0;
+        double longitudeScale = maxLongitude > minLongitude ? 65535 / (maxLongitude - minLongitude) : 0;
+
+        // Hilbert value in the upper, position in the lower 32 bits, with the sign bit flipped to sort them unsigned
+        long[] keys = new long[regions.length];
+        for (int i = 0; i < regions.length; i++) {
+            double[] region = regions[i];
+            int x = (int) (((region[1] + region[3]) / 2 - minLongitude) * longitudeScale);
+            int y = (int) (((region[0] + region[2]) / 2 - minLatitude) * latitudeScale);
+            keys[i] = (hilbert(x, y) << 32 | i) ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(keys);
+        int[] ids = new int[regions.length];
+        for (int i = 0; i < keys.length; i++)
+            ids[i] = (int) keys[i];
+        return ids;
+    }
+
+    /**
+     * Returns the position of the cell (x, y) on a Hilbert curve through a grid of 65536 x 65536 cells.
+     */
+    private static long hilbert(int x, int y) {
+        long d = 0;
+        for (int s = 1 << 15; s > 0; s >>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = 65535 - x;
+                    y = 65535 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    private static final class Candidate implements Comparable<Candidate> {
+
+        final int node;
+        final int level;
+        final double distance;
+
+        Candidate(int node, int level, double distance) {
+            this.node = node;
+            this.level = level;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            return Double.compare(distance, other.distance);
+        }
+
+    }
+
+}
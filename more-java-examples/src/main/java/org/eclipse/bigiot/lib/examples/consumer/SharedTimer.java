@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * Single daemon timer thread for the timeouts and delays of the consumer helpers. The scheduled tasks must be short,
+ * since they all share the one thread.
+ */
+final class SharedTimer {
+
+    private static ScheduledThreadPoolExecutor timer;
+
+    private SharedTimer() {
+    }
+
+    static synchronized ScheduledExecutorService get() {
+        if (timer == null) {
+            timer = new ScheduledThreadPoolExecutor(1, FeedScheduler.daemonThreads("SharedTimer"));
+            // Timeouts are mostly cancelled, so they should not pile up in the queue
+            timer.setRemoveOnCancelPolicy(true);
+        }
+        return timer;
+    }
+
+}
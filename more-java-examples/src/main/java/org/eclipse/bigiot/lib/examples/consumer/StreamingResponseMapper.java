@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.eclipse.bigiot.lib.offering.AccessResponse;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Alternative to AccessResponse.map which binds the elements of a response one at a time while the body is parsed,
+ * instead of building the JSON tree of the whole body and a list of all elements first. Peak memory stays at one
+ * element besides the body, which matters for responses with tens of thousands of records.
+ *
+ * <pre>
+ * StreamingResponseMapper&lt;MyParkingResultPojo&gt; mapper = StreamingResponseMapper.create(MyParkingResultPojo.class)
+ *         .addNameMapping("lat", "latitude").addNameMapping("lon", "longitude");
+ * mapper.forEach(response, parkingSpot -&gt; logger.info("Record: " + parkingSpot));
+ * long free = mapper.stream(response).filter(p -&gt; "available".equals(p.status)).count();
+ * </pre>
+ *
+ * Fields of the response are bound to the public fields or setters of the same name; others are ignored. With name
+ * mappings, which take dotted paths like OutputMapping.addNameMapping, every element is read as a small JSON tree
+ * before it is bound. Parse errors are thrown as unchecked exceptions while iterating. Mapping by RDF type
+ * (ResponseMappingType annotations) needs the offering description and is left to AccessResponse.map.
+ */
+public class StreamingResponseMapper<T> {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Class<T> type;
+    private final Map<JsonPointer, String[]> nameMappings = new LinkedHashMap<>();
+
+    private StreamingResponseMapper(Class<T> type) {
+        this.type = type;
+    }
+
+    public static <T> StreamingResponseMapper<T> create(Class<T> type) {
+        return new StreamingResponseMapper<>(type);
+    }
+
+    /**
+     * Binds the value at the given path of an element (e.g. "geoCoordinates.latitude") to the given path of the POJO
+     * (e.g. "coordinates.latitude").
+     */
+    public StreamingResponseMapper<T> addNameMapping(String responsePath, String pojoPath) {
+        nameMappings.put(JsonPointer.compile("/" + responsePath.replace('.', '/')), pojoPath.split("\\."));
+        return this;
+    }
+
+    /**
+     * Returns a lazy stream of the elements of the response. A body which is a single object instead of an array is
+     * one element.
+     */
+    public Stream<T> stream(AccessResponse response) {
+        return stream(new StringReader(response.getBody()));
+    }
+
+    /**
+     * Returns a lazy stream of the elements read from the reader, which is closed when the stream is closed.
+     */
+    public Stream<T> stream(Reader body) {
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(iterator(body), Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(() -> close(body));
+    }
+
+    /**
+     * Passes the elements of the response to the action as they are parsed.
+     *
+     * @return the number of elements
+     */
+    public long forEach(AccessResponse response, Consumer<? super T> action) {
+        long count = 0;
+        Iterator<T> iterator = iterator(new StringReader(response.getBody()));
+        while (iterator.hasNext()) {
+            action.accept(iterator.next());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * The iterators of Jackson read the elements of a root-level array one by one, and reuse their deserialization
+     * context for all elements. Parse errors are thrown as unchecked exceptions.
+     */
+    private Iterator<T> iterator(Reader body) {
+        try {
+            if (nameMappings.isEmpty())
+                return objectMapper.readerFor(type).readValues(body);
+
+            final MappingIterator<JsonNode> elements = objectMapper.readerFor(JsonNode.class).readValues(body);
+            return new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    return elements.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    return bind(elements.next());
+                }
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private T bind(JsonNode element) {
+        if (element instanceof ObjectNode) {
+            ObjectNode object = (ObjectNode) element;
+            for (Map.Entry<JsonPointer, String[]> mapping : nameMappings.entrySet()) {
+                JsonNode value = object.at(mapping.getKey());
+                if (!value.isMissingNode())
+                    put(object, mapping.getValue(), value);
+            }
+        }
+        try {
+            return objectMapper.treeToValue(element, type);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void put(ObjectNode object, String[] path, JsonNode value) {
+        for (int i = 0; i < path.length - 1; i++) {
+            JsonNode child = object.get(path[i]);
+            object = child instanceof ObjectNode ? (ObjectNode) child : object.putObject(path[i]);
+        }
+        object.set(path[path.length - 1], value);
+    }
+
+    private static void close(Reader body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // Nothing left to read
+        }
+    }
+
+}
@@ -0,0 +1,303 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.bigiot.lib.offering.Offering;
+import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
+import org.joda.time.Duration;
+
+/**
+ * Keeps the subscriptions of a consumer, keyed by offering id, so that an offering which is accessed again, e.g. after
+ * every cycle of a continuous discovery, is handed out without another subscribe round trip to the marketplace.
+ *
+ * <pre>
+ * SubscriptionPool pool = SubscriptionPool.create().withIdleTimeout(Duration.standardMinutes(5));
+ * AccessResponse response = pool.acquire(offeringDescription).get().accessOneTime(accessParameters).get();
+ * ...
+ * pool.close();
+ * </pre>
+ *
+ * A subscription which has not been acquired for the idle timeout is unsubscribed. A subscription older than the
+ * refresh age is renewed in the background when it is acquired, while the old one is still handed out; the old one is
+ * unsubscribed once it reaches the maximum age. Failed subscriptions are not kept, so the next acquire tries again.
+ * Unsubscribing is a round trip to the marketplace, so it runs on a worker thread and never on the shared timer or the
+ * thread of the caller.
+ */
+public class SubscriptionPool {
+
+    private static class Subscription {
+
+        final CompletableFuture<Offering> offering;
+        final long subscribedAt = System.nanoTime();
+        final AtomicBoolean refreshing = new AtomicBoolean();
+        volatile long lastAcquired = subscribedAt;
+
+        Subscription(CompletableFuture<Offering> offering) {
+            this.offering = offering;
+        }
+
+    }
+
+    // Unsubscribe round trips, started by the timer, acquire and remove
+    private static final Executor unsubscribeExecutor = Executors
+            .newCachedThreadPool(FeedScheduler.daemonThreads("SubscriptionPool-unsubscribe"));
+
+    private long idleTimeoutNanos = TimeUnit.MINUTES.toNanos(5);
+    private long refreshAgeNanos = TimeUnit.MINUTES.toNanos(50);
+    private long maxAgeNanos = TimeUnit.MINUTES.toNanos(60);
+
+    private final ConcurrentMap<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private ScheduledFuture<?> sweep;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong subscribed = new AtomicLong();
+    private final AtomicLong totalSubscribeNanos = new AtomicLong();
+    private final AtomicLong maxSubscribeNanos = new AtomicLong();
+
+    private SubscriptionPool() {
+    }
+
+    public static SubscriptionPool create() {
+        return new SubscriptionPool();
+    }
+
+    /**
+     * Sets the time after which a subscription which has not been acquired is unsubscribed (default: 5 minutes).
+     */
+    public SubscriptionPool withIdleTimeout(Duration idleTimeout) {
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout.getMillis());
+        return this;
+    }
+
+    /**
+     * Sets the age after which a subscription is renewed when it is acquired (default: 50 minutes), and the age at
+     * which it expires, e.g. the lifetime of the access token (default: 60 minutes).
+     */
+    public SubscriptionPool withRefresh(Duration refreshAge, Duration maxAge) {
+        if (refreshAge.isLongerThan(maxAge))
+            throw new IllegalArgumentException("Refresh age must not be longer than max age");
+        this.refreshAgeNanos = TimeUnit.MILLISECONDS.toNanos(refreshAge.getMillis());
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAge.getMillis());
+        return this;
+    }
+
+    /**
+     * Returns the subscribed offering, subscribing to it only if the pool does not hold a subscription yet.
+     */
+    public CompletableFuture<Offering> acquire(SubscribableOfferingDescription offeringDescription) {
+        if (closed.get())
+            throw new IllegalStateException("Subscription pool has been closed");
+        startSweep();
+        String id = offeringDescription.getId();
+        long now = System.nanoTime();
+        Subscription subscription = subscriptions.get(id);
+        if (subscription == null || isUnusable(subscription, now)) {
+            Subscription fresh = new Subscription(new CompletableFuture<>());
+            if (subscription == null ? subscriptions.putIfAbsent(id, fresh) == null
+                    : subscriptions.replace(id, subscription, fresh)) {
+                if (subscription != null)
+                    unsubscribe(subscription);
+                misses.incrementAndGet();
+                subscribe(id, offeringDescription, fresh);
+                return fresh.offering;
+            }
+            // Another caller has just subscribed
+            return acquire(offeringDescription);
+        }
+
+        hits.incrementAndGet();
+        subscription.lastAcquired = now;
+        if (now - subscription.subscribedAt > refreshAgeNanos && subscription.offering.isDone()
+                && subscription.refreshing.compareAndSet(false, true))
+            refresh(id, offeringDescription, subscription);
+        return subscription.offering;
+    }
+
+    /**
+     * Unsubscribes from the offering right away, e.g. when it is no longer discovered.
+     */
+    public void remove(String offeringId) {
+        Subscription subscription = subscriptions.remove(offeringId);
+        if (subscription != null)
+            unsubscribe(subscription);
+    }
+
+    /**
+     * Unsubscribes from all offerings held by the pool.
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true))
+            return;
+        synchronized (this) {
+            if (sweep != null)
+                sweep.cancel(false);
+        }
+        for (String id : subscriptions.keySet())
+            remove(id);
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the share of acquisitions which did not need a new subscription.
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Returns the number of completed subscriptions, including refreshes.
+     */
+    public long getSubscribeCount() {
+        return subscribed.get();
+    }
+
+    /**
+     * Returns the average subscribe latency in milliseconds since the creation or the last reset of the statistics.
+     */
+    public double getAverageSubscribeLatency() {
+        long count = subscribed.get();
+        return count == 0 ? 0 : totalSubscribeNanos.get() / 1e6 / count;
+    }
+
+    /**
+     * Returns the maximum subscribe latency in milliseconds since the creation or the last reset of the statistics.
+     */
+    public double getMaxSubscribeLatency() {
+        return maxSubscribeNanos.get() / 1e6;
+    }
+
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        subscribed.set(0);
+        totalSubscribeNanos.set(0);
+        maxSubscribeNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SubscriptionPool [subscriptions=%d, hits=%d, misses=%d, hit rate=%.2f, "
+                + "subscribe avg=%.1f ms, max=%.1f ms]", getSubscriptionCount(), getHitCount(), getMissCount(),
+                getHitRate(), getAverageSubscribeLatency(), getMaxSubscribeLatency());
+    }
+
+    private boolean isUnusable(Subscription subscription, long now) {
+        return subscription.offering.isCompletedExceptionally() || now - subscription.subscribedAt > maxAgeNanos;
+    }
+
+    private void subscribe(String id, SubscribableOfferingDescription offeringDescription, Subscription subscription) {
+        long start = System.nanoTime();
+        CompletableFuture<Offering> offering;
+        try {
+            offering = offeringDescription.subscribe();
+        } catch (RuntimeException e) {
+            offering = new CompletableFuture<>();
+            offering.completeExceptionally(e);
+        }
+        offering.whenComplete((value, failure) -> {
+            if (failure == null) {
+                recordLatency(System.nanoTime() - start);
+                subscription.offering.complete(value);
+            } else {
+                subscriptions.remove(id, subscription);
+                subscription.offering.completeExceptionally(failure);
+            }
+        });
+    }
+
+    /**
+     * Subscribes again and replaces the subscription once the new one is active. The old subscription remains valid
+     * until its maximum age, so accesses which have just acquired it can complete.
+     */
+    private void refresh(String id, SubscribableOfferingDescription offeringDescription, Subscription subscription) {
+        Subscription fresh = new Subscription(new CompletableFuture<>());
+        fresh.lastAcquired = subscription.lastAcquired;
+        subscribe(id, offeringDescription, fresh);
+        fresh.offering.whenComplete((value, failure) -> {
+            if (failure != null) {
+                // Tried again with the next acquire
+                subscription.refreshing.set(false);
+            } else if (subscriptions.replace(id, subscription, fresh)) {
+                long remaining = Math.max(0, maxAgeNanos - (System.nanoTime() - subscription.subscribedAt));
+                SharedTimer.get().schedule(() -> unsubscribe(subscription), remaining, TimeUnit.NANOSECONDS);
+            } else {
+                unsubscribe(fresh);
+            }
+        });
+    }
+
+    private void recordLatency(long nanos) {
+        subscribed.incrementAndGet();
+        totalSubscribeNanos.addAndGet(nanos);
+        long max;
+        while ((max = maxSubscribeNanos.get()) < nanos && !maxSubscribeNanos.compareAndSet(max, nanos))
+            ;
+    }
+
+    private synchronized void startSweep() {
+        if (sweep != null)
+            return;
+        long period = Math.max(TimeUnit.SECONDS.toNanos(1), idleTimeoutNanos / 4);
+        sweep = SharedTimer.get().scheduleWithFixedDelay(this::removeIdle, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    private void removeIdle() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, Subscription> entry : subscriptions.entrySet()) {
+            Subscription subscription = entry.getValue();
+            if (subscription.offering.isDone() && now - subscription.lastAcquired > idleTimeoutNanos
+                    && subscriptions.remove(entry.getKey(), subscription))
+                unsubscribe(subscription);
+        }
+    }
+
+    private static void unsubscribe(Subscription subscription) {
+        subscription.offering.thenAcceptAsync(offering -> {
+            try {
+                offering.unsubscribe();
+            } catch (RuntimeException e) {
+                // The subscription expires anyway
+            }
+        }, unsubscribeExecutor);
+    }
+
+}
@@ -0,0 +1,359 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bigiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bigiot.lib.handlers.AccessStreamFilterHandler;
+import org.eclipse.bigiot.lib.offering.OfferingDescription;
+import org.eclipse.bigiot.lib.serverwrapper.BigIotHttpResponse;
+import org.joda.time.Duration;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Bounded access stream: the most recent output data elements of an offering are kept in a ring buffer of fixed
+ * capacity, optionally limited to a maximum age. Every element gets a sequence number, and every subscriber has a read
+ * cursor, so a subscriber receives each element at most once. A subscriber that reads too slowly misses the elements
+ * which were overwritten or expired in the meantime; the cursors never keep elements in memory. A new subscriber, and
+ * a subscriber whose cursor was dropped after 10 minutes without reading, starts with the next appended element, as
+ * the elements retained before may already have been delivered to it.
+ * <p>
+ * The stream is served to consumers via an AccessRequestHandler:
+ *
+ * <pre>
+ * AccessStreamBuffer accessStream = AccessStreamBuffer.create(1000).withMaxAge(Duration.standardMinutes(10));
+ * Endpoints endpoints = Endpoints.create(offeringDescription)
+ *         .withAccessRequestHandler(accessStream.accessRequestHandler(accessStreamFilterCallback));
+ * ...
+ * accessStream.append(jsonObject); // or accessStream.appendAll(jsonObjects) for bursts of elements
+ * </pre>
+ *
+ * A subscriber which passes the input data "since" (the "next" value of its previous response, 0 at first) reads
+ * incrementally instead of relying on its cursor at the provider: the response is then
+ * <code>{"next":n,"elements":[...]}</code> with the elements from sequence number since on. A response lost on the way
+ * is thus simply read again. Alternatively, an {@link AccessStreamPushServer} pushes the elements to the subscribers as
+ * they are appended.
+ * <p>
+ * The elements are not copied for each subscriber: the read methods return, and the filters receive, the appended
+ * JSONObjects themselves, or the decoded ones shared by all subscribers if the elements are kept in columns. They have
+ * to be treated as read-only; a filter which needs a changed element has to copy it.
+ */
+public class AccessStreamBuffer {
+
+    public static final String SINCE_INPUT = "since";
+
+    private static final long CURSOR_TIMEOUT = 10 * 60 * 1000L;
+    private static final long CLEANUP_INTERVAL = 60 * 1000L;
+
+    private final int capacity;
+    private long maxAgeMillis = Long.MAX_VALUE;
+
+    private final ElementStore elements;
+    private final long[] timestamps;
+
+    // Sequence number of the oldest retained element and of the next appended element
+    private long oldestSequence;
+    private long nextSequence;
+    private long evicted;
+
+    private final Map<String, Cursor> cursors = new HashMap<>();
+    private long nextCleanup = System.currentTimeMillis() + CLEANUP_INTERVAL;
+
+    private AccessStreamBuffer(int capacity, OutputSchema schema) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity must be positive");
+        this.capacity = capacity;
+        this.elements = schema == null ? new JsonElementStore(capacity) : new ColumnarElementStore(schema, capacity);
+        this.timestamps = new long[capacity];
+    }
+
+    /**
+     * Creates an access stream which retains at most capacity elements as they are appended.
+     */
+    public static AccessStreamBuffer create(int capacity) {
+        return new AccessStreamBuffer(capacity, null);
+    }
+
+    /**
+     * Creates an access stream which retains at most capacity elements in the compact columnar form of the output
+     * schema (see {@link ColumnarElementStore}). Elements are converted to JSON again when a subscriber reads them.
+     */
+    public static AccessStreamBuffer create(int capacity, OutputSchema schema) {
+        return new AccessStreamBuffer(capacity, schema);
+    }
+
+    /**
+     * Additionally drops elements older than maxAge.
+     */
+    public synchronized AccessStreamBuffer withMaxAge(Duration maxAge) {
+        this.maxAgeMillis = maxAge.getMillis();
+        return this;
+    }
+
+    /**
+     * Appends an element to the stream, overwriting the oldest element if the stream is full.
+     *
+     * @return the sequence number of the element
+     */
+    public synchronized long append(JSONObject element) {
+        long now = System.currentTimeMillis();
+        if (nextSequence - oldestSequence == capacity)
+            evictOldest();
+        int index = index(nextSequence);
+        elements.set(index, element);
+        timestamps[index] = now;
+        evictExpired(now);
+        notifyAll();
+        return nextSequence++;
+    }
+
+    /**
+     * Appends a batch of elements to the stream in their iteration order, under a single lock. If the batch is larger
+     * than the capacity, only its last elements are retained.
+     *
+     * @return the sequence number of the first element of the batch
+     */
+    public synchronized long appendAll(Collection<JSONObject> batch) {
+        long now = System.currentTimeMillis();
+        long first = nextSequence;
+        for (JSONObject element : batch) {
+            if (nextSequence - oldestSequence == capacity)
+                evictOldest();
+            // The sequence number is only taken once the element is stored, e.g. its text values could be encoded
+            int index = index(nextSequence);
+            elements.set(index, element);
+            timestamps[index] = now;
+            nextSequence++;
+        }
+        evictExpired(now);
+        notifyAll();
+        return first;
+    }
+
+    /**
+     * Returns the elements the subscriber has not read yet and advances its cursor. A new subscriber starts with the
+     * next appended element, so its first read returns no elements. The elements are shared, see above.
+     */
+    public List<JSONObject> read(String subscriber) {
+        List<JSONObject> unread;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            evictExpired(now);
+            removeInactiveCursors(now);
+
+            Cursor cursor = cursors.get(subscriber);
+            if (cursor == null) {
+                cursor = new Cursor(nextSequence);
+                cursors.put(subscriber, cursor);
+            }
+            unread = new ArrayList<>((int) (nextSequence - Math.max(cursor.nextSequence, oldestSequence)));
+            cursor.nextSequence = read(cursor.nextSequence, unread);
+            cursor.lastRead = now;
+        }
+        return unread;
+    }
+
+    /**
+     * Adds the retained elements with a sequence number of at least fromSequence to the list, in sequence order.
+     * Elements which were evicted before they could be read are skipped. The elements are shared, see above.
+     *
+     * @return the sequence number to continue with in the next call
+     */
+    public synchronized long read(long fromSequence, List<JSONObject> into) {
+        evictExpired(System.currentTimeMillis());
+        for (long sequence = Math.max(fromSequence, oldestSequence); sequence < nextSequence; sequence++)
+            into.add(elements.get(index(sequence)));
+        return nextSequence;
+    }
+
+    /**
+     * Waits until an element with a sequence number of at least sequence has been appended, or until the timeout
+     * (in milliseconds) has elapsed.
+     *
+     * @return the sequence number the next appended element will get
+     */
+    public synchronized long awaitAppend(long sequence, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        long remaining = timeout;
+        while (nextSequence <= sequence && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return nextSequence;
+    }
+
+    /**
+     * Returns an AccessRequestHandler which serves the unread elements of the requesting subscription, or the elements
+     * since the sequence number given as input data "since", passed through the filter (optional, may be null).
+     */
+    public AccessRequestHandler accessRequestHandler(final AccessStreamFilterHandler filter) {
+        return new AccessRequestHandler() {
+            @Override
+            public BigIotHttpResponse processRequestHandler(OfferingDescription offeringDescription,
+                    Map<String, Object> inputData, String subscriptionId, String consumerInfo) {
+
+                Object since = inputData == null ? null : inputData.get(SINCE_INPUT);
+                if (since == null) {
+                    return BigIotHttpResponse.okay().withBody(filter(read(subscriptionId), filter,
+                            offeringDescription, inputData, subscriptionId, consumerInfo));
+                }
+
+                long fromSequence = parseSequence(since);
+                if (fromSequence < 0)
+                    return BigIotHttpResponse.error().withBody("{\"status\":\"error\"}").withStatus(422).asJsonType();
+                List<JSONObject> elements = new ArrayList<>();
+                long next = read(fromSequence, elements);
+                JSONArray jsonArray = filter(elements, filter, offeringDescription, inputData, subscriptionId,
+                        consumerInfo);
+
+                JSONObject body = new JSONObject().put("next", next).put("elements", jsonArray);
+                return BigIotHttpResponse.okay().withBody(body);
+            }
+        };
+    }
+
+    /**
+     * Removes all elements. The cursors are kept, so no subscriber receives an element twice.
+     */
+    public synchronized void clear() {
+        while (oldestSequence < nextSequence)
+            evictOldest();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of retained elements.
+     */
+    public synchronized int size() {
+        return (int) (nextSequence - oldestSequence);
+    }
+
+    /**
+     * Returns the sequence number the next appended element will get.
+     */
+    public synchronized long getNextSequence() {
+        return nextSequence;
+    }
+
+    /**
+     * Returns the number of elements which were overwritten, expired or cleared.
+     */
+    public synchronized long getEvictedCount() {
+        return evicted;
+    }
+
+    private void evictExpired(long now) {
+        if (maxAgeMillis == Long.MAX_VALUE)
+            return;
+        while (oldestSequence < nextSequence && timestamps[index(oldestSequence)] < now - maxAgeMillis)
+            evictOldest();
+    }
+
+    private void evictOldest() {
+        elements.clear(index(oldestSequence));
+        oldestSequence++;
+        evicted++;
+    }
+
+    private void removeInactiveCursors(long now) {
+        if (now < nextCleanup)
+            return;
+        nextCleanup = now + CLEANUP_INTERVAL;
+        Iterator<Cursor> iterator = cursors.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().lastRead < now - CURSOR_TIMEOUT)
+                iterator.remove();
+        }
+    }
+
+    private static JSONArray filter(List<JSONObject> elements, AccessStreamFilterHandler filter,
+            OfferingDescription offeringDescription, Map<String, Object> inputData, String subscriptionId,
+            String consumerInfo) {
+        JSONArray jsonArray = new JSONArray();
+        for (JSONObject element : elements) {
+            if (filter == null || filter.processRequestHandler(offeringDescription, element, inputData,
+                    subscriptionId, consumerInfo))
+                jsonArray.put(element);
+        }
+        return jsonArray;
+    }
+
+    /**
+     * Returns the sequence number given as input data, or -1 if it is not a non-negative integer.
+     */
+    private static long parseSequence(Object value) {
+        if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            return number >= 0 && number == Math.rint(number) ? (long) number : -1;
+        }
+        try {
+            return Math.max(Long.parseLong(value.toString().trim()), -1);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % capacity);
+    }
+
+    private static final class JsonElementStore implements ElementStore {
+
+        private final JSONObject[] elements;
+
+        JsonElementStore(int capacity) {
+            elements = new JSONObject[capacity];
+        }
+
+        @Override
+        public void set(int index, JSONObject element) {
+            elements[index] = element;
+        }
+
+        @Override
+        public JSONObject get(int index) {
+            return elements[index];
+        }
+
+        @Override
+        public void clear(int index) {
+            elements[index] = null;
+        }
+
+    }
+
+    private static final class Cursor {
+
+        long nextSequence;
+        long lastRead;
+
+        Cursor(long nextSequence) {
+            this.nextSequence = nextSequence;
+        }
+
+    }
+
+}
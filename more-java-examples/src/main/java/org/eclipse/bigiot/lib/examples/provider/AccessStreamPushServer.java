@@ -0,0 +1,621 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLContext;
+
+import org.eclipse.bigiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bigiot.lib.handlers.AccessStreamFilterHandler;
+import org.eclipse.bigiot.lib.offering.OfferingDescription;
+import org.eclipse.bigiot.lib.serverwrapper.BigIotHttpResponse;
+import org.joda.time.Duration;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * Pushes the elements of an {@link AccessStreamBuffer} to its subscribers as Server-Sent Events, so subscribers receive
+ * new elements as they are appended instead of polling the offering endpoint.
+ * <p>
+ * The routes of the embedded web server of the provider are internal to the lib, so the events are served on a port
+ * of their own. Access is granted through the offering endpoint, where the lib checks the access token of the
+ * subscriber: an access with the input data "push" is answered with
+ * <code>{"stream":"https://host:port/stream","ticket":"..."}</code> instead of elements, and the subscriber passes the
+ * ticket as a bearer token in the Authorization header of the stream request. The ticket is random, valid for 30
+ * seconds and for a single connection, and bound to the subscription and the input data of that access, which are
+ * passed to the filter. A connection is closed after 5 minutes, so a subscriber needs a new authorized access to
+ * continue.
+ * <p>
+ * Like the offering endpoint, the stream is served over TLS, with the SSLContext given to {@link #withTls}; plain HTTP,
+ * which exposes the tickets and the elements on the network, has to be chosen explicitly with
+ * {@link #withPlainHttp()}, e.g. for local tests.
+ * <p>
+ * Each event carries the new elements as a JSON array in its data field, and the sequence number of the last element
+ * as its id. A new connection starts with the next appended element, or, if the subscriber reconnects with a
+ * Last-Event-ID header, with the element after that id; so no element is lost while a subscriber reconnects, as long
+ * as the buffer retains it. If no elements arrive, a comment line is sent every heartbeat interval to keep the
+ * connection open.
+ *
+ * <pre>
+ * AccessStreamPushServer pushServer = AccessStreamPushServer.create(accessStream, prop.PROVIDER_DNS_NAME, 9005)
+ *         .withTls(sslContext).withFilter(offeringDescription, accessStreamFilterCallback);
+ * Endpoints endpoints = Endpoints.create(offeringDescription).withAccessRequestHandler(
+ *         pushServer.accessRequestHandler(accessStream.accessRequestHandler(accessStreamFilterCallback)));
+ * pushServer.start();
+ * ...
+ * pushServer.stop();
+ * </pre>
+ *
+ * Every connection is written by a thread of its own, so a subscriber which reads slowly only delays itself; a
+ * connection whose write has been blocked for 10 seconds is closed. The number of connections, and so of threads, is
+ * limited (by default to 256); further subscribers are rejected with status 503 until a connection is closed.
+ * <p>
+ * By default every connection reads every appended element and passes it through the filter, so each element is
+ * filtered once per connection. With a {@link ProximityIndex}, a single dispatcher reads the appended elements and
+ * passes each one only to the connections of the subscribers near it, which still apply the filter. A connection then
+ * keeps at most 10000 elements that it has not written yet, dropping the oldest ones if its subscriber falls behind.
+ */
+public class AccessStreamPushServer {
+
+    public static final String PUSH_INPUT = "push";
+
+    private static final String PATH = "/stream";
+    private static final String BEARER = "Bearer ";
+    private static final long TICKET_TIMEOUT = 30 * 1000L;
+    private static final long WATCHDOG_INTERVAL = 1000L;
+    private static final int MAX_PENDING = 10000;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private final AccessStreamBuffer accessStream;
+    private final String host;
+    private final int port;
+    private OfferingDescription offeringDescription;
+    private AccessStreamFilterHandler filter;
+    private long heartbeatMillis = 15000;
+    private long maxConnectionAgeMillis = 5 * 60 * 1000L;
+    private long writeTimeoutMillis = 10000;
+    private int maxConnections = 256;
+    private SSLContext sslContext;
+    private boolean isPlainHttp;
+    private ProximityIndex proximityIndex;
+
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private Semaphore connectionPermits;
+    private HttpServer server;
+    private ExecutorService writers;
+    private ScheduledExecutorService watchdog;
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    // Connections are added to the proximity index and served their backlog under this lock, so the dispatcher passes
+    // them exactly the elements from dispatchedSequence on
+    private final Object dispatchLock = new Object();
+    private long dispatchedSequence;
+
+    private AccessStreamPushServer(AccessStreamBuffer accessStream, String host, int port) {
+        this.accessStream = accessStream;
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Creates a push server for the access stream which listens on the given port once started. The host is the name
+     * under which subscribers reach the provider, as used in the stream URL of the tickets.
+     */
+    public static AccessStreamPushServer create(AccessStreamBuffer accessStream, String host, int port) {
+        return new AccessStreamPushServer(accessStream, host, port);
+    }
+
+    /**
+     * Serves the stream over TLS with the given context, which holds the key and certificate of the provider, e.g. the
+     * ones of its offering endpoint.
+     */
+    public AccessStreamPushServer withTls(SSLContext sslContext) {
+        this.sslContext = sslContext;
+        return this;
+    }
+
+    /**
+     * Serves the stream over plain HTTP instead of TLS, so tickets and elements can be read on the network. Only meant
+     * for tests and for providers behind a TLS terminating proxy on the same host.
+     */
+    public AccessStreamPushServer withPlainHttp() {
+        this.isPlainHttp = true;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of open subscriber connections (default: 256).
+     */
+    public AccessStreamPushServer withMaxConnections(int maxConnections) {
+        if (maxConnections < 1)
+            throw new IllegalArgumentException("Max connections must be positive");
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    /**
+     * Passes the elements through a filter, which receives the offering description and the input data of the access
+     * which issued the ticket. The elements are shared by all connections, so the filter must not modify them.
+     */
+    public AccessStreamPushServer withFilter(OfferingDescription offeringDescription,
+            AccessStreamFilterHandler filter) {
+        this.offeringDescription = offeringDescription;
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * Passes each appended element only to the connections of the subscribers near it, whose positions the index binds
+     * from the input data of the access which issued the ticket. A subscriber without a valid position receives no
+     * elements.
+     */
+    public AccessStreamPushServer withProximityIndex(ProximityIndex proximityIndex) {
+        this.proximityIndex = proximityIndex;
+        return this;
+    }
+
+    /**
+     * Sets the interval of keep-alive comments on idle connections (default: 15 seconds).
+     */
+    public AccessStreamPushServer withHeartbeat(Duration heartbeat) {
+        this.heartbeatMillis = heartbeat.getMillis();
+        return this;
+    }
+
+    /**
+     * Sets the time after which a connection is closed and the subscriber needs a new ticket (default: 5 minutes).
+     */
+    public AccessStreamPushServer withMaxConnectionAge(Duration maxConnectionAge) {
+        this.maxConnectionAgeMillis = maxConnectionAge.getMillis();
+        return this;
+    }
+
+    /**
+     * Sets the time a single write may block before the connection is closed (default: 10 seconds).
+     */
+    public AccessStreamPushServer withWriteTimeout(Duration writeTimeout) {
+        this.writeTimeoutMillis = writeTimeout.getMillis();
+        return this;
+    }
+
+    /**
+     * Returns an AccessRequestHandler which issues a ticket for the push endpoint if the input data contains "push",
+     * and passes all other accesses to the given handler.
+     */
+    public AccessRequestHandler accessRequestHandler(final AccessRequestHandler delegate) {
+        return new AccessRequestHandler() {
+            @Override
+            public BigIotHttpResponse processRequestHandler(OfferingDescription offeringDescription,
+                    Map<String, Object> inputData, String subscriptionId, String consumerInfo) {
+
+                if (inputData == null || !inputData.containsKey(PUSH_INPUT))
+                    return delegate.processRequestHandler(offeringDescription, inputData, subscriptionId,
+                            consumerInfo);
+                if (!running)
+                    return BigIotHttpResponse.error().withBody("{\"status\":\"error\"}").withStatus(503).asJsonType();
+
+                Map<String, Object> filterInput = new HashMap<>(inputData);
+                filterInput.remove(PUSH_INPUT);
+                byte[] bytes = new byte[16];
+                random.nextBytes(bytes);
+                String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+                tickets.put(ticket, new Ticket(subscriptionId, consumerInfo, filterInput,
+                        System.currentTimeMillis() + TICKET_TIMEOUT));
+
+                JSONObject body = new JSONObject()
+                        .put("stream", (sslContext != null ? "https://" : "http://") + host + ":" + port + PATH)
+                        .put("ticket", ticket);
+                return BigIotHttpResponse.okay().withBody(body).asJsonType();
+            }
+        };
+    }
+
+    public synchronized void start() throws IOException {
+        if (running)
+            return;
+        if (sslContext == null && !isPlainHttp)
+            throw new IllegalStateException("Push server needs an SSLContext, see withTls, or withPlainHttp");
+        // A thread per open connection, and two more so further subscribers are rejected right away
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConnections + 2, maxConnections + 2, 60,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                daemonThreads("AccessStreamPushServer-" + port + "-"));
+        pool.allowCoreThreadTimeOut(true);
+        writers = pool;
+        connectionPermits = new Semaphore(maxConnections);
+        if (sslContext != null) {
+            HttpsServer httpsServer = HttpsServer.create(new InetSocketAddress(port), 0);
+            httpsServer.setHttpsConfigurator(new HttpsConfigurator(sslContext));
+            server = httpsServer;
+        } else {
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+        }
+        server.createContext(PATH, new StreamHandler());
+        server.setExecutor(writers);
+        server.start();
+
+        watchdog = Executors.newSingleThreadScheduledExecutor(daemonThreads("AccessStreamPushServer-watchdog-"));
+        watchdog.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                closeStalledConnections();
+            }
+        }, WATCHDOG_INTERVAL, WATCHDOG_INTERVAL, TimeUnit.MILLISECONDS);
+        running = true;
+
+        if (proximityIndex != null) {
+            synchronized (dispatchLock) {
+                dispatchedSequence = accessStream.getNextSequence();
+            }
+            dispatcher = daemonThreads("AccessStreamPushServer-dispatcher-").newThread(new Runnable() {
+                @Override
+                public void run() {
+                    dispatch();
+                }
+            });
+            dispatcher.start();
+        }
+    }
+
+    /**
+     * Closes all connections and stops the server.
+     */
+    public synchronized void stop() {
+        if (!running)
+            return;
+        running = false;
+        watchdog.shutdownNow();
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+            dispatcher = null;
+        }
+        server.stop(0);
+        for (Connection connection : connections)
+            connection.close();
+        writers.shutdownNow();
+        tickets.clear();
+    }
+
+    /**
+     * Returns the number of open subscriber connections.
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Passes every appended element to the connections the proximity index matches, until the server is stopped.
+     */
+    private void dispatch() {
+        List<JSONObject> elements = new ArrayList<>();
+        List<Object> matches = new ArrayList<>();
+        try {
+            while (running) {
+                long fromSequence;
+                synchronized (dispatchLock) {
+                    fromSequence = dispatchedSequence;
+                }
+                accessStream.awaitAppend(fromSequence, heartbeatMillis);
+
+                synchronized (dispatchLock) {
+                    elements.clear();
+                    long nextSequence = accessStream.read(dispatchedSequence, elements);
+                    long sequence = nextSequence - elements.size();
+                    for (JSONObject element : elements) {
+                        matches.clear();
+                        proximityIndex.match(element, matches);
+                        for (Object connection : matches)
+                            ((Connection) connection).offer(sequence, element);
+                        sequence++;
+                    }
+                    dispatchedSequence = nextSequence;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        }
+    }
+
+    private void closeStalledConnections() {
+        long now = System.currentTimeMillis();
+        Iterator<Ticket> iterator = tickets.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expiresAt < now)
+                iterator.remove();
+        }
+        for (Connection connection : connections) {
+            long writeStarted = connection.writeStarted;
+            if (writeStarted != 0 && now - writeStarted > writeTimeoutMillis)
+                connection.close();
+        }
+    }
+
+    private final class StreamHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                reject(exchange, 405);
+                return;
+            }
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            Ticket ticket = authorization != null && authorization.startsWith(BEARER)
+                    ? tickets.remove(authorization.substring(BEARER.length()).trim())
+                    : null;
+            if (ticket == null || ticket.expiresAt < System.currentTimeMillis()) {
+                reject(exchange, 403);
+                return;
+            }
+            long nextSequence;
+            try {
+                String lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+                nextSequence = lastEventId == null ? accessStream.getNextSequence()
+                        : Long.parseLong(lastEventId.trim()) + 1;
+            } catch (NumberFormatException e) {
+                nextSequence = -1;
+            }
+            if (nextSequence < 0) {
+                reject(exchange, 400);
+                return;
+            }
+
+            if (!connectionPermits.tryAcquire()) {
+                reject(exchange, 503);
+                return;
+            }
+            try {
+                exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                exchange.sendResponseHeaders(200, 0);
+
+                // The handler runs on a thread of the writer pool and keeps writing to this connection until it is
+                // closed
+                Connection connection = new Connection(exchange, ticket, nextSequence);
+                connections.add(connection);
+                try {
+                    connection.run();
+                } finally {
+                    connections.remove(connection);
+                    connection.close();
+                }
+            } finally {
+                connectionPermits.release();
+            }
+        }
+
+        private void reject(HttpExchange exchange, int status) throws IOException {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        }
+
+    }
+
+    private final class Connection {
+
+        private final HttpExchange exchange;
+        private final OutputStream out;
+        private final Ticket ticket;
+        private final Thread thread = Thread.currentThread();
+        private boolean closed;
+        // Elements passed by the dispatcher and not written yet, and the sequence number of the last one
+        private final ArrayDeque<JSONObject> pending = new ArrayDeque<>();
+        private long pendingSequence;
+        private long nextSequence;
+        private long lastWrite;
+        // Start of the write in progress, or 0
+        private volatile long writeStarted;
+
+        Connection(HttpExchange exchange, Ticket ticket, long nextSequence) {
+            this.exchange = exchange;
+            this.out = exchange.getResponseBody();
+            this.ticket = ticket;
+            this.nextSequence = nextSequence;
+        }
+
+        /**
+         * Writes the elements as they are appended, and heartbeats in between, until the connection is closed, fails or
+         * reaches its maximum age.
+         */
+        void run() {
+            long closeAt = System.currentTimeMillis() + maxConnectionAgeMillis;
+            try {
+                if (proximityIndex != null) {
+                    runIndexed(closeAt);
+                    return;
+                }
+                // Send the backlog right away instead of waiting for the next element
+                deliver(System.currentTimeMillis());
+                while (running) {
+                    long now = System.currentTimeMillis();
+                    if (now >= closeAt)
+                        return;
+                    accessStream.awaitAppend(nextSequence, Math.min(heartbeatMillis, closeAt - now));
+                    deliver(System.currentTimeMillis());
+                }
+            } catch (IOException | InterruptedException e) {
+                // Closed by the subscriber, the watchdog or stop
+            }
+        }
+
+        /**
+         * Like run, but writes the elements the dispatcher passes to the connection.
+         */
+        private void runIndexed(long closeAt) throws IOException, InterruptedException {
+            subscribe();
+            try {
+                List<JSONObject> elements = new ArrayList<>();
+                while (running) {
+                    long now = System.currentTimeMillis();
+                    if (now >= closeAt)
+                        return;
+                    long lastSequence;
+                    synchronized (this) {
+                        if (pending.isEmpty())
+                            wait(Math.min(heartbeatMillis, closeAt - now));
+                        elements.clear();
+                        elements.addAll(pending);
+                        pending.clear();
+                        lastSequence = pendingSequence;
+                    }
+                    write(elements, lastSequence, System.currentTimeMillis());
+                }
+            } finally {
+                proximityIndex.remove(this);
+            }
+        }
+
+        /**
+         * Adds the connection to the proximity index, and queues the nearby elements of its backlog which the
+         * dispatcher has already passed on.
+         */
+        private void subscribe() {
+            List<JSONObject> backlog = new ArrayList<>();
+            synchronized (dispatchLock) {
+                if (!proximityIndex.add(this, ticket.inputData))
+                    return;
+                long sequence = accessStream.read(nextSequence, backlog) - backlog.size();
+                for (JSONObject element : backlog) {
+                    if (sequence >= dispatchedSequence)
+                        break;
+                    if (proximityIndex.matches(ticket.inputData, element))
+                        offer(sequence, element);
+                    sequence++;
+                }
+            }
+        }
+
+        /**
+         * Queues an element for the connection, dropping the oldest queued element if the subscriber falls behind.
+         */
+        synchronized void offer(long sequence, JSONObject element) {
+            if (closed)
+                return;
+            if (pending.size() == MAX_PENDING)
+                pending.removeFirst();
+            pending.addLast(element);
+            pendingSequence = sequence;
+            notifyAll();
+        }
+
+        /**
+         * Writes the elements appended since the last call, or a heartbeat if it is due.
+         */
+        private void deliver(long now) throws IOException {
+            List<JSONObject> elements = new ArrayList<>();
+            nextSequence = accessStream.read(nextSequence, elements);
+            write(elements, nextSequence - 1, now);
+        }
+
+        /**
+         * Writes the elements which pass the filter as an event with the given id, or a heartbeat if none does and it
+         * is due.
+         */
+        private void write(List<JSONObject> elements, long lastSequence, long now) throws IOException {
+            JSONArray jsonArray = new JSONArray();
+            for (JSONObject element : elements) {
+                if (filter == null || filter.processRequestHandler(offeringDescription, element, ticket.inputData,
+                        ticket.subscriptionId, ticket.consumerInfo))
+                    jsonArray.put(element);
+            }
+
+            String event;
+            if (jsonArray.length() > 0)
+                event = "id: " + lastSequence + "\ndata: " + jsonArray.toString() + "\n\n";
+            else if (now - lastWrite >= heartbeatMillis)
+                event = ":\n\n";
+            else
+                return;
+            writeStarted = now;
+            out.write(event.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            writeStarted = 0;
+            lastWrite = System.currentTimeMillis();
+        }
+
+        /**
+         * Interrupts a blocked write of the connection, which closes its socket, and ends the exchange.
+         */
+        synchronized void close() {
+            if (closed)
+                return;
+            closed = true;
+            if (thread != Thread.currentThread())
+                thread.interrupt();
+            exchange.close();
+        }
+
+    }
+
+    private static final class Ticket {
+
+        final String subscriptionId;
+        final String consumerInfo;
+        final Map<String, Object> inputData;
+        final long expiresAt;
+
+        Ticket(String subscriptionId, String consumerInfo, Map<String, Object> inputData, long expiresAt) {
+            this.subscriptionId = subscriptionId;
+            this.consumerInfo = consumerInfo;
+            this.inputData = inputData;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+    private static ThreadFactory daemonThreads(final String prefix) {
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+}
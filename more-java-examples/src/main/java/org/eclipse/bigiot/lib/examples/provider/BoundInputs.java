@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import java.util.Map;
+
+/**
+ * Typed view on the input data of one request, as declared by an {@link InputBinding}. All inputs are parsed and
+ * validated once when the request is bound.
+ */
+public final class BoundInputs {
+
+    private final InputBinding binding;
+    private final double[] values;
+    private int invalidIndex;
+
+    BoundInputs(InputBinding binding) {
+        this.binding = binding;
+        this.values = new double[binding.size()];
+    }
+
+    void bind(Map<String, Object> inputData) {
+        invalidIndex = -1;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = binding.value(i, inputData);
+            if (Double.isNaN(values[i]) && invalidIndex < 0)
+                invalidIndex = i;
+        }
+    }
+
+    /**
+     * Returns true if all required inputs are present and all present inputs are valid numbers within their range.
+     */
+    public boolean isValid() {
+        return invalidIndex < 0;
+    }
+
+    /**
+     * Returns the name of the first missing or invalid input, or null if the inputs are valid.
+     */
+    public String getInvalidInput() {
+        return invalidIndex < 0 ? null : binding.name(invalidIndex);
+    }
+
+    /**
+     * Returns the value of a declared number input.
+     */
+    public double getDouble(String name) {
+        return values[binding.indexOf(name)];
+    }
+
+}
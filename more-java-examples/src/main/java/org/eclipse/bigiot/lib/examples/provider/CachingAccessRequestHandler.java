@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.bigiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bigiot.lib.offering.OfferingDescription;
+import org.eclipse.bigiot.lib.serverwrapper.BigIotHttpResponse;
+import org.joda.time.Duration;
+
+/**
+ * AccessRequestHandler which caches the successful (status 200) responses of another handler. Responses are keyed
+ * on the offering id and the input data of the request, independent of the order of the input data. The cache is
+ * bounded in size (least recently used entries are evicted first) and entries expire after a time to live.
+ * <p>
+ * Only use the cache for handlers whose response depends on nothing but the input data within the time to live:
+ *
+ * <pre>
+ * Endpoints endpoints = Endpoints.create(offeringDescription)
+ *         .withAccessRequestHandler(CachingAccessRequestHandler.create(accessCallback).withMaxEntries(1000)
+ *                 .withTimeToLive(Duration.standardSeconds(5)));
+ * </pre>
+ *
+ * Concurrent requests with the same key which miss the cache are all passed to the handler.
+ */
+public class CachingAccessRequestHandler implements AccessRequestHandler {
+
+    private static final int HTTP_OK = 200;
+
+    private final AccessRequestHandler handler;
+    private int maxEntries = 1000;
+    private long timeToLiveMillis = 5000;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final LinkedHashMap<String, CachedResponse> cache = new LinkedHashMap<String, CachedResponse>(16, 0.75f,
+            true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+            if (size() <= maxEntries)
+                return false;
+            evictions.incrementAndGet();
+            return true;
+        }
+    };
+
+    private CachingAccessRequestHandler(AccessRequestHandler handler) {
+        this.handler = handler;
+    }
+
+    public static CachingAccessRequestHandler create(AccessRequestHandler handler) {
+        return new CachingAccessRequestHandler(handler);
+    }
+
+    /**
+     * Sets the maximum number of cached responses (default: 1000).
+     */
+    public CachingAccessRequestHandler withMaxEntries(int maxEntries) {
+        if (maxEntries < 1)
+            throw new IllegalArgumentException("Max entries must be positive");
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    /**
+     * Sets the time after which a cached response expires (default: 5 seconds).
+     */
+    public CachingAccessRequestHandler withTimeToLive(Duration timeToLive) {
+        this.timeToLiveMillis = timeToLive.getMillis();
+        return this;
+    }
+
+    @Override
+    public BigIotHttpResponse processRequestHandler(OfferingDescription offeringDescription,
+            Map<String, Object> inputData, String subscriptionId, String consumerInfo) {
+
+        String key = key(offeringDescription, inputData);
+        long now = System.currentTimeMillis();
+
+        CachedResponse cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+            if (cached != null && cached.expiresAt <= now) {
+                cache.remove(key);
+                evictions.incrementAndGet();
+                cached = null;
+            }
+        }
+
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached.toResponse();
+        }
+
+        misses.incrementAndGet();
+        BigIotHttpResponse response = handler.processRequestHandler(offeringDescription, inputData, subscriptionId,
+                consumerInfo);
+        if (response != null && response.getStatus() == HTTP_OK) {
+            synchronized (cache) {
+                cache.put(key, new CachedResponse(response, now + timeToLiveMillis));
+            }
+        }
+        return response;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of entries removed because the cache was full or because they expired.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CachingAccessRequestHandler [hits=" + getHits() + ", misses=" + getMisses() + ", evictions="
+                + getEvictions() + ", size=" + getSize() + "]";
+    }
+
+    private static String key(OfferingDescription offeringDescription, Map<String, Object> inputData) {
+        StringBuilder key = new StringBuilder(64);
+        if (offeringDescription != null && offeringDescription.getId() != null)
+            key.append(offeringDescription.getId());
+        key.append('?');
+        appendNormalized(key, inputData);
+        return key.toString();
+    }
+
+    /**
+     * Appends the input data sorted by name. Names and values are length-prefixed, so no value can be mistaken for a
+     * separator.
+     */
+    private static void appendNormalized(StringBuilder key, Map<?, ?> inputData) {
+        if (inputData == null)
+            return;
+        Map<String, Object> sorted = new TreeMap<>();
+        for (Map.Entry<?, ?> entry : inputData.entrySet())
+            sorted.put(String.valueOf(entry.getKey()), entry.getValue());
+
+        key.append('{');
+        for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+            appendToken(key, entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof Map)
+                appendNormalized(key, (Map<?, ?>) value);
+            else
+                appendToken(key, value == null ? "" : value.toString().trim());
+        }
+        key.append('}');
+    }
+
+    private static void appendToken(StringBuilder key, String token) {
+        key.append(token.length()).append(':').append(token);
+    }
+
+    /**
+     * The serialized body, status and headers of a response, so hits keep its content type. Every hit gets a new
+     * response, as the lib and the handlers may modify the responses they pass on.
+     */
+    private static final class CachedResponse {
+
+        final String body;
+        final int status;
+        final Map<String, String> headers;
+        final long expiresAt;
+
+        CachedResponse(BigIotHttpResponse response, long expiresAt) {
+            this.body = response.getBody();
+            this.status = response.getStatus();
+            this.headers = response.getHeaders() == null ? Collections.<String, String> emptyMap()
+                    : new LinkedHashMap<>(response.getHeaders());
+            this.expiresAt = expiresAt;
+        }
+
+        BigIotHttpResponse toResponse() {
+            BigIotHttpResponse response = BigIotHttpResponse.okay().withStatus(status).withBody(body);
+            for (Map.Entry<String, String> header : headers.entrySet())
+                response.withHeader(header.getKey(), header.getValue());
+            return response;
+        }
+
+    }
+
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.bigiot.lib.model.BigIotTypes.ValueType;
+import org.json.JSONObject;
+
+/**
+ * Stores the elements of an access stream column by column, as declared by an {@link OutputSchema}: NUMBER output data
+ * in a double column, TEXT output data (e.g. a status like "available"/"occupied") as one byte per element referring
+ * to a dictionary of at most 255 distinct values. Output data which is not declared is dropped, missing output data is
+ * omitted again when the element is read.
+ * <p>
+ * The elements read last are kept decoded in a small direct-mapped cache, so subscribers reading the same new
+ * elements share one JSONObject per element instead of decoding it again for each of them. These elements are
+ * therefore read-only: a change to one would be seen by every subscriber which reads it from the cache, but not by the
+ * ones which decode it again from the columns.
+ */
+class ColumnarElementStore implements ElementStore {
+
+    private static final int MAX_DICTIONARY_SIZE = 255;
+    private static final int DECODED_CACHE_SIZE = 1024;
+
+    private final String[] numberNames;
+    private final double[][] numberColumns;
+
+    private final TextColumn[] textColumns;
+    // Codes of the text values of the element being set, so nothing is written if one of them cannot be encoded
+    private final byte[] encoded;
+
+    private final JSONObject[] decoded;
+    private final int[] decodedIndexes;
+
+    ColumnarElementStore(OutputSchema schema, int capacity) {
+        int numbers = 0, texts = 0;
+        for (ValueType valueType : schema.getValueTypes()) {
+            if (valueType == ValueType.NUMBER)
+                numbers++;
+            else if (valueType == ValueType.TEXT)
+                texts++;
+            else
+                throw new IllegalArgumentException("Only NUMBER and TEXT output data can be stored in columns");
+        }
+
+        numberNames = new String[numbers];
+        numberColumns = new double[numbers][capacity];
+        textColumns = new TextColumn[texts];
+        encoded = new byte[texts];
+
+        numbers = 0;
+        texts = 0;
+        for (int i = 0; i < schema.size(); i++) {
+            if (schema.getValueTypes().get(i) == ValueType.NUMBER)
+                numberNames[numbers++] = schema.getNames().get(i);
+            else
+                textColumns[texts++] = new TextColumn(schema.getNames().get(i), capacity);
+        }
+        for (double[] column : numberColumns)
+            Arrays.fill(column, Double.NaN);
+
+        decoded = new JSONObject[Math.min(capacity, DECODED_CACHE_SIZE)];
+        decodedIndexes = new int[decoded.length];
+    }
+
+    @Override
+    public void set(int index, JSONObject element) {
+        for (int c = 0; c < textColumns.length; c++)
+            encoded[c] = textColumns[c].encode(element.optString(textColumns[c].name, null));
+
+        for (int c = 0; c < numberNames.length; c++)
+            numberColumns[c][index] = element.optDouble(numberNames[c], Double.NaN);
+        for (int c = 0; c < textColumns.length; c++)
+            textColumns[c].codes[index] = encoded[c];
+        clear(index);
+    }
+
+    @Override
+    public JSONObject get(int index) {
+        int slot = index % decoded.length;
+        JSONObject element = decoded[slot];
+        if (element != null && decodedIndexes[slot] == index)
+            return element;
+
+        element = new JSONObject();
+        for (int c = 0; c < numberNames.length; c++) {
+            double value = numberColumns[c][index];
+            if (!Double.isNaN(value))
+                element.put(numberNames[c], value);
+        }
+        for (TextColumn column : textColumns) {
+            String value = column.decode(index);
+            if (value != null)
+                element.put(column.name, value);
+        }
+        decoded[slot] = element;
+        decodedIndexes[slot] = index;
+        return element;
+    }
+
+    @Override
+    public void clear(int index) {
+        // Primitive columns hold no references and are overwritten by the next element, only the decoded form goes
+        int slot = index % decoded.length;
+        if (decodedIndexes[slot] == index)
+            decoded[slot] = null;
+    }
+
+    private static final class TextColumn {
+
+        final String name;
+        // Code 0 means missing, code i refers to dictionary entry i - 1
+        final byte[] codes;
+        final String[] dictionary = new String[MAX_DICTIONARY_SIZE];
+        final Map<String, Byte> codesByValue = new HashMap<>();
+
+        TextColumn(String name, int capacity) {
+            this.name = name;
+            this.codes = new byte[capacity];
+        }
+
+        byte encode(String value) {
+            if (value == null)
+                return 0;
+            Byte code = codesByValue.get(value);
+            if (code == null) {
+                int size = codesByValue.size();
+                if (size == MAX_DICTIONARY_SIZE)
+                    throw new IllegalStateException("Output data '" + name + "' has more than " + MAX_DICTIONARY_SIZE
+                            + " distinct values");
+                dictionary[size] = value;
+                code = (byte) (size + 1);
+                codesByValue.put(value, code);
+            }
+            return code;
+        }
+
+        String decode(int index) {
+            int code = codes[index] & 0xFF;
+            return code == 0 ? null : dictionary[code - 1];
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed precision formatting of doubles without Formatter and without boxing. The output is the same text as
+ * String.format(Locale.US, "%.nf", value), e.g. for coordinates ("%.4f") and distances ("%.2f") in provider responses.
+ * <p>
+ * Values for which the scaled value does not fit into the fast path (very large values, or values exactly between two
+ * representable results) are formatted via BigDecimal, exactly like Formatter does.
+ */
+public final class FixedPointFormat {
+
+    /**
+     * Maximum number of decimals supported
+     */
+    public static final int MAX_DECIMALS = 9;
+
+    private static final long[] POWERS_OF_TEN = { 1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+            100000000L, 1000000000L };
+
+    // Scaled values below this limit are precise enough to decide the rounding direction outside of the tie window
+    private static final double MAX_FAST_SCALED_VALUE = 1e9;
+    private static final double TIE_WINDOW = 1e-6;
+
+    private FixedPointFormat() {
+    }
+
+    /**
+     * Appends the value with the given number of decimals to the StringBuilder.
+     */
+    public static StringBuilder append(StringBuilder target, double value, int decimals) {
+        checkDecimals(decimals);
+        if (Double.isNaN(value) || Double.isInfinite(value))
+            return target.append(value);
+
+        boolean negative = isNegative(value);
+        double scaled = Math.abs(value) * POWERS_OF_TEN[decimals];
+        long rounded = roundFast(scaled);
+        if (rounded < 0)
+            return target.append(formatExact(value, decimals));
+
+        if (negative)
+            target.append('-');
+        long unit = POWERS_OF_TEN[decimals];
+        target.append(rounded / unit);
+        if (decimals > 0) {
+            target.append('.');
+            long fraction = rounded % unit;
+            for (long digit = unit / 10; digit > fraction && digit > 1; digit /= 10)
+                target.append('0');
+            target.append(fraction);
+        }
+        return target;
+    }
+
+    /**
+     * Writes the value with the given number of decimals as US-ASCII into the byte array, starting at offset.
+     *
+     * @return the offset after the last written byte
+     * @throws ArrayIndexOutOfBoundsException
+     *             if the array is too small, 32 bytes are always sufficient for values below 10^20
+     */
+    public static int encode(byte[] target, int offset, double value, int decimals) {
+        checkDecimals(decimals);
+        if (Double.isNaN(value) || Double.isInfinite(value))
+            return encodeChars(target, offset, Double.toString(value));
+
+        boolean negative = isNegative(value);
+        double scaled = Math.abs(value) * POWERS_OF_TEN[decimals];
+        long rounded = roundFast(scaled);
+        if (rounded < 0)
+            return encodeChars(target, offset, formatExact(value, decimals));
+
+        if (negative)
+            target[offset++] = '-';
+
+        // Write the digits backwards, starting with the last decimal
+        int length = digits(rounded / POWERS_OF_TEN[decimals]) + (decimals > 0 ? decimals + 1 : 0);
+        int position = offset + length;
+        for (int i = 0; i < decimals; i++) {
+            target[--position] = (byte) ('0' + rounded % 10);
+            rounded /= 10;
+        }
+        if (decimals > 0)
+            target[--position] = '.';
+        do {
+            target[--position] = (byte) ('0' + rounded % 10);
+            rounded /= 10;
+        } while (rounded > 0);
+
+        return offset + length;
+    }
+
+    /**
+     * Rounds the (positive) scaled value half-up, or returns -1 if the value has to be formatted exactly.
+     */
+    private static long roundFast(double scaled) {
+        if (!(scaled < MAX_FAST_SCALED_VALUE))
+            return -1;
+        long integral = (long) scaled;
+        double fraction = scaled - integral;
+        if (Math.abs(fraction - 0.5) < TIE_WINDOW)
+            return -1;
+        return fraction > 0.5 ? integral + 1 : integral;
+    }
+
+    /**
+     * Formatter rounds the shortest decimal representation of the value (as printed by Double.toString) half-up.
+     */
+    private static String formatExact(double value, int decimals) {
+        String formatted = new BigDecimal(Double.toString(Math.abs(value))).setScale(decimals, RoundingMode.HALF_UP)
+                .toPlainString();
+        return isNegative(value) ? "-" + formatted : formatted;
+    }
+
+    private static boolean isNegative(double value) {
+        // Also true for -0.0, which Formatter prints with a sign
+        return Double.doubleToRawLongBits(value) < 0;
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static int encodeChars(byte[] target, int offset, String text) {
+        for (int i = 0; i < text.length(); i++)
+            target[offset++] = (byte) text.charAt(i);
+        return offset;
+    }
+
+    private static void checkDecimals(int decimals) {
+        if (decimals < 0 || decimals > MAX_DECIMALS)
+            throw new IllegalArgumentException("Decimals must be between 0 and " + MAX_DECIMALS + ": " + decimals);
+    }
+
+}
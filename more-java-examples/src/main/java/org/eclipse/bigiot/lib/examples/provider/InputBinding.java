@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Declares the numeric input data an AccessRequestHandler expects, using the same names as the addInputData (and
+ * ObjectParameter member) declarations of its offering. Members of object parameters are addressed with a dot, e.g.
+ * "center.latitude".
+ * <p>
+ * The declarations are made once per handler; for each request the input data map is bound to a reusable
+ * {@link BoundInputs} view with primitive getters:
+ *
+ * <pre>
+ * private static final InputBinding inputBinding = InputBinding.create().addOptionalNumber("latitude", 9.0)
+ *         .addOptionalNumber("longitude", 41.0);
+ * ...
+ * BoundInputs inputs = inputBinding.bind(inputData);
+ * if (!inputs.isValid())
+ *     return BigIotHttpResponse.error().withBody("{\"status\":\"error\"}").withStatus(422).asJsonType();
+ * double latitude = inputs.getDouble("latitude");
+ * </pre>
+ */
+public final class InputBinding {
+
+    private String[] names = new String[0];
+    private String[][] paths = new String[0][];
+    private boolean[] required = new boolean[0];
+    private double[] defaults = new double[0];
+    private double[] minimums = new double[0];
+    private double[] maximums = new double[0];
+
+    private final ThreadLocal<BoundInputs> views = new ThreadLocal<BoundInputs>() {
+        @Override
+        protected BoundInputs initialValue() {
+            return new BoundInputs(InputBinding.this);
+        }
+    };
+
+    private InputBinding() {
+    }
+
+    public static InputBinding create() {
+        return new InputBinding();
+    }
+
+    /**
+     * Declares a number input which has to be present in every request.
+     */
+    public InputBinding addRequiredNumber(String name) {
+        return add(name, true, Double.NaN, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Declares a number input which has to be present in every request and has to be within [min, max].
+     */
+    public InputBinding addRequiredNumber(String name, double min, double max) {
+        return add(name, true, Double.NaN, min, max);
+    }
+
+    /**
+     * Declares a number input which takes the default value if it is not present in a request.
+     */
+    public InputBinding addOptionalNumber(String name, double defaultValue) {
+        return add(name, false, defaultValue, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Binds the input data of a request. The returned view is reused for the next request of the calling thread, so it
+     * must neither be kept nor passed to other threads.
+     */
+    public BoundInputs bind(Map<String, Object> inputData) {
+        BoundInputs inputs = views.get();
+        inputs.bind(inputData);
+        return inputs;
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name))
+                return i;
+        }
+        throw new IllegalArgumentException("Input data '" + name + "' is not declared");
+    }
+
+    String name(int index) {
+        return names[index];
+    }
+
+    /**
+     * Returns the value of the declared input, its default value if it is optional and absent, or NaN if it is invalid.
+     */
+    double value(int index, Map<String, Object> inputData) {
+        Object value = lookup(paths[index], inputData);
+        if (value == null)
+            return required[index] ? Double.NaN : defaults[index];
+
+        double number;
+        if (value instanceof Number) {
+            number = ((Number) value).doubleValue();
+        } else if (value instanceof String) {
+            try {
+                number = Double.parseDouble((String) value);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        } else {
+            return Double.NaN;
+        }
+        return (number >= minimums[index] && number <= maximums[index]) ? number : Double.NaN;
+    }
+
+    private static Object lookup(String[] path, Map<?, ?> inputData) {
+        Map<?, ?> map = inputData;
+        for (int i = 0; i < path.length - 1; i++) {
+            Object member = map.get(path[i]);
+            if (!(member instanceof Map))
+                return null;
+            map = (Map<?, ?>) member;
+        }
+        return map.get(path[path.length - 1]);
+    }
+
+    private InputBinding add(String name, boolean isRequired, double defaultValue, double min, double max) {
+        int n = names.length;
+        names = Arrays.copyOf(names, n + 1);
+        paths = Arrays.copyOf(paths, n + 1);
+        required = Arrays.copyOf(required, n + 1);
+        defaults = Arrays.copyOf(defaults, n + 1);
+        minimums = Arrays.copyOf(minimums, n + 1);
+        maximums = Arrays.copyOf(maximums, n + 1);
+
+        names[n] = name;
+        paths[n] = name.split("\\.");
+        required[n] = isRequired;
+        defaults[n] = defaultValue;
+        minimums[n] = min;
+        maximums[n] = max;
+        return this;
+    }
+
+}
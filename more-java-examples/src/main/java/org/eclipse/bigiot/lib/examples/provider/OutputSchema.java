@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.bigiot.lib.model.BigIotTypes.ValueType;
+import org.eclipse.bigiot.lib.offering.RegistrableOfferingDescription;
+
+/**
+ * Names, RDF types and value types of the output data of an offering. The schema is the single declaration of the
+ * output data: it adds them to the offering description, and an {@link AccessStreamBuffer} stores its elements in the
+ * columns of the schema.
+ *
+ * <pre>
+ * OutputSchema schema = OutputSchema.create().addOutputData("lon", "schema:longitude", ValueType.NUMBER)
+ *         .addOutputData("lat", "schema:latitude", ValueType.NUMBER)
+ *         .addOutputData("status", "datex:parkingSpaceStatus", ValueType.TEXT);
+ * schema.addOutputDataTo(offeringDescription);
+ * </pre>
+ */
+public final class OutputSchema {
+
+    private final List<String> names = new ArrayList<>();
+    private final List<String> rdfTypes = new ArrayList<>();
+    private final List<ValueType> valueTypes = new ArrayList<>();
+
+    private OutputSchema() {
+    }
+
+    public static OutputSchema create() {
+        return new OutputSchema();
+    }
+
+    public OutputSchema addOutputData(String name, String rdfType, ValueType valueType) {
+        if (names.contains(name))
+            throw new IllegalArgumentException("Output data '" + name + "' is already declared");
+        names.add(name);
+        rdfTypes.add(rdfType);
+        valueTypes.add(valueType);
+        return this;
+    }
+
+    /**
+     * Adds the output data of the schema to the offering description, in the order they were declared.
+     */
+    public RegistrableOfferingDescription addOutputDataTo(RegistrableOfferingDescription offeringDescription) {
+        for (int i = 0; i < names.size(); i++)
+            offeringDescription.addOutputData(names.get(i), rdfTypes.get(i), valueTypes.get(i));
+        return offeringDescription;
+    }
+
+    public List<String> getNames() {
+        return Collections.unmodifiableList(names);
+    }
+
+    public List<String> getRdfTypes() {
+        return Collections.unmodifiableList(rdfTypes);
+    }
+
+    public List<ValueType> getValueTypes() {
+        return Collections.unmodifiableList(valueTypes);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+/**
+ * Writes the parking spot records of the complex parking offering (geoCoordinates, distance, status) as a JSON array
+ * directly into a buffer that is reused for all responses of the same thread.
+ * <p>
+ * Usage within an AccessRequestHandler:
+ *
+ * <pre>
+ * ParkingSpotJsonWriter writer = ParkingSpotJsonWriter.get();
+ * for (...)
+ *     writer.writeSpot(latitude, longitude, distance, "available");
+ * return BigIotHttpResponse.okay().withBody(writer.toJson()).asJsonType();
+ * </pre>
+ */
+public final class ParkingSpotJsonWriter {
+
+    private static final int INITIAL_CAPACITY = 4 * 1024;
+
+    // Buffers which grew beyond this size are not kept for the next response
+    private static final int MAX_RETAINED_CAPACITY = 256 * 1024;
+
+    private static final ThreadLocal<ParkingSpotJsonWriter> writers = new ThreadLocal<ParkingSpotJsonWriter>() {
+        @Override
+        protected ParkingSpotJsonWriter initialValue() {
+            return new ParkingSpotJsonWriter();
+        }
+    };
+
+    private StringBuilder buffer;
+    private int spots;
+
+    private ParkingSpotJsonWriter() {
+        allocateBuffer();
+    }
+
+    /**
+     * Returns the (empty) writer of the calling thread. The writer must not be shared with other threads and must not
+     * be used anymore after the next call of get() on the same thread.
+     */
+    public static ParkingSpotJsonWriter get() {
+        ParkingSpotJsonWriter writer = writers.get();
+        writer.reset();
+        return writer;
+    }
+
+    /**
+     * Appends one parking spot record to the JSON array.
+     */
+    public ParkingSpotJsonWriter writeSpot(double latitude, double longitude, double distance, String status) {
+        if (spots++ > 0)
+            buffer.append(",\n");
+        buffer.append("{\"geoCoordinates\":{\n\"latitude\": ");
+        FixedPointFormat.append(buffer, latitude, 4);
+        buffer.append(",\n\"longitude\": ");
+        FixedPointFormat.append(buffer, longitude, 4);
+        buffer.append("},\n\"distance\": ");
+        FixedPointFormat.append(buffer, distance, 2);
+        buffer.append(",\n\"status\":\"").append(status).append("\"\n}");
+        return this;
+    }
+
+    /**
+     * Returns the number of records written since the last call of get().
+     */
+    public int size() {
+        return spots;
+    }
+
+    /**
+     * Returns the complete JSON array. This is the only String created for a response.
+     */
+    public String toJson() {
+        int length = buffer.length();
+        String json = buffer.append(']').toString();
+        buffer.setLength(length);
+        return json;
+    }
+
+    private void reset() {
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY)
+            allocateBuffer();
+        buffer.setLength(0);
+        buffer.append('[');
+        spots = 0;
+    }
+
+    private void allocateBuffer() {
+        buffer = new StringBuilder(INITIAL_CAPACITY);
+    }
+
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.JSONObject;
+
+/**
+ * Grid index over the positions of the subscribers of an access stream, which finds the subscribers near an element
+ * without comparing the element with every subscriber.
+ * <p>
+ * A subscriber is near an element if its latitude or its longitude differs less than the tolerance from the one of the
+ * element, which is the filter rule of the parking access stream of ExampleProviderAccessStream. The subscribers are
+ * therefore kept in latitude rows and longitude columns of the width of the tolerance, and an element is only compared
+ * with the subscribers in the three rows and the three columns around it.
+ * <p>
+ * The position of a subscriber is bound from the input data of its access, the one of an element read from its
+ * values:
+ *
+ * <pre>
+ * ProximityIndex proximityIndex = ProximityIndex.create(0.005)
+ *         .withSubscriberPosition(inputBinding, "latitude", "longitude").withElementPosition("lat", "lon");
+ * </pre>
+ *
+ * An {@link AccessStreamPushServer} uses the index to pass every appended element to the nearby connections only.
+ */
+public final class ProximityIndex {
+
+    private final double tolerance;
+    private InputBinding inputBinding = InputBinding.create().addRequiredNumber("latitude")
+            .addRequiredNumber("longitude");
+    private String latitudeInput = "latitude";
+    private String longitudeInput = "longitude";
+    private String latitudeOutput = "lat";
+    private String longitudeOutput = "lon";
+
+    // Guarded by this
+    private final Map<Object, double[]> positions = new HashMap<>();
+    private final Map<Long, Set<Object>> rows = new HashMap<>();
+    private final Map<Long, Set<Object>> columns = new HashMap<>();
+
+    private ProximityIndex(double tolerance) {
+        if (!(tolerance > 0))
+            throw new IllegalArgumentException("Tolerance must be positive");
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Creates an index which matches elements whose latitude or longitude differs less than the tolerance (in degrees)
+     * from the one of a subscriber.
+     */
+    public static ProximityIndex create(double tolerance) {
+        return new ProximityIndex(tolerance);
+    }
+
+    /**
+     * Binds the position of a subscriber from its input data with the given binding, which declares the latitude and
+     * longitude inputs (default: the required numbers "latitude" and "longitude").
+     */
+    public ProximityIndex withSubscriberPosition(InputBinding inputBinding, String latitudeInput,
+            String longitudeInput) {
+        this.inputBinding = inputBinding;
+        this.latitudeInput = latitudeInput;
+        this.longitudeInput = longitudeInput;
+        return this;
+    }
+
+    /**
+     * Reads the position of an element from the given values (default: "lat" and "lon").
+     */
+    public ProximityIndex withElementPosition(String latitudeOutput, String longitudeOutput) {
+        this.latitudeOutput = latitudeOutput;
+        this.longitudeOutput = longitudeOutput;
+        return this;
+    }
+
+    /**
+     * Returns true if the element is near the subscriber with the given input data.
+     */
+    public boolean matches(Map<String, Object> inputData, JSONObject element) {
+        double[] position = position(inputData);
+        return position != null && isNear(position, element.optDouble(latitudeOutput, Double.NaN),
+                element.optDouble(longitudeOutput, Double.NaN));
+    }
+
+    /**
+     * Adds a subscriber at the position bound from its input data.
+     *
+     * @return false if the input data holds no valid position, the subscriber then matches no element
+     */
+    synchronized boolean add(Object subscriber, Map<String, Object> inputData) {
+        double[] position = position(inputData);
+        if (position == null)
+            return false;
+        remove(subscriber);
+        positions.put(subscriber, position);
+        strip(rows, cell(position[0])).add(subscriber);
+        strip(columns, cell(position[1])).add(subscriber);
+        return true;
+    }
+
+    synchronized void remove(Object subscriber) {
+        double[] position = positions.remove(subscriber);
+        if (position == null)
+            return;
+        unlink(rows, cell(position[0]), subscriber);
+        unlink(columns, cell(position[1]), subscriber);
+    }
+
+    /**
+     * Adds the subscribers near the element to the collection, each once. An element without a position matches no
+     * subscriber.
+     */
+    synchronized void match(JSONObject element, Collection<Object> into) {
+        double latitude = element.optDouble(latitudeOutput, Double.NaN);
+        double longitude = element.optDouble(longitudeOutput, Double.NaN);
+        if (Double.isNaN(latitude) || Double.isNaN(longitude))
+            return;
+        Set<Object> matches = new LinkedHashSet<>();
+        collect(rows, cell(latitude), latitude, longitude, matches);
+        collect(columns, cell(longitude), latitude, longitude, matches);
+        into.addAll(matches);
+    }
+
+    /**
+     * Returns the number of indexed subscribers.
+     */
+    public synchronized int size() {
+        return positions.size();
+    }
+
+    private double[] position(Map<String, Object> inputData) {
+        BoundInputs inputs = inputBinding.bind(inputData);
+        if (!inputs.isValid())
+            return null;
+        return new double[] { inputs.getDouble(latitudeInput), inputs.getDouble(longitudeInput) };
+    }
+
+    private boolean isNear(double[] position, double latitude, double longitude) {
+        return Math.abs(position[0] - latitude) < tolerance || Math.abs(position[1] - longitude) < tolerance;
+    }
+
+    private void collect(Map<Long, Set<Object>> strips, long cell, double latitude, double longitude,
+            Set<Object> matches) {
+        for (long c = cell - 1; c <= cell + 1; c++) {
+            Set<Object> strip = strips.get(c);
+            if (strip == null)
+                continue;
+            for (Object subscriber : strip) {
+                if (isNear(positions.get(subscriber), latitude, longitude))
+                    matches.add(subscriber);
+            }
+        }
+    }
+
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate / tolerance);
+    }
+
+    private static Set<Object> strip(Map<Long, Set<Object>> strips, long cell) {
+        Set<Object> strip = strips.get(cell);
+        if (strip == null) {
+            strip = new LinkedHashSet<>();
+            strips.put(cell, strip);
+        }
+        return strip;
+    }
+
+    private static void unlink(Map<Long, Set<Object>> strips, long cell, Object subscriber) {
+        Set<Object> strip = strips.get(cell);
+        if (strip != null && strip.remove(subscriber) && strip.isEmpty())
+            strips.remove(cell);
+    }
+
+}
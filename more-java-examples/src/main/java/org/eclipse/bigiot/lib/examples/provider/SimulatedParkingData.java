@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Random data generation for the simulated parking providers. All values are drawn from the ThreadLocalRandom of the
+ * calling thread, so the web server threads of a provider neither allocate a Random per request nor contend on a
+ * shared one.
+ */
+public final class SimulatedParkingData {
+
+    private SimulatedParkingData() {
+    }
+
+    /**
+     * Returns the random generator of the calling thread. It must not be passed to other threads.
+     */
+    public static Random random() {
+        return ThreadLocalRandom.current();
+    }
+
+    /**
+     * Returns the number of parking spots of a response (10 to 20).
+     */
+    public static int spotCount() {
+        return Math.round(random().nextFloat() * 10 + 10);
+    }
+
+    /**
+     * Returns a coordinate up to 0.01 degrees away from the given one.
+     */
+    public static double nearby(double coordinate) {
+        return coordinate + random().nextFloat() * 0.01;
+    }
+
+    /**
+     * Returns a random parking spot status ("available" or "occupied").
+     */
+    public static String status() {
+        return random().nextBoolean() ? "available" : "occupied";
+    }
+
+    /**
+     * Returns 10 to 20 parking spots (lat, lon, status) around the given location.
+     */
+    public static JSONArray parkingSpots(double latitude, double longitude) {
+        JSONArray jsonArray = new JSONArray();
+        int n = spotCount();
+        for (int i = 0; i < n; i++) {
+            JSONObject jsonObject = new JSONObject().put("lat", nearby(latitude)).put("lon", nearby(longitude))
+                    .put("status", status());
+            jsonArray.put(jsonObject);
+        }
+        return jsonArray;
+    }
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.joda.time.Duration;
+import org.junit.Test;
+
+public class AdaptiveIntervalTest {
+
+    @Test
+    public void backsOffUpToTheMaximumAndDropsBackOnChange() {
+        AdaptiveInterval interval = AdaptiveInterval.create(Duration.millis(100), Duration.millis(1000)).withJitter(0);
+
+        assertEquals(200, interval.unchanged());
+        assertEquals(400, interval.failed());
+        assertEquals(800, interval.unchanged());
+        assertEquals(1000, interval.unchanged());
+        assertEquals(1000, interval.unchanged());
+        assertEquals(100, interval.changed());
+        assertEquals(100, interval.getInterval());
+    }
+
+    @Test
+    public void zeroMinimumStillBacksOff() {
+        AdaptiveInterval interval = AdaptiveInterval.create(Duration.ZERO, Duration.millis(10)).withJitter(0)
+                .withBackoffFactor(3);
+
+        assertEquals(0, interval.changed());
+        assertEquals(3, interval.unchanged());
+        assertEquals(9, interval.unchanged());
+        assertEquals(10, interval.unchanged());
+    }
+
+    @Test
+    public void rateLimitWaitsForTheRetryDelayOfTheProvider() {
+        AdaptiveInterval interval = AdaptiveInterval.create(Duration.millis(100), Duration.millis(1000)).withJitter(0);
+
+        assertEquals(5000, interval.rateLimited(5000));
+        assertEquals(1000, interval.getInterval());
+        assertEquals(100, interval.rateLimited(10));
+        assertEquals(1000, interval.rateLimited(-1));
+        assertEquals(100, interval.changed());
+    }
+
+    @Test
+    public void fixedIntervalDoesNotAdapt() {
+        AdaptiveInterval interval = AdaptiveInterval.fixed(Duration.millis(500));
+
+        assertEquals(500, interval.unchanged());
+        assertEquals(500, interval.failed());
+        assertEquals(500, interval.changed());
+    }
+
+    @Test
+    public void jitterStaysWithinItsFraction() {
+        AdaptiveInterval interval = AdaptiveInterval.create(Duration.millis(1000), Duration.millis(1000))
+                .withJitter(0.1);
+        boolean deviated = false;
+        for (int i = 0; i < 1000; i++) {
+            long delay = interval.changed();
+            assertTrue(String.valueOf(delay), delay >= 900 && delay <= 1100);
+            deviated |= delay != 1000;
+        }
+        assertTrue(deviated);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMaximumBelowMinimum() {
+        AdaptiveInterval.create(Duration.millis(1000), Duration.millis(100));
+    }
+
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.bigiot.lib.Consumer;
+import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
+import org.eclipse.bigiot.lib.query.IOfferingQuery;
+import org.joda.time.Duration;
+import org.junit.Test;
+
+public class BatchDiscoveryTest {
+
+    // The marketplace queries sent, and the futures the consumer answers them with
+    private final List<String> discovered = new CopyOnWriteArrayList<>();
+    private final Map<String, CompletableFuture<List<SubscribableOfferingDescription>>> responses =
+            new ConcurrentHashMap<>();
+
+    private final Consumer consumer = new Consumer("TestOrganization-TestConsumer", "https://localhost:8443") {
+        @Override
+        public CompletableFuture<List<SubscribableOfferingDescription>> discover(IOfferingQuery query) {
+            discovered.add(query.toOfferingQueryString());
+            return responses.computeIfAbsent(query.toOfferingQueryString(), k -> new CompletableFuture<>());
+        }
+    };
+
+    @Test
+    public void queriesWithTheSameMarketplaceQueryAreDiscoveredOnce() throws Exception {
+        IOfferingQuery parking = query("parking");
+        IOfferingQuery sameParking = query("parking");
+        List<SubscribableOfferingDescription> parkingOfferings = Arrays.asList(description("p1"), description("p2"));
+        answer("parking", parkingOfferings);
+
+        BatchDiscovery batchDiscovery = BatchDiscovery.create(consumer).add(parking).add(sameParking);
+        BatchDiscovery.Result result = batchDiscovery.discover().get(1, TimeUnit.SECONDS);
+
+        assertEquals(Collections.singletonList("parking"), discovered);
+        assertEquals(1, batchDiscovery.getDiscoveryCount());
+        assertSame(parkingOfferings, result.getOfferingDescriptions(parking));
+        assertSame(parkingOfferings, result.getOfferingDescriptions(sameParking));
+    }
+
+    @Test
+    public void resultsAreSpreadToTheQueriesInTheOrderTheyWereAdded() throws Exception {
+        IOfferingQuery parking = query("parking");
+        IOfferingQuery weather = query("weather");
+        IOfferingQuery sameParking = query("parking");
+        IOfferingQuery traffic = query("traffic");
+        answer("parking", Collections.singletonList(description("p")));
+        answer("weather", Collections.singletonList(description("w")));
+        answer("traffic", Collections.singletonList(description("t")));
+
+        BatchDiscovery.Result result = BatchDiscovery.create(consumer)
+                .addAll(Arrays.asList(parking, weather, sameParking, traffic)).discover().get(1, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(parking, weather, sameParking, traffic),
+                new ArrayList<>(result.getOfferingDescriptions().keySet()));
+        assertEquals("p", result.getOfferingDescriptions(sameParking).get(0).getId());
+        assertEquals("w", result.getOfferingDescriptions(weather).get(0).getId());
+        assertEquals("t", result.getOfferingDescriptions(traffic).get(0).getId());
+        assertTrue(result.getFailures().isEmpty());
+    }
+
+    @Test
+    public void failedQueriesDoNotFailTheOthers() throws Exception {
+        IOfferingQuery parking = query("parking");
+        IOfferingQuery weather = query("weather");
+        IOfferingQuery sameWeather = query("weather");
+        answer("parking", Collections.singletonList(description("p")));
+        IllegalStateException failure = new IllegalStateException("Marketplace error");
+        responses.computeIfAbsent("weather", k -> new CompletableFuture<>()).completeExceptionally(failure);
+
+        BatchDiscovery.Result result = BatchDiscovery.create(consumer).add(weather).add(parking).add(sameWeather)
+                .discover().get(1, TimeUnit.SECONDS);
+
+        assertEquals(Collections.singletonList(parking), new ArrayList<>(result.getOfferingDescriptions().keySet()));
+        assertEquals(Arrays.asList(weather, sameWeather), new ArrayList<>(result.getFailures().keySet()));
+        assertSame(failure, rootCause(result.getFailures().get(sameWeather)));
+        assertEquals(Collections.emptyList(), result.getOfferingDescriptions(weather));
+    }
+
+    @Test
+    public void queriesWithoutAnswerFailWithATimeout() throws Exception {
+        IOfferingQuery parking = query("parking");
+        IOfferingQuery weather = query("weather");
+        answer("parking", null);
+
+        BatchDiscovery.Result result = BatchDiscovery.create(consumer).add(parking).add(weather)
+                .withTimeout(Duration.millis(50)).discover().get(1, TimeUnit.SECONDS);
+
+        assertEquals(Collections.emptyList(), result.getOfferingDescriptions(parking));
+        assertTrue(result.getOfferingDescriptions().containsKey(parking));
+        assertTrue(rootCause(result.getFailures().get(weather)) instanceof TimeoutException);
+    }
+
+    @Test
+    public void queriesRunUpToTheMaxConcurrency() throws Exception {
+        List<IOfferingQuery> queries = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            queries.add(query("query" + i));
+
+        CompletableFuture<BatchDiscovery.Result> result = BatchDiscovery.create(consumer).addAll(queries)
+                .withMaxConcurrency(2).discover();
+        assertEquals(Arrays.asList("query0", "query1"), discovered);
+
+        answer("query1", Collections.<SubscribableOfferingDescription> emptyList());
+        assertEquals(Arrays.asList("query0", "query1", "query2"), discovered);
+        for (int i = 0; i < 5; i++)
+            answer("query" + i, Collections.<SubscribableOfferingDescription> emptyList());
+        assertEquals(5, result.get(1, TimeUnit.SECONDS).getOfferingDescriptions().size());
+    }
+
+    private void answer(String marketplaceQuery, List<SubscribableOfferingDescription> offeringDescriptions) {
+        responses.computeIfAbsent(marketplaceQuery, k -> new CompletableFuture<>()).complete(offeringDescriptions);
+    }
+
+    private static Throwable rootCause(Throwable failure) {
+        while (failure.getCause() != null)
+            failure = failure.getCause();
+        return failure;
+    }
+
+    private static SubscribableOfferingDescription description(final String id) {
+        return new SubscribableOfferingDescription() {
+            @Override
+            public String getId() {
+                return id;
+            }
+        };
+    }
+
+    /**
+     * Returns a query which serializes to the given marketplace query, and equals only itself.
+     */
+    private static IOfferingQuery query(final String marketplaceQuery) {
+        return (IOfferingQuery) Proxy.newProxyInstance(IOfferingQuery.class.getClassLoader(),
+                new Class<?>[] { IOfferingQuery.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("hashCode"))
+                        return System.identityHashCode(proxy);
+                    if (method.getName().equals("equals"))
+                        return proxy == args[0];
+                    if (method.getName().equals("toOfferingQueryString") || method.getName().equals("toString"))
+                        return marketplaceQuery;
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+}
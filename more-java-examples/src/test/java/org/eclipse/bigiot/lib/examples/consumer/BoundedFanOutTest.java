@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class BoundedFanOutTest {
+
+    @Test
+    public void emptyListCompletesRightAway() throws Exception {
+        CompletableFuture<Void> completion = new BoundedFanOut<Integer, Integer>(Collections.<Integer> emptyList(), 4,
+                1000, item -> CompletableFuture.completedFuture(item), (index, item, result, failure) -> {
+                }).start();
+        assertTrue(completion.isDone());
+    }
+
+    @Test
+    public void completesOnceEveryItemHasBeenHandled() throws Exception {
+        List<CompletableFuture<Integer>> calls = new ArrayList<>();
+        Integer[] results = new Integer[3];
+        CompletableFuture<Void> completion = new BoundedFanOut<Integer, Integer>(items(3), 3, 10000, item -> {
+            CompletableFuture<Integer> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }, (index, item, result, failure) -> results[index] = result).start();
+
+        assertEquals(3, calls.size());
+        calls.get(2).complete(20);
+        calls.get(0).complete(0);
+        assertFalse(completion.isDone());
+        calls.get(1).complete(10);
+        completion.get(1, TimeUnit.SECONDS);
+        assertEquals(Integer.valueOf(0), results[0]);
+        assertEquals(Integer.valueOf(10), results[1]);
+        assertEquals(Integer.valueOf(20), results[2]);
+    }
+
+    @Test
+    public void startsAtMostMaxConcurrencyCallsAtATime() throws Exception {
+        List<CompletableFuture<Integer>> calls = new ArrayList<>();
+        AtomicInteger handled = new AtomicInteger();
+        CompletableFuture<Void> completion = new BoundedFanOut<Integer, Integer>(items(5), 2, 10000, item -> {
+            CompletableFuture<Integer> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }, (index, item, result, failure) -> handled.incrementAndGet()).start();
+
+        assertEquals(2, calls.size());
+        calls.get(1).complete(1);
+        assertEquals(3, calls.size());
+        calls.get(0).complete(0);
+        calls.get(2).complete(2);
+        assertEquals(5, calls.size());
+        calls.get(3).complete(3);
+        calls.get(4).complete(4);
+        completion.get(1, TimeUnit.SECONDS);
+        assertEquals(5, handled.get());
+    }
+
+    @Test
+    public void callsCompletingRightAwayDoNotGrowTheStack() throws Exception {
+        AtomicInteger handled = new AtomicInteger();
+        new BoundedFanOut<Integer, Integer>(items(100000), 1, 10000, item -> CompletableFuture.completedFuture(item),
+                (index, item, result, failure) -> handled.incrementAndGet()).start().get(10, TimeUnit.SECONDS);
+        assertEquals(100000, handled.get());
+    }
+
+    @Test
+    public void callWithoutResponseTimesOut() throws Exception {
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        new BoundedFanOut<Integer, Integer>(items(2), 2, 50,
+                item -> item == 0 ? new CompletableFuture<>() : CompletableFuture.completedFuture(item),
+                (index, item, result, failure) -> {
+                    if (failure != null)
+                        failures.add(failure);
+                }).start().get(5, TimeUnit.SECONDS);
+        assertEquals(1, failures.size());
+        assertTrue(failures.peek() instanceof TimeoutException);
+    }
+
+    @Test
+    public void lateResultAfterTheTimeoutIsIgnored() throws Exception {
+        CompletableFuture<Integer> call = new CompletableFuture<>();
+        AtomicInteger handled = new AtomicInteger();
+        new BoundedFanOut<Integer, Integer>(items(1), 1, 20, item -> call,
+                (index, item, result, failure) -> handled.incrementAndGet()).start().get(5, TimeUnit.SECONDS);
+        call.complete(1);
+        assertEquals(1, handled.get());
+    }
+
+    @Test
+    public void failuresAreUnwrappedAndDoNotStopTheOtherCalls() throws Exception {
+        IOException thrown = new IOException("thrown");
+        IOException failed = new IOException("failed");
+        Throwable[] failures = new Throwable[3];
+        Integer[] results = new Integer[3];
+        new BoundedFanOut<Integer, Integer>(items(3), 1, 10000, item -> {
+            if (item == 0)
+                throw thrown;
+            if (item == 1) {
+                CompletableFuture<Integer> call = new CompletableFuture<>();
+                call.completeExceptionally(new CompletionException(failed));
+                return call;
+            }
+            return CompletableFuture.completedFuture(item);
+        }, (index, item, result, failure) -> {
+            results[index] = result;
+            failures[index] = failure;
+            if (index == 0)
+                throw new IllegalStateException("Handler failure");
+        }).start().get(1, TimeUnit.SECONDS);
+
+        assertSame(thrown, failures[0]);
+        assertSame(failed, failures[1]);
+        assertNull(failures[2]);
+        assertEquals(Integer.valueOf(2), results[2]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cannotBeStartedTwice() {
+        BoundedFanOut<Integer, Integer> fanOut = new BoundedFanOut<>(items(1), 1, 1000,
+                item -> CompletableFuture.completedFuture(item), (index, item, result, failure) -> {
+                });
+        fanOut.start();
+        fanOut.start();
+    }
+
+    private static List<Integer> items(int count) {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            items.add(i);
+        return items;
+    }
+
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bigiot.lib.examples.types.MyComplexParkingResultPojoAnnotated;
+import org.eclipse.bigiot.lib.examples.types.MyParkingResultPojoAnnotated;
+import org.eclipse.bigiot.lib.offering.mapping.ResponseMappingType;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CompiledResponseMapperTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static class Values {
+        public int count;
+        public Long total;
+        public float ratio;
+        public boolean active;
+        public String name;
+        public List<String> tags;
+        public static String ignored;
+    }
+
+    public static class Node {
+        public String name;
+        public Node next;
+    }
+
+    public static class Position {
+        @ResponseMappingType("schema:latitude")
+        public double latitude;
+        @ResponseMappingType("schema:longitude")
+        public double longitude;
+    }
+
+    @Test
+    public void mapsAnnotatedFieldsByTheirResponseNames() throws Exception {
+        Map<String, String> responseNames = new HashMap<>();
+        responseNames.put("schema:latitude", "lat");
+        responseNames.put("schema:longitude", "lon");
+        responseNames.put("datex:distanceFromParkingSpace", "dist");
+        responseNames.put("datex:parkingSpaceStatus", "status");
+
+        List<MyParkingResultPojoAnnotated> parkingSpots = CompiledResponseMapper
+                .get(MyParkingResultPojoAnnotated.class, responseNames)
+                .map(json("[{'lat':48.1,'lon':11.5,'dist':12.5,'status':'available','other':1},"
+                        + "{'lat':48.2,'lon':11.6,'dist':3,'status':'occupied'}]"));
+
+        assertEquals(2, parkingSpots.size());
+        assertEquals(48.1, parkingSpots.get(0).latitude, 0);
+        assertEquals(11.5, parkingSpots.get(0).longitude, 0);
+        assertEquals(12.5, parkingSpots.get(0).distance, 0);
+        assertEquals("available", parkingSpots.get(0).status);
+        assertEquals(3.0, parkingSpots.get(1).distance, 0);
+        assertEquals("occupied", parkingSpots.get(1).status);
+    }
+
+    @Test
+    public void mapsNestedPojosAndDottedNames() throws Exception {
+        Map<String, String> responseNames = new HashMap<>();
+        responseNames.put("schema:geoCoordinates", "geo");
+        responseNames.put("datex:distanceFromParkingSpace", "details.distance");
+        responseNames.put("datex:parkingSpaceStatus", "details.status");
+
+        MyComplexParkingResultPojoAnnotated parkingSpot = CompiledResponseMapper
+                .get(MyComplexParkingResultPojoAnnotated.class, responseNames)
+                .mapElement(json("{'geo':{'latitude':48.1,'longitude':11.5},"
+                        + "'details':{'distance':7.5,'status':'available'}}"));
+
+        assertEquals(48.1, parkingSpot.myCoordinate.latitude, 0);
+        assertEquals(11.5, parkingSpot.myCoordinate.longitude, 0);
+        assertEquals(7.5, parkingSpot.myDistance, 0);
+        assertEquals("available", parkingSpot.myStatus);
+    }
+
+    @Test
+    public void convertsValuesToTheTypesOfTheFields() throws Exception {
+        Values values = CompiledResponseMapper.get(Values.class).mapElement(
+                json("{'count':3,'total':12345678901,'ratio':0.5,'active':true,'name':'a','tags':['x','y']}"));
+
+        assertEquals(3, values.count);
+        assertEquals(Long.valueOf(12345678901L), values.total);
+        assertEquals(0.5f, values.ratio, 0);
+        assertTrue(values.active);
+        assertEquals("a", values.name);
+        assertEquals(Arrays.asList("x", "y"), values.tags);
+        assertNull(Values.ignored);
+    }
+
+    @Test
+    public void missingAndNullValuesOfFieldsWithoutAnnotationKeepTheirDefault() throws Exception {
+        Values values = CompiledResponseMapper.get(Values.class).map(json("{'count':null}")).get(0);
+
+        assertEquals(0, values.count);
+        assertNull(values.total);
+        assertNull(values.name);
+    }
+
+    @Test
+    public void mapsSelfReferencingPojos() throws Exception {
+        Node node = CompiledResponseMapper.get(Node.class)
+                .mapElement(json("{'name':'a','next':{'name':'b','next':{'name':'c'}}}"));
+
+        assertEquals("a", node.name);
+        assertEquals("b", node.next.name);
+        assertEquals("c", node.next.next.name);
+        assertNull(node.next.next.next);
+    }
+
+    @Test
+    public void mappersAreCachedPerClassAndResponseNames() {
+        Map<String, String> responseNames = new HashMap<>();
+        responseNames.put("schema:latitude", "lat");
+        responseNames.put("schema:longitude", "lon");
+
+        assertSame(CompiledResponseMapper.get(Position.class, responseNames),
+                CompiledResponseMapper.get(Position.class, new HashMap<>(responseNames)));
+        assertSame(CompiledResponseMapper.get(Values.class), CompiledResponseMapper.get(Values.class));
+    }
+
+    @Test
+    public void annotatedFieldsWithoutResponseNameAreRejected() {
+        Map<String, String> responseNames = new HashMap<>();
+        responseNames.put("schema:latitude", "lat");
+        try {
+            CompiledResponseMapper.get(Position.class, responseNames);
+            fail("Mapper should have been rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("longitude (schema:longitude)"));
+        }
+    }
+
+    @Test
+    public void elementsWithoutValueForAnAnnotatedFieldAreRejected() throws Exception {
+        Map<String, String> responseNames = new HashMap<>();
+        responseNames.put("schema:latitude", "lat");
+        responseNames.put("schema:longitude", "lon");
+        CompiledResponseMapper<Position> mapper = CompiledResponseMapper.get(Position.class, responseNames);
+        try {
+            mapper.mapElement(json("{'lat':48.1,'longitude':11.5}"));
+            fail("Element should have been rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("longitude (schema:longitude as lon)"));
+        }
+    }
+
+    private static JsonNode json(String text) throws Exception {
+        return objectMapper.readTree(text.replace('\'', '"'));
+    }
+
+}
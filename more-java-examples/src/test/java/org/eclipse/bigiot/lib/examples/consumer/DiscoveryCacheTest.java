@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
+import org.eclipse.bigiot.lib.query.IOfferingQuery;
+import org.junit.Test;
+
+public class DiscoveryCacheTest {
+
+    private final List<String> events = new ArrayList<>();
+    private final Map<String, Object> versions = new HashMap<>();
+
+    private final DiscoveryCache discoveryCache = DiscoveryCache.create(new DiscoveryCache.Listener() {
+        @Override
+        public void offeringAdded(IOfferingQuery query, SubscribableOfferingDescription offeringDescription) {
+            events.add("added " + offeringDescription.getId());
+        }
+
+        @Override
+        public void offeringRemoved(IOfferingQuery query, SubscribableOfferingDescription offeringDescription) {
+            events.add("removed " + offeringDescription.getId());
+        }
+
+        @Override
+        public void offeringChanged(IOfferingQuery query, SubscribableOfferingDescription previous,
+                SubscribableOfferingDescription current) {
+            events.add("changed " + current.getId());
+        }
+    }).withFingerprint(offeringDescription -> versions.get(offeringDescription.getId()));
+
+    private final IOfferingQuery parkingQuery = query("parking");
+
+    @Test
+    public void reportsOnlyTheDifferencesToThePreviousDiscovery() {
+        discoveryCache.processResponse(parkingQuery, Arrays.asList(description("a"), description("b")));
+        assertEquals(Arrays.asList("added a", "added b"), events);
+
+        events.clear();
+        discoveryCache.processResponse(parkingQuery, Arrays.asList(description("b"), description("c")));
+        assertEquals(Arrays.asList("removed a", "added c"), events);
+
+        events.clear();
+        discoveryCache.processResponse(parkingQuery, Arrays.asList(description("b"), description("c")));
+        assertEquals(Collections.emptyList(), events);
+    }
+
+    @Test
+    public void reportsOfferingsWhoseFingerprintChanged() {
+        versions.put("a", 1);
+        discoveryCache.processResponse(parkingQuery, Arrays.asList(description("a"), description("b")));
+        events.clear();
+
+        versions.put("a", 2);
+        SubscribableOfferingDescription current = description("a");
+        discoveryCache.processResponse(parkingQuery, Arrays.asList(current, description("b")));
+        assertEquals(Collections.singletonList("changed a"), events);
+        assertSame(current, discoveryCache.getOfferingDescriptions(parkingQuery).get(0));
+    }
+
+    @Test
+    public void keepsTheResultsOfEveryQuery() {
+        IOfferingQuery weatherQuery = query("weather");
+        discoveryCache.processResponse(parkingQuery, Collections.singletonList(description("a")));
+        discoveryCache.processResponse(weatherQuery, Collections.singletonList(description("w")));
+        events.clear();
+
+        discoveryCache.processResponse(weatherQuery, Collections.emptyList());
+        assertEquals(Collections.singletonList("removed w"), events);
+        assertEquals(1, discoveryCache.getOfferingDescriptions(parkingQuery).size());
+    }
+
+    @Test
+    public void reportsAllOfferingsAsAddedAfterTheQueryWasRemoved() {
+        discoveryCache.processResponse(parkingQuery, Collections.singletonList(description("a")));
+        discoveryCache.remove(parkingQuery);
+        assertEquals(Collections.emptyList(), discoveryCache.getOfferingDescriptions(parkingQuery));
+
+        events.clear();
+        discoveryCache.processResponse(parkingQuery, Collections.singletonList(description("a")));
+        assertEquals(Collections.singletonList("added a"), events);
+    }
+
+    @Test
+    public void defaultFingerprintToleratesMissingAttributes() {
+        // A description without price, license, endpoints, inputs and outputs
+        assertEquals(DiscoveryCache.defaultFingerprint(description("a")),
+                DiscoveryCache.defaultFingerprint(description("a")));
+    }
+
+    private static SubscribableOfferingDescription description(final String id) {
+        return new SubscribableOfferingDescription() {
+            @Override
+            public String getId() {
+                return id;
+            }
+        };
+    }
+
+    private static IOfferingQuery query(final String name) {
+        return (IOfferingQuery) Proxy.newProxyInstance(IOfferingQuery.class.getClassLoader(),
+                new Class<?>[] { IOfferingQuery.class }, (proxy, method, args) -> {
+                    if (method.getName().equals("toOfferingQueryString"))
+                        return "{ offeringQuery(name: \"" + name + "\") }";
+                    if (method.getName().equals("hashCode"))
+                        return name.hashCode();
+                    if (method.getName().equals("equals"))
+                        return proxy == args[0];
+                    return name;
+                });
+    }
+
+}
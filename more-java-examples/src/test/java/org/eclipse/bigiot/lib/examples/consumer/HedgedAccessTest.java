@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.eclipse.bigiot.lib.offering.AccessResponse;
+import org.eclipse.bigiot.lib.offering.Offering;
+import org.eclipse.bigiot.lib.offering.parameters.AccessParameters;
+import org.joda.time.Duration;
+import org.junit.Test;
+
+public class HedgedAccessTest {
+
+    @Test
+    public void fastPrimaryIsNotHedged() throws Exception {
+        AtomicInteger alternativeAccesses = new AtomicInteger();
+        HedgedAccess hedgedAccess = HedgedAccess
+                .create(offering(() -> CompletableFuture.completedFuture(null)),
+                        offering(counting(alternativeAccesses, CompletableFuture::new)))
+                .withInitialDelay(Duration.millis(20));
+
+        hedgedAccess.accessOneTime(AccessParameters.create()).get(1, TimeUnit.SECONDS);
+        Thread.sleep(100);
+        assertEquals(0, alternativeAccesses.get());
+        assertEquals(0, hedgedAccess.getHedgeCount());
+    }
+
+    @Test
+    public void slowPrimaryIsHedgedAfterTheDelay() throws Exception {
+        HedgedAccess hedgedAccess = HedgedAccess
+                .create(offering(CompletableFuture::new), offering(() -> CompletableFuture.completedFuture(null)))
+                .withInitialDelay(Duration.millis(50));
+
+        long start = System.nanoTime();
+        hedgedAccess.accessOneTime(AccessParameters.create()).get(5, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, hedgedAccess.getHedgeCount());
+        assertEquals(1, hedgedAccess.getHedgeWinCount());
+    }
+
+    @Test
+    public void primaryAnsweringAfterTheHedgeStillWins() throws Exception {
+        CompletableFuture<AccessResponse> primaryResponse = new CompletableFuture<>();
+        CompletableFuture<AccessResponse> alternativeResponse = new CompletableFuture<>();
+        AtomicInteger alternativeAccesses = new AtomicInteger();
+        HedgedAccess hedgedAccess = HedgedAccess
+                .create(offering(() -> primaryResponse),
+                        offering(counting(alternativeAccesses, () -> alternativeResponse)))
+                .withInitialDelay(Duration.millis(10));
+
+        CompletableFuture<AccessResponse> response = hedgedAccess.accessOneTime(AccessParameters.create());
+        awaitCount(alternativeAccesses, 1);
+        primaryResponse.complete(null);
+        response.get(1, TimeUnit.SECONDS);
+        alternativeResponse.complete(null);
+        assertEquals(1, hedgedAccess.getHedgeCount());
+        assertEquals(0, hedgedAccess.getHedgeWinCount());
+    }
+
+    @Test
+    public void failedPrimaryIsHedgedRightAway() throws Exception {
+        HedgedAccess hedgedAccess = HedgedAccess
+                .create(offering(() -> failed(new IOException("Primary failed"))),
+                        offering(() -> CompletableFuture.completedFuture(null)))
+                .withInitialDelay(Duration.standardSeconds(30));
+
+        hedgedAccess.accessOneTime(AccessParameters.create()).get(1, TimeUnit.SECONDS);
+        assertEquals(1, hedgedAccess.getHedgeCount());
+        assertEquals(1, hedgedAccess.getHedgeWinCount());
+    }
+
+    @Test
+    public void accessFailsOnceBothAttemptsFailed() throws Exception {
+        IOException alternativeFailure = new IOException("Alternative failed");
+        CompletableFuture<AccessResponse> primaryResponse = new CompletableFuture<>();
+        AtomicInteger alternativeAccesses = new AtomicInteger();
+        HedgedAccess hedgedAccess = HedgedAccess
+                .create(offering(() -> primaryResponse),
+                        offering(counting(alternativeAccesses, () -> failed(alternativeFailure))))
+                .withInitialDelay(Duration.millis(10));
+
+        CompletableFuture<AccessResponse> response = hedgedAccess.accessOneTime(AccessParameters.create());
+        awaitCount(alternativeAccesses, 1);
+        // The primary is still in progress and may answer
+        assertTrue(!response.isDone());
+        primaryResponse.completeExceptionally(new IOException("Primary failed"));
+        try {
+            response.get(1, TimeUnit.SECONDS);
+            fail("Access should have failed");
+        } catch (ExecutionException e) {
+            assertEquals("Primary failed", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void accessWithoutAlternativesFailsWithThePrimary() throws Exception {
+        IOException failure = new IOException("Primary failed");
+        HedgedAccess hedgedAccess = HedgedAccess.create(offering(() -> failed(failure)));
+        try {
+            hedgedAccess.accessOneTime(AccessParameters.create()).get(1, TimeUnit.SECONDS);
+            fail("Access should have failed");
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(0, hedgedAccess.getHedgeCount());
+    }
+
+    @Test
+    public void alternativesTakeTurns() throws Exception {
+        AtomicInteger first = new AtomicInteger();
+        AtomicInteger second = new AtomicInteger();
+        HedgedAccess hedgedAccess = HedgedAccess.create(offering(() -> failed(new IOException("Primary failed"))),
+                offering(counting(first, () -> CompletableFuture.completedFuture(null))),
+                offering(counting(second, () -> CompletableFuture.completedFuture(null))));
+
+        for (int i = 0; i < 4; i++)
+            hedgedAccess.accessOneTime(AccessParameters.create()).get(1, TimeUnit.SECONDS);
+        assertEquals(2, first.get());
+        assertEquals(2, second.get());
+    }
+
+    @Test
+    public void hedgeDelayFollowsTheResponseLatencies() throws Exception {
+        HedgedAccess hedgedAccess = HedgedAccess
+                .create(offering(() -> CompletableFuture.completedFuture(null)), offering(CompletableFuture::new))
+                .withInitialDelay(Duration.standardSeconds(5));
+
+        for (int i = 0; i < 19; i++)
+            hedgedAccess.accessOneTime(AccessParameters.create()).get(1, TimeUnit.SECONDS);
+        assertEquals(5000, hedgedAccess.getHedgeDelay());
+        hedgedAccess.accessOneTime(AccessParameters.create()).get(1, TimeUnit.SECONDS);
+        // The responses were completed right away, so the 95th percentile of their latencies is short
+        assertTrue(hedgedAccess.getHedgeDelay() < 1000);
+        assertEquals(20, hedgedAccess.getRequestCount());
+    }
+
+    private static Offering offering(Supplier<CompletableFuture<AccessResponse>> access) {
+        return (Offering) Proxy.newProxyInstance(Offering.class.getClassLoader(), new Class<?>[] { Offering.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("accessOneTime"))
+                        return access.get();
+                    if (method.getName().equals("toString"))
+                        return "Offering@" + System.identityHashCode(proxy);
+                    if (method.getName().equals("hashCode"))
+                        return System.identityHashCode(proxy);
+                    if (method.getName().equals("equals"))
+                        return proxy == args[0];
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static Supplier<CompletableFuture<AccessResponse>> counting(AtomicInteger count,
+            Supplier<CompletableFuture<AccessResponse>> access) {
+        return () -> {
+            count.incrementAndGet();
+            return access.get();
+        };
+    }
+
+    private static CompletableFuture<AccessResponse> failed(Throwable failure) {
+        CompletableFuture<AccessResponse> response = new CompletableFuture<>();
+        response.completeExceptionally(failure);
+        return response;
+    }
+
+    private static void awaitCount(AtomicInteger count, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (count.get() < expected && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        assertEquals(expected, count.get());
+    }
+
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.bigiot.lib.examples.provider.AccessStreamBuffer;
+import org.eclipse.bigiot.lib.offering.parameters.AccessParameters;
+import org.joda.time.Duration;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class IncrementalAccessFeedTest {
+
+    private final AccessStreamBuffer accessStream = AccessStreamBuffer.create(100);
+    private final AtomicReference<IncrementalAccessFeed> feed = new AtomicReference<>();
+    private final AtomicInteger accesses = new AtomicInteger();
+    private final AtomicInteger failingAccesses = new AtomicInteger();
+
+    private final ConcurrentLinkedQueue<Integer> received = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+    @Test
+    public void receivesEveryElementOnceInOrder() throws Exception {
+        start(AdaptiveInterval.fixed(Duration.millis(5)));
+        for (int i = 0; i < 50; i++) {
+            accessStream.append(new JSONObject().put("value", i));
+            if (i % 10 == 0)
+                Thread.sleep(20);
+        }
+
+        awaitReceived(50);
+        feed.get().stop();
+        assertEquals(values(50), new ArrayList<>(received));
+        assertEquals(50, feed.get().getNextSequence());
+        assertEquals(50, feed.get().getElementCount());
+        assertTrue(failures.isEmpty());
+    }
+
+    @Test
+    public void startSequenceReadsTheRetainedElements() throws Exception {
+        for (int i = 0; i < 5; i++)
+            accessStream.append(new JSONObject().put("value", i));
+        feed.set(IncrementalAccessFeed.create(this::access).withStartSequence(3)
+                .withInterval(Duration.millis(5)));
+        feed.get().start((f, elements) -> add(elements), (f, failure) -> failures.add(failure));
+
+        awaitReceived(2);
+        feed.get().stop();
+        assertEquals(values(3, 5), new ArrayList<>(received));
+    }
+
+    @Test
+    public void failedAccessIsRetriedWithoutLosingElements() throws Exception {
+        start(AdaptiveInterval.fixed(Duration.millis(5)));
+        failingAccesses.set(3);
+        for (int i = 0; i < 10; i++)
+            accessStream.append(new JSONObject().put("value", i));
+
+        awaitReceived(10);
+        feed.get().stop();
+        assertEquals(values(10), new ArrayList<>(received));
+        assertEquals(3, failures.size());
+        assertEquals(3, feed.get().getFailureCount());
+    }
+
+    @Test
+    public void rateLimitedAccessWaitsForTheRetryDelay() throws Exception {
+        start(AdaptiveInterval.create(Duration.millis(5), Duration.millis(50)).withJitter(0));
+        Thread.sleep(50);
+        long start = System.currentTimeMillis();
+        failingAccesses.set(-1);
+        accessStream.append(new JSONObject().put("value", 0));
+
+        awaitReceived(1);
+        feed.get().stop();
+        assertTrue(System.currentTimeMillis() - start >= 300);
+        assertTrue(RateLimitedException.find(failures.peek()) != null);
+    }
+
+    @Test
+    public void stoppedFeedMakesNoAccesses() throws Exception {
+        start(AdaptiveInterval.fixed(Duration.millis(5)));
+        Thread.sleep(50);
+        feed.get().stop();
+        Thread.sleep(20);
+        int stoppedAccesses = accesses.get();
+        Thread.sleep(100);
+        assertEquals(stoppedAccesses, accesses.get());
+
+        accessStream.append(new JSONObject().put("value", 0));
+        feed.get().resume();
+        awaitReceived(1);
+        feed.get().stop();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sinceCannotBeSetAsInputData() {
+        IncrementalAccessFeed.create(this::access).withInputData(AccessStreamBuffer.SINCE_INPUT, 0);
+    }
+
+    private void start(AdaptiveInterval interval) {
+        feed.set(IncrementalAccessFeed.create(this::access).withInterval(interval));
+        feed.get().start((f, elements) -> add(elements), (f, failure) -> failures.add(failure));
+    }
+
+    /**
+     * Serves the elements from the since value on, which is the next sequence of the feed.
+     */
+    private CompletableFuture<String> access(AccessParameters accessParameters) {
+        accesses.incrementAndGet();
+        CompletableFuture<String> response = new CompletableFuture<>();
+        int failing = failingAccesses.get();
+        if (failing < 0 && failingAccesses.compareAndSet(failing, 0)) {
+            response.completeExceptionally(new RateLimitedException("Too many requests", 300));
+        } else if (failing > 0 && failingAccesses.compareAndSet(failing, failing - 1)) {
+            response.completeExceptionally(new IOException("Access failed"));
+        } else {
+            List<JSONObject> elements = new ArrayList<>();
+            long next = accessStream.read(feed.get().getNextSequence(), elements);
+            response.complete(new JSONObject().put("next", next).put("elements", new JSONArray(elements)).toString());
+        }
+        return response;
+    }
+
+    private void add(JSONArray elements) {
+        for (int i = 0; i < elements.length(); i++)
+            received.add(elements.getJSONObject(i).getInt("value"));
+    }
+
+    private void awaitReceived(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (received.size() < count && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        assertEquals(count, received.size());
+    }
+
+    private static List<Integer> values(int count) {
+        return values(0, count);
+    }
+
+    private static List<Integer> values(int from, int to) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = from; i < to; i++)
+            values.add(i);
+        return values;
+    }
+
+}
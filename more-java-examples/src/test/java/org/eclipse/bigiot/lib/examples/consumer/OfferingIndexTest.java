@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
+import org.junit.Test;
+
+public class OfferingIndexTest {
+
+    private final List<SubscribableOfferingDescription> offeringDescriptions = new ArrayList<>();
+    private final Map<String, Object[]> attributes = new HashMap<>();
+
+    @Test
+    public void cheapestOrdersByPriceAndKeepsTheDiscoveryOrderOfTies() {
+        add("a", 0.3, "OPEN_DATA_LICENSE", "localhost");
+        add("b", Double.NaN, "OPEN_DATA_LICENSE", "localhost");
+        add("c", 0.1, "PROJECT_INTERNAL_USE_ONLY", "localhost");
+        add("d", 0.3, "CREATIVE_COMMONS", "localhost");
+        add("e", 0.1, "CREATIVE_COMMONS", "localhost");
+
+        assertEquals(Arrays.asList("c", "e", "a", "d", "b"), ids(index().select().cheapest().top(10)));
+    }
+
+    @Test
+    public void laterCriteriaBreakTheTiesOfEarlierOnes() {
+        add("a", 0.3, "OPEN_DATA_LICENSE", "localhost");
+        add("b", 0.1, "PROJECT_INTERNAL_USE_ONLY", "localhost");
+        add("c", 0.1, null, "localhost");
+        add("d", 0.1, "CREATIVE_COMMONS", "localhost");
+        add("e", 0.3, "NON_COMMERCIAL_DATA_LICENSE", "localhost");
+        OfferingIndex index = index();
+
+        assertEquals(Arrays.asList("d", "b", "c", "a", "e"), ids(index.select().cheapest().mostPermissive().top(10)));
+        assertEquals(Arrays.asList("a", "d", "e", "b", "c"), ids(index.select().mostPermissive().cheapest().top(10)));
+    }
+
+    @Test
+    public void selectionsWithoutCriteriaKeepTheDiscoveryOrder() {
+        add("a", 0.3, null, "localhost");
+        add("b", 0.1, null, "localhost");
+
+        assertEquals(Arrays.asList("a", "b"), ids(index().select().top(10)));
+    }
+
+    @Test
+    public void hostSelectionsOnlyIncludeThatHost() {
+        add("a", 0.1, null, "provider.example.org");
+        add("b", 0.3, null, "127.0.0.1");
+        add("c", 0.2, null, "LOCALHOST");
+        add("d", 0.0, null, null);
+        OfferingIndex index = index();
+
+        assertEquals(Arrays.asList("c", "b"), ids(index.select().onlyLocalhost().cheapest().top(10)));
+        assertEquals(Collections.singletonList("a"),
+                ids(index.select().onlyHost("Provider.Example.org").cheapest().top(10)));
+        assertEquals(Collections.emptyList(), ids(index.select().onlyHost("other.example.org").top(10)));
+        assertEquals(Arrays.asList("d", "a", "c", "b"), ids(index.select().cheapest().top(10)));
+    }
+
+    @Test
+    public void topStopsAfterKOfferings() {
+        for (int i = 0; i < 100; i++)
+            add("o" + i, 100 - i, null, "localhost");
+        OfferingIndex index = index();
+
+        assertEquals(Arrays.asList("o99", "o98", "o97"), ids(index.select().cheapest().top(3)));
+        assertEquals("o99", index.select().onlyLocalhost().cheapest().first().getId());
+        // Served from the kept order
+        assertEquals(Arrays.asList("o99", "o98"), ids(index.select().cheapest().top(2)));
+        assertEquals(Collections.emptyList(), index.select().cheapest().top(0));
+    }
+
+    @Test
+    public void regionSelectionsOnlyIncludeOverlappingRegions() {
+        add("a", 0.1, null, "localhost", 48.0, 11.0, 48.1, 11.1);
+        add("b", 0.2, null, "localhost", 48.2, 11.2, 48.3, 11.3);
+        add("c", 0.0, null, "localhost");
+        add("d", 0.3, null, "localhost", 48.05, 11.05, 48.25, 11.25);
+
+        assertEquals(Arrays.asList("a", "d"),
+                ids(index().select().cheapest().inRegion(48.0, 11.0, 48.1, 11.1).top(10)));
+    }
+
+    @Test
+    public void firstIsNullIfNoOfferingMatches() {
+        assertNull(index().select().cheapest().first());
+        add("a", 0.1, null, "provider.example.org");
+        assertNull(index().select().onlyLocalhost().first());
+    }
+
+    @Test
+    public void descriptionsWithoutAttributesAreUnknownToTheDefaultReader() {
+        offeringDescriptions.add(description("a"));
+        offeringDescriptions.add(description("b"));
+
+        assertEquals(Arrays.asList("a", "b"), ids(OfferingIndex.create(offeringDescriptions).select().top(10)));
+        assertEquals(0, OfferingRegionIndex.create(offeringDescriptions).size());
+        assertEquals(Collections.emptyList(), OfferingRegionIndex.create(offeringDescriptions).containing(48.0, 11.0));
+    }
+
+    private void add(String id, double price, String license, String host, double... region) {
+        offeringDescriptions.add(description(id));
+        attributes.put(id, new Object[] { price, license, host, region.length == 0 ? null : region });
+    }
+
+    private OfferingIndex index() {
+        return OfferingIndex.create(offeringDescriptions, new OfferingIndex.Attributes() {
+            @Override
+            public double getPrice(SubscribableOfferingDescription offeringDescription) {
+                return (Double) attributes.get(offeringDescription.getId())[0];
+            }
+
+            @Override
+            public String getLicense(SubscribableOfferingDescription offeringDescription) {
+                return (String) attributes.get(offeringDescription.getId())[1];
+            }
+
+            @Override
+            public String getEndpointHost(SubscribableOfferingDescription offeringDescription) {
+                return (String) attributes.get(offeringDescription.getId())[2];
+            }
+
+            @Override
+            public double[] getRegion(SubscribableOfferingDescription offeringDescription) {
+                return (double[]) attributes.get(offeringDescription.getId())[3];
+            }
+        });
+    }
+
+    private static List<String> ids(List<SubscribableOfferingDescription> offeringDescriptions) {
+        List<String> ids = new ArrayList<>();
+        for (SubscribableOfferingDescription offeringDescription : offeringDescriptions)
+            ids.add(offeringDescription.getId());
+        return ids;
+    }
+
+    private static SubscribableOfferingDescription description(final String id) {
+        return new SubscribableOfferingDescription() {
+            @Override
+            public String getId() {
+                return id;
+            }
+        };
+    }
+
+}
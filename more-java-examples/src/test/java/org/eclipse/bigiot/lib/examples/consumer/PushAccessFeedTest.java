@@ -0,0 +1,235 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.eclipse.bigiot.lib.examples.provider.AccessStreamBuffer;
+import org.eclipse.bigiot.lib.examples.provider.AccessStreamPushServer;
+import org.eclipse.bigiot.lib.examples.provider.ProximityIndex;
+import org.eclipse.bigiot.lib.handlers.AccessRequestHandler;
+import org.eclipse.bigiot.lib.offering.parameters.AccessParameters;
+import org.joda.time.Duration;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PushAccessFeedTest {
+
+    private final AccessStreamBuffer accessStream = AccessStreamBuffer.create(100);
+    private final List<PushAccessFeed> feeds = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Integer> received = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+    private AccessStreamPushServer pushServer;
+    private AccessRequestHandler accessRequestHandler;
+
+    @Before
+    public void startServer() throws IOException {
+        pushServer = AccessStreamPushServer.create(accessStream, "localhost", freePort()).withPlainHttp()
+                .withMaxConnections(3).withHeartbeat(Duration.millis(50));
+        accessRequestHandler = pushServer.accessRequestHandler(accessStream.accessRequestHandler(null));
+        pushServer.start();
+    }
+
+    @After
+    public void stop() {
+        for (PushAccessFeed feed : feeds)
+            feed.stop();
+        pushServer.stop();
+    }
+
+    @Test
+    public void receivesTheAppendedElements() throws Exception {
+        PushAccessFeed feed = start(PushAccessFeed.create(this::requestStream));
+        awaitConnections(1);
+        for (int i = 0; i < 20; i++)
+            accessStream.append(new JSONObject().put("value", i));
+
+        awaitReceived(20);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            expected.add(i);
+        assertEquals(expected, new ArrayList<>(received));
+        assertEquals(20, feed.getElementCount());
+        assertTrue(failures.isEmpty());
+    }
+
+    @Test
+    public void openConnectionsDoNotHoldSlotsOfTheScheduler() throws Exception {
+        FeedScheduler scheduler = FeedScheduler.create(1, 1);
+        try {
+            for (int i = 0; i < 3; i++)
+                start(PushAccessFeed.create(this::requestStream).withScheduler(scheduler));
+            awaitConnections(3);
+            // The server counts a connection before the feed has read the status and released its slot
+            long deadline = System.currentTimeMillis() + 5000;
+            while (scheduler.getInFlightCount() > 0 && System.currentTimeMillis() < deadline)
+                Thread.sleep(5);
+            assertEquals(0, scheduler.getInFlightCount());
+
+            accessStream.append(new JSONObject().put("value", 0));
+            awaitReceived(3);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void connectionsBeyondTheLimitAreRejected() throws Exception {
+        for (int i = 0; i < 3; i++)
+            start(PushAccessFeed.create(this::requestStream));
+        awaitConnections(3);
+        PushAccessFeed rejected = start(PushAccessFeed.create(this::requestStream));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (failures.isEmpty() && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        assertTrue(String.valueOf(failures.peek()), failures.peek().getMessage().contains("503"));
+        assertEquals(3, pushServer.getConnectionCount());
+
+        // Connects once another connection is closed, which the server notices with the next heartbeat
+        feeds.get(0).stop();
+        deadline = System.currentTimeMillis() + 10000;
+        while (rejected.getElementCount() == 0 && System.currentTimeMillis() < deadline) {
+            accessStream.append(new JSONObject().put("value", 0));
+            Thread.sleep(50);
+        }
+        assertTrue(rejected.getElementCount() > 0);
+    }
+
+    @Test
+    public void streamIsNotServedOverPlainHttpUnlessChosen() throws Exception {
+        try {
+            AccessStreamPushServer.create(accessStream, "localhost", 1).start();
+            fail("Server should not have been started");
+        } catch (IllegalStateException e) {
+            // No SSLContext
+        }
+    }
+
+    @Test
+    public void continuesAfterTheLastEventWhenReconnected() throws Exception {
+        PushAccessFeed feed = start(PushAccessFeed.create(this::requestStream));
+        awaitConnections(1);
+        accessStream.append(new JSONObject().put("value", 0));
+        awaitReceived(1);
+
+        feed.stop();
+        accessStream.append(new JSONObject().put("value", 1));
+        feed.resume();
+        awaitReceived(2);
+        assertEquals(Integer.valueOf(1), new ArrayList<>(received).get(1));
+    }
+
+    @Test
+    public void indexedServerPassesElementsToNearbySubscribersOnly() throws Exception {
+        pushServer.stop();
+        pushServer = AccessStreamPushServer.create(accessStream, "localhost", freePort()).withPlainHttp()
+                .withProximityIndex(ProximityIndex.create(0.005)).withHeartbeat(Duration.millis(50));
+        accessRequestHandler = pushServer.accessRequestHandler(accessStream.accessRequestHandler(null));
+        pushServer.start();
+
+        final ConcurrentLinkedQueue<Integer> near = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<Integer> far = new ConcurrentLinkedQueue<>();
+        startAt(42.0, 9.0, near);
+        startAt(43.0, 10.0, far);
+        awaitConnections(2);
+
+        accessStream.append(new JSONObject().put("lat", 42.001).put("lon", 11.0).put("value", 1));
+        accessStream.append(new JSONObject().put("lat", 43.0).put("lon", 9.003).put("value", 2));
+        accessStream.append(new JSONObject().put("lat", 44.0).put("lon", 11.0).put("value", 3));
+        accessStream.append(new JSONObject().put("lat", 42.5).put("lon", 10.001).put("value", 4));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((near.size() < 2 || far.size() < 2) && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        // Would also pass elements which arrive too late
+        Thread.sleep(100);
+        assertEquals(Arrays.asList(1, 2), new ArrayList<>(near));
+        assertEquals(Arrays.asList(2, 4), new ArrayList<>(far));
+        assertTrue(failures.isEmpty());
+    }
+
+    private void startAt(double latitude, double longitude, final ConcurrentLinkedQueue<Integer> into) {
+        final Map<String, Object> inputData = new HashMap<>();
+        inputData.put(AccessStreamPushServer.PUSH_INPUT, "sse");
+        inputData.put("latitude", latitude);
+        inputData.put("longitude", longitude);
+        PushAccessFeed feed = PushAccessFeed.create(accessParameters -> CompletableFuture.completedFuture(
+                accessRequestHandler.processRequestHandler(null, inputData, "subscription", null).getBody()));
+        feeds.add(feed.withReconnectDelay(Duration.millis(10)));
+        feed.start((f, elements) -> {
+            for (int i = 0; i < elements.length(); i++)
+                into.add(elements.getJSONObject(i).getInt("value"));
+        }, (f, failure) -> failures.add(failure));
+    }
+
+    private PushAccessFeed start(PushAccessFeed feed) {
+        feeds.add(feed.withReconnectDelay(Duration.millis(10)));
+        return feed.start((f, elements) -> add(elements), (f, failure) -> failures.add(failure));
+    }
+
+    /**
+     * Stands in for the access of the offering, which the lib passes to the access request handler of the provider.
+     */
+    private CompletableFuture<String> requestStream(AccessParameters accessParameters) {
+        return CompletableFuture.completedFuture(accessRequestHandler.processRequestHandler(null,
+                Collections.<String, Object> singletonMap(AccessStreamPushServer.PUSH_INPUT, "sse"), "subscription",
+                null).getBody());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private void add(JSONArray elements) {
+        for (int i = 0; i < elements.length(); i++)
+            received.add(elements.getJSONObject(i).getInt("value"));
+    }
+
+    private void awaitConnections(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pushServer.getConnectionCount() < count && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        assertEquals(count, pushServer.getConnectionCount());
+    }
+
+    private void awaitReceived(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (received.size() < count && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        assertEquals(count, received.size());
+    }
+
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RegionTreeTest {
+
+    @Test
+    public void emptyTreeFindsNothing() {
+        RegionTree tree = new RegionTree(new double[0][]);
+        assertEquals(0, tree.size());
+        assertEquals(0, tree.overlapping(-90, -180, 90, 180).length);
+        assertEquals(0, tree.nearest(48.1, 11.5, 3).length);
+    }
+
+    @Test
+    public void singleRegion() {
+        RegionTree tree = new RegionTree(new double[][] { { 48.0, 11.0, 48.2, 11.2 } });
+        assertArrayEquals(new int[] { 0 }, tree.overlapping(48.1, 11.1, 48.1, 11.1));
+        assertEquals(0, tree.overlapping(48.3, 11.1, 48.4, 11.1).length);
+        assertArrayEquals(new int[] { 0 }, tree.nearest(50.0, 8.0, 5));
+    }
+
+    @Test
+    public void overlappingFindsTheSameRegionsAsAFullScan() {
+        // 5000 regions give three levels of nodes above the regions, with partly filled last nodes
+        double[][] regions = randomRegions(5000, new Random(42));
+        RegionTree tree = new RegionTree(regions);
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            double latitude = 48.0 + random.nextDouble() * 0.5;
+            double longitude = 11.0 + random.nextDouble() * 0.5;
+            double size = i % 2 == 0 ? 0 : random.nextDouble() * 0.05;
+            double[] box = { latitude, longitude, latitude + size, longitude + size };
+
+            int[] found = tree.overlapping(box[0], box[1], box[2], box[3]);
+            Arrays.sort(found);
+            assertArrayEquals(Arrays.toString(box), scanOverlapping(regions, box), found);
+        }
+    }
+
+    @Test
+    public void nearestReturnsTheClosestRegionsInOrder() {
+        double[][] regions = randomRegions(3000, new Random(1));
+        RegionTree tree = new RegionTree(regions);
+        Random random = new Random(2);
+        for (int i = 0; i < 300; i++) {
+            double latitude = 47.9 + random.nextDouble() * 0.7;
+            double longitude = 10.9 + random.nextDouble() * 0.7;
+
+            int[] nearest = tree.nearest(latitude, longitude, 10);
+            assertEquals(10, nearest.length);
+            double[] distances = scanDistances(regions, latitude, longitude);
+            double[] sorted = distances.clone();
+            Arrays.sort(sorted);
+            for (int k = 0; k < nearest.length; k++)
+                assertEquals(sorted[k], distances[nearest[k]], 1e-9);
+        }
+    }
+
+    @Test
+    public void nearestReturnsAtMostAllRegions() {
+        RegionTree tree = new RegionTree(randomRegions(20, new Random(3)));
+        assertEquals(20, tree.nearest(48.2, 11.2, 100).length);
+        assertEquals(0, tree.nearest(48.2, 11.2, 0).length);
+    }
+
+    @Test
+    public void regionsWithTheSameCenterAreAllFound() {
+        double[][] regions = new double[100][];
+        for (int i = 0; i < regions.length; i++)
+            regions[i] = new double[] { 48.0 - i * 0.001, 11.0 - i * 0.001, 48.0 + i * 0.001, 11.0 + i * 0.001 };
+        RegionTree tree = new RegionTree(regions);
+        assertEquals(regions.length, tree.overlapping(48.0, 11.0, 48.0, 11.0).length);
+        assertEquals(50, tree.overlapping(48.0495, 11.0, 48.0495, 11.0).length);
+    }
+
+    private static double[][] randomRegions(int count, Random random) {
+        double[][] regions = new double[count][];
+        for (int i = 0; i < count; i++) {
+            double latitude = 48.0 + random.nextDouble() * 0.5;
+            double longitude = 11.0 + random.nextDouble() * 0.5;
+            regions[i] = new double[] { latitude, longitude, latitude + random.nextDouble() * 0.02,
+                    longitude + random.nextDouble() * 0.02 };
+        }
+        return regions;
+    }
+
+    private static int[] scanOverlapping(double[][] regions, double[] box) {
+        int[] result = new int[regions.length];
+        int count = 0;
+        for (int i = 0; i < regions.length; i++) {
+            double[] region = regions[i];
+            if (region[0] <= box[2] && region[2] >= box[0] && region[1] <= box[3] && region[3] >= box[1])
+                result[count++] = i;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static double[] scanDistances(double[][] regions, double latitude, double longitude) {
+        double longitudeScale = Math.cos(Math.toRadians(latitude));
+        double[] distances = new double[regions.length];
+        for (int i = 0; i < regions.length; i++) {
+            double[] region = regions[i];
+            double dLatitude = Math.max(0, Math.max(region[0] - latitude, latitude - region[2]));
+            double dLongitude = Math.max(0, Math.max(region[1] - longitude, longitude - region[3])) * longitudeScale;
+            distances[i] = Math.sqrt(dLatitude * dLatitude + dLongitude * dLongitude);
+        }
+        return distances;
+    }
+
+}
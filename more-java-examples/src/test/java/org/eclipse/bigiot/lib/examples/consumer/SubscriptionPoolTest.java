@@ -0,0 +1,276 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.eclipse.bigiot.lib.offering.Offering;
+import org.eclipse.bigiot.lib.offering.SubscribableOfferingDescription;
+import org.joda.time.Duration;
+import org.junit.After;
+import org.junit.Test;
+
+public class SubscriptionPoolTest {
+
+    // The futures returned by the subscribe calls of the description, in call order
+    private final List<CompletableFuture<Offering>> subscribes = new CopyOnWriteArrayList<>();
+    private final Map<Offering, AtomicInteger> unsubscribes = new ConcurrentHashMap<>();
+    private final SubscribableOfferingDescription parking = description("parking");
+
+    private SubscriptionPool pool = SubscriptionPool.create();
+
+    @After
+    public void close() {
+        pool.close();
+    }
+
+    @Test
+    public void acquiringAgainReusesTheSubscription() throws Exception {
+        CompletableFuture<Offering> first = pool.acquire(parking);
+        Offering offering = subscribed(0);
+
+        assertSame(offering, first.get());
+        assertSame(offering, pool.acquire(parking).get());
+        assertEquals(1, subscribes.size());
+        assertEquals(1, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+    }
+
+    @Test
+    public void concurrentAcquiresSubscribeOnce() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<CompletableFuture<Offering>> acquired = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                acquired.add(pool.acquire(parking));
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(1, subscribes.size());
+        Offering offering = subscribed(0);
+        for (CompletableFuture<Offering> future : acquired)
+            assertSame(offering, future.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failedSubscriptionsAreNotKept() throws Exception {
+        CompletableFuture<Offering> first = pool.acquire(parking);
+        subscribes.get(0).completeExceptionally(new IllegalStateException("Marketplace not reachable"));
+        assertTrue(first.isCompletedExceptionally());
+        assertEquals(0, pool.getSubscriptionCount());
+
+        CompletableFuture<Offering> second = pool.acquire(parking);
+        assertEquals(2, subscribes.size());
+        assertSame(subscribed(1), second.get());
+    }
+
+    @Test
+    public void refreshKeepsHandingOutTheOldSubscriptionUntilTheNewOneIsActive() throws Exception {
+        pool = SubscriptionPool.create().withRefresh(Duration.millis(50), Duration.millis(300));
+        pool.acquire(parking);
+        Offering old = subscribed(0);
+        Thread.sleep(60);
+
+        // Starts the refresh in the background
+        assertSame(old, pool.acquire(parking).get());
+        assertEquals(2, subscribes.size());
+        assertSame(old, pool.acquire(parking).get());
+        assertEquals(2, subscribes.size());
+
+        Offering fresh = subscribed(1);
+        assertSame(fresh, pool.acquire(parking).get());
+        assertEquals(0, unsubscribeCount(old));
+
+        // The old subscription is unsubscribed once it reaches its maximum age
+        await(() -> unsubscribeCount(old) == 1);
+        assertEquals(0, unsubscribeCount(fresh));
+    }
+
+    @Test
+    public void failedRefreshIsTriedAgainWithTheNextAcquire() throws Exception {
+        pool = SubscriptionPool.create().withRefresh(Duration.millis(50), Duration.standardSeconds(10));
+        pool.acquire(parking);
+        Offering old = subscribed(0);
+        Thread.sleep(60);
+
+        pool.acquire(parking);
+        subscribes.get(1).completeExceptionally(new IllegalStateException("Marketplace not reachable"));
+        assertSame(old, pool.acquire(parking).get());
+        assertEquals(3, subscribes.size());
+    }
+
+    @Test
+    public void refreshCompletingAfterTheSubscriptionWasRemovedIsUnsubscribed() throws Exception {
+        pool = SubscriptionPool.create().withRefresh(Duration.millis(50), Duration.standardSeconds(10));
+        pool.acquire(parking);
+        Offering old = subscribed(0);
+        Thread.sleep(60);
+        pool.acquire(parking);
+
+        pool.remove("parking");
+        Offering fresh = subscribed(1);
+        await(() -> unsubscribeCount(old) == 1 && unsubscribeCount(fresh) == 1);
+        assertEquals(0, pool.getSubscriptionCount());
+    }
+
+    @Test
+    public void expiredSubscriptionIsReplacedOnceByConcurrentAcquires() throws Exception {
+        pool = SubscriptionPool.create().withRefresh(Duration.millis(50), Duration.millis(50));
+        pool.acquire(parking);
+        Offering expired = subscribed(0);
+        Thread.sleep(60);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        final List<CompletableFuture<Offering>> acquired = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                acquired.add(pool.acquire(parking));
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(2, subscribes.size());
+        Offering replacement = subscribed(1);
+        for (CompletableFuture<Offering> future : acquired)
+            assertSame(replacement, future.get(1, TimeUnit.SECONDS));
+        await(() -> unsubscribeCount(expired) == 1);
+        Thread.sleep(50);
+        assertEquals(1, unsubscribeCount(expired));
+    }
+
+    @Test
+    public void idleSubscriptionsAreUnsubscribed() throws Exception {
+        pool = SubscriptionPool.create().withIdleTimeout(Duration.millis(100));
+        pool.acquire(parking);
+        Offering offering = subscribed(0);
+
+        await(() -> pool.getSubscriptionCount() == 0);
+        await(() -> unsubscribeCount(offering) == 1);
+
+        CompletableFuture<Offering> again = pool.acquire(parking);
+        assertNotSame(offering, subscribed(1));
+        assertSame(subscribed(1), again.get());
+    }
+
+    @Test
+    public void closeUnsubscribesAllOfferings() throws Exception {
+        pool.acquire(parking);
+        pool.acquire(description("weather"));
+        Offering first = subscribed(0);
+        Offering second = subscribed(1);
+
+        pool.close();
+        await(() -> unsubscribeCount(first) == 1 && unsubscribeCount(second) == 1);
+        try {
+            pool.acquire(parking);
+            fail("Closed pool should not subscribe");
+        } catch (IllegalStateException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * Completes the subscribe call with the given index, and returns its offering.
+     */
+    private Offering subscribed(int index) throws Exception {
+        Offering offering = offering();
+        subscribes.get(index).complete(offering);
+        return subscribes.get(index).get();
+    }
+
+    private int unsubscribeCount(Offering offering) {
+        AtomicInteger count = unsubscribes.get(offering);
+        return count == null ? 0 : count.get();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private SubscribableOfferingDescription description(final String id) {
+        return new SubscribableOfferingDescription() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public CompletableFuture<Offering> subscribe() {
+                CompletableFuture<Offering> subscription = new CompletableFuture<>();
+                subscribes.add(subscription);
+                return subscription;
+            }
+        };
+    }
+
+    private Offering offering() {
+        return (Offering) Proxy.newProxyInstance(Offering.class.getClassLoader(), new Class<?>[] { Offering.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("unsubscribe")) {
+                        unsubscribes.computeIfAbsent((Offering) proxy, o -> new AtomicInteger()).incrementAndGet();
+                        return null;
+                    }
+                    if (method.getName().equals("hashCode"))
+                        return System.identityHashCode(proxy);
+                    if (method.getName().equals("equals"))
+                        return proxy == args[0];
+                    if (method.getName().equals("toString"))
+                        return "Offering@" + System.identityHashCode(proxy);
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+}
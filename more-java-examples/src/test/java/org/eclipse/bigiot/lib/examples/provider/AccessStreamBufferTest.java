@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.bigiot.lib.model.BigIotTypes.ValueType;
+import org.joda.time.Duration;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class AccessStreamBufferTest {
+
+    @Test
+    public void newSubscriberStartsWithTheNextAppendedElement() {
+        AccessStreamBuffer accessStream = AccessStreamBuffer.create(10);
+        accessStream.append(element(0));
+
+        assertTrue(accessStream.read("a").isEmpty());
+        accessStream.append(element(1));
+        assertEquals(values(1), values(accessStream.read("a")));
+    }
+
+    @Test
+    public void everySubscriberReceivesEachElementOnce() {
+        AccessStreamBuffer accessStream = AccessStreamBuffer.create(10);
+        accessStream.read("a");
+        accessStream.read("b");
+
+        accessStream.append(element(0));
+        accessStream.append(element(1));
+        assertEquals(values(0, 1), values(accessStream.read("a")));
+        accessStream.append(element(2));
+        assertEquals(values(2), values(accessStream.read("a")));
+        assertTrue(accessStream.read("a").isEmpty());
+        assertEquals(values(0, 1, 2), values(accessStream.read("b")));
+    }
+
+    @Test
+    public void slowSubscriberMissesOverwrittenElements() {
+        AccessStreamBuffer accessStream = AccessStreamBuffer.create(3);
+        accessStream.read("a");
+        for (int i = 0; i < 5; i++)
+            accessStream.append(element(i));
+
+        assertEquals(values(2, 3, 4), values(accessStream.read("a")));
+        assertEquals(3, accessStream.size());
+        assertEquals(2, accessStream.getEvictedCount());
+    }
+
+    @Test
+    public void readSinceSkipsEvictedElementsAndReturnsTheNextSequence() {
+        AccessStreamBuffer accessStream = AccessStreamBuffer.create(3);
+        assertEquals(0, accessStream.append(element(0)));
+        assertEquals(1, accessStream.appendAll(Arrays.asList(element(1), element(2), element(3))));
+
+        List<JSONObject> elements = new ArrayList<>();
+        assertEquals(4, accessStream.read(0, elements));
+        assertEquals(values(1, 2, 3), values(elements));
+
+        // A response lost on the way is read again with the same since value
+        elements.clear();
+        assertEquals(4, accessStream.read(2, elements));
+        assertEquals(values(2, 3), values(elements));
+
+        elements.clear();
+        assertEquals(4, accessStream.read(4, elements));
+        assertTrue(elements.isEmpty());
+    }
+
+    @Test
+    public void batchLargerThanTheCapacityRetainsItsLastElements() {
+        AccessStreamBuffer accessStream = AccessStreamBuffer.create(2);
+        accessStream.appendAll(Arrays.asList(element(0), element(1), element(2), element(3), element(4)));
+
+        List<JSONObject> elements = new ArrayList<>();
+        accessStream.read(0, elements);
+        assertEquals(values(3, 4), values(elements));
+        assertEquals(5, accessStream.getNextSequence());
+        assertEquals(3, accessStream.getEvictedCount());
+    }
+
+    @Test
+    public void clearKeepsTheCursors() {
+        AccessStreamBuffer accessStream = AccessStreamBuffer.create(10);
+        accessStream.read("a");
+        accessStream.append(element(0));
+        accessStream.clear();
+        accessStream.append(element(1));
+
+        assertEquals(values(1), values(accessStream.read("a")));
+        assertEquals(2, accessStream.getNextSequence());
+        assertEquals(1, accessStream.size());
+    }
+
+    @Test
+    public void expiredElementsAreDropped() throws InterruptedException {
+        AccessStreamBuffer accessStream = AccessStreamBuffer.create(10).withMaxAge(Duration.millis(50));
+        accessStream.append(element(0));
+        Thread.sleep(100);
+        accessStream.append(element(1));
+
+        List<JSONObject> elements = new ArrayList<>();
+        accessStream.read(0, elements);
+        assertEquals(values(1), values(elements));
+        assertEquals(1, accessStream.getEvictedCount());
+    }
+
+    @Test
+    public void awaitAppendReturnsOnceAnElementIsAppended() throws InterruptedException {
+        final AccessStreamBuffer accessStream = AccessStreamBuffer.create(10);
+        Thread appender = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            accessStream.append(element(0));
+        });
+        appender.start();
+
+        assertEquals(1, accessStream.awaitAppend(0, 10000));
+        assertEquals(1, accessStream.awaitAppend(0, 0));
+        appender.join();
+    }
+
+    @Test
+    public void columnarStoreReturnsTheDeclaredOutputData() {
+        AccessStreamBuffer accessStream = AccessStreamBuffer.create(2,
+                OutputSchema.create().addOutputData("lat", "schema:latitude", ValueType.NUMBER)
+                        .addOutputData("status", "datex:parkingSpaceStatus", ValueType.TEXT));
+        accessStream.append(new JSONObject().put("lat", 42.5).put("status", "available"));
+        accessStream.append(new JSONObject().put("status", "occupied"));
+        accessStream.append(new JSONObject().put("lat", 42.25).put("status", "available").put("other", 1));
+
+        List<JSONObject> elements = new ArrayList<>();
+        accessStream.read(0, elements);
+        assertEquals(2, elements.size());
+        assertFalse(elements.get(0).has("lat"));
+        assertEquals("occupied", elements.get(0).getString("status"));
+        assertEquals(42.25, elements.get(1).getDouble("lat"), 0);
+        assertEquals("available", elements.get(1).getString("status"));
+        assertFalse(elements.get(1).has("other"));
+    }
+
+    private static JSONObject element(int value) {
+        return new JSONObject().put("value", value);
+    }
+
+    private static List<Integer> values(int... values) {
+        List<Integer> list = new ArrayList<>();
+        for (int value : values)
+            list.add(value);
+        return list;
+    }
+
+    private static List<Integer> values(List<JSONObject> elements) {
+        List<Integer> list = new ArrayList<>();
+        for (JSONObject element : elements)
+            list.add(element.getInt("value"));
+        return list;
+    }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.bigiot.lib.serverwrapper.BigIotHttpResponse;
+import org.joda.time.Duration;
+import org.junit.Test;
+
+public class CachingAccessRequestHandlerTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final CachingAccessRequestHandler cachingHandler = CachingAccessRequestHandler
+            .create((offeringDescription, inputData, subscriptionId, consumerInfo) -> {
+                int call = calls.incrementAndGet();
+                if (inputData.containsKey("fail"))
+                    return BigIotHttpResponse.error().withBody("{\"status\":\"error\"}").withStatus(500);
+                return BigIotHttpResponse.okay().withBody("[{\"call\":" + call + "}]").asJsonType();
+            });
+
+    @Test
+    public void hitsGetANewResponseWithTheCachedBodyStatusAndHeaders() {
+        BigIotHttpResponse miss = access(inputData("latitude", 42.0, "longitude", 9.0));
+        BigIotHttpResponse hit = access(inputData("latitude", 42.0, "longitude", 9.0));
+
+        assertNotSame(miss, hit);
+        assertEquals(miss.getBody(), hit.getBody());
+        assertEquals(miss.getStatus(), hit.getStatus());
+        assertEquals(miss.getHeaders(), hit.getHeaders());
+        assertEquals(1, calls.get());
+
+        // A change to the response of one request does not reach the next one
+        hit.withBody("changed").withStatus(204);
+        assertEquals("[{\"call\":1}]", access(inputData("latitude", 42.0, "longitude", 9.0)).getBody());
+        assertEquals(2, cachingHandler.getHits());
+        assertEquals(1, cachingHandler.getMisses());
+    }
+
+    @Test
+    public void keyDoesNotDependOnTheOrderOfTheInputData() {
+        access(inputData("latitude", 42.0, "longitude", 9.0));
+        access(inputData("longitude", 9.0, "latitude", 42.0));
+        access(inputData("latitude", 42.0, "longitude", 9.5));
+
+        assertEquals(2, calls.get());
+        assertEquals(2, cachingHandler.getSize());
+    }
+
+    @Test
+    public void failedResponsesAreNotCached() {
+        access(inputData("fail", true));
+        access(inputData("fail", true));
+
+        assertEquals(2, calls.get());
+        assertEquals(0, cachingHandler.getSize());
+    }
+
+    @Test
+    public void entriesExpireAfterTheTimeToLive() throws InterruptedException {
+        cachingHandler.withTimeToLive(Duration.millis(20));
+        access(inputData("latitude", 42.0));
+        Thread.sleep(50);
+        access(inputData("latitude", 42.0));
+
+        assertEquals(2, calls.get());
+        assertEquals(1, cachingHandler.getEvictions());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvictedFirst() {
+        cachingHandler.withMaxEntries(2);
+        access(inputData("latitude", 1.0));
+        access(inputData("latitude", 2.0));
+        access(inputData("latitude", 1.0));
+        access(inputData("latitude", 3.0));
+
+        access(inputData("latitude", 1.0));
+        assertEquals(3, calls.get());
+        access(inputData("latitude", 2.0));
+        assertEquals(4, calls.get());
+    }
+
+    private BigIotHttpResponse access(Map<String, Object> inputData) {
+        return cachingHandler.processRequestHandler(null, inputData, "subscription", null);
+    }
+
+    private static Map<String, Object> inputData(Object... namesAndValues) {
+        Map<String, Object> inputData = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2)
+            inputData.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        return inputData;
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class FixedPointFormatTest {
+
+    @Test
+    public void formatsLikeFormatter() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 3);
+            int decimals = random.nextInt(FixedPointFormat.MAX_DECIMALS + 1);
+            assertFormatted(value, decimals);
+        }
+    }
+
+    @Test
+    public void roundsTiesOfTheShortestDecimalRepresentationUp() {
+        // 2.675 is slightly below 2.675 as a double and 1.005 * 100 is 100.49999999999999, yet Formatter rounds the
+        // decimal representation printed by Double.toString, so they are decided in the tie window
+        assertEquals("2.68", format(2.675, 2));
+        assertEquals("1.01", format(1.005, 2));
+        assertEquals("0.13", format(0.125, 2));
+        assertEquals("-0.13", format(-0.125, 2));
+        assertEquals("3", format(2.5, 0));
+        assertEquals("9.4316", format(9.43155, 4));
+        for (int cents = 0; cents < 100000; cents++) {
+            assertFormatted(cents / 1000.0 + 0.0005, 3);
+            assertFormatted(cents / 100.0 + 0.005, 2);
+        }
+    }
+
+    @Test
+    public void formatsEdgeCasesLikeFormatter() {
+        double[] values = { 0.0, -0.0, -0.001, 0.999999, 9.9999999, 1e-10, 123456789.987654321, 1e15, -1e19,
+                Double.MIN_VALUE, Double.MAX_VALUE };
+        for (double value : values) {
+            for (int decimals = 0; decimals <= FixedPointFormat.MAX_DECIMALS; decimals++)
+                assertFormatted(value, decimals);
+        }
+    }
+
+    @Test
+    public void formatsNonFiniteValuesLikeDoubleToString() {
+        assertEquals("NaN", format(Double.NaN, 2));
+        assertEquals("-Infinity", format(Double.NEGATIVE_INFINITY, 2));
+        assertEquals("Infinity", encode(Double.POSITIVE_INFINITY, 2));
+    }
+
+    @Test
+    public void encodesAtTheOffset() {
+        byte[] target = new byte[32];
+        target[0] = 'x';
+        int end = FixedPointFormat.encode(target, 1, 42.12345, 4);
+        assertEquals("x42.1235", new String(target, 0, end, StandardCharsets.US_ASCII));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTooManyDecimals() {
+        format(1.0, FixedPointFormat.MAX_DECIMALS + 1);
+    }
+
+    private static void assertFormatted(double value, int decimals) {
+        String expected = String.format(Locale.US, "%." + decimals + "f", value);
+        assertEquals(value + " with " + decimals + " decimals", expected, format(value, decimals));
+        if (Math.abs(value) < 1e20)
+            assertEquals(value + " with " + decimals + " decimals", expected, encode(value, decimals));
+    }
+
+    private static String format(double value, int decimals) {
+        return FixedPointFormat.append(new StringBuilder(), value, decimals).toString();
+    }
+
+    private static String encode(double value, int decimals) {
+        byte[] target = new byte[32];
+        return new String(target, 0, FixedPointFormat.encode(target, 0, value, decimals), StandardCharsets.US_ASCII);
+    }
+
+}
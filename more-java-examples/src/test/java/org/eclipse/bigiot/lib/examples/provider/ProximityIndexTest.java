@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2016-2017 in alphabetical order:
+ * Bosch Software Innovations GmbH, Robert Bosch GmbH, Siemens AG
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *    Denis Kramer     (Bosch Software Innovations GmbH)
+ *    Stefan Schmid    (Robert Bosch GmbH)
+ *    Andreas Ziller   (Siemens AG)
+ */
+package org.eclipse.bigiot.lib.examples.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class ProximityIndexTest {
+
+    private final ProximityIndex proximityIndex = ProximityIndex.create(0.005);
+
+    @Test
+    public void matchesTheSameSubscribersAsAComparisonWithEach() {
+        Random random = new Random(7);
+        List<Map<String, Object>> subscribers = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Map<String, Object> inputData = position(42.0 + random.nextDouble() * 0.2, 9.0 + random.nextDouble() * 0.2);
+            subscribers.add(inputData);
+            assertTrue(proximityIndex.add(inputData, inputData));
+        }
+        assertEquals(500, proximityIndex.size());
+
+        for (int i = 0; i < 200; i++) {
+            JSONObject element = new JSONObject().put("lat", 42.0 + random.nextDouble() * 0.2).put("lon",
+                    9.0 + random.nextDouble() * 0.2);
+            Set<Object> expected = new HashSet<>();
+            for (Map<String, Object> inputData : subscribers) {
+                if (proximityIndex.matches(inputData, element))
+                    expected.add(inputData);
+            }
+            List<Object> matches = new ArrayList<>();
+            proximityIndex.match(element, matches);
+            assertEquals(expected.size(), matches.size());
+            assertEquals(expected, new HashSet<>(matches));
+        }
+    }
+
+    @Test
+    public void matchesByLatitudeOrLongitude() {
+        proximityIndex.add("subscriber", position(42.0, 9.0));
+
+        assertEquals(Collections.singletonList("subscriber"), match(42.004, 10.0));
+        assertEquals(Collections.singletonList("subscriber"), match(-42.0, 8.996));
+        assertEquals(Collections.emptyList(), match(42.006, 9.006));
+    }
+
+    @Test
+    public void removedSubscribersAreNotMatched() {
+        proximityIndex.add("a", position(42.0, 9.0));
+        proximityIndex.add("b", position(42.001, 9.001));
+        proximityIndex.remove("a");
+
+        assertEquals(Collections.singletonList("b"), match(42.0, 9.0));
+        assertEquals(1, proximityIndex.size());
+    }
+
+    @Test
+    public void subscribersAndElementsWithoutPositionMatchNothing() {
+        assertFalse(proximityIndex.add("subscriber", Collections.<String, Object> singletonMap("latitude", 42.0)));
+        assertEquals(0, proximityIndex.size());
+
+        proximityIndex.add("other", position(42.0, 9.0));
+        List<Object> matches = new ArrayList<>();
+        proximityIndex.match(new JSONObject().put("lat", 42.0), matches);
+        assertTrue(matches.isEmpty());
+    }
+
+    @Test
+    public void bindsPositionsWithTheGivenNames() {
+        ProximityIndex index = ProximityIndex.create(0.01)
+                .withSubscriberPosition(InputBinding.create().addOptionalNumber("longitude", 9.0)
+                        .addOptionalNumber("latitude", 42.0), "latitude", "longitude")
+                .withElementPosition("y", "x");
+        assertTrue(index.add("subscriber", new HashMap<String, Object>()));
+
+        List<Object> matches = new ArrayList<>();
+        index.match(new JSONObject().put("y", 41.0).put("x", 9.005), matches);
+        assertEquals(Collections.singletonList("subscriber"), matches);
+    }
+
+    private List<Object> match(double lat, double lon) {
+        List<Object> matches = new ArrayList<>();
+        proximityIndex.match(new JSONObject().put("lat", lat).put("lon", lon), matches);
+        return matches;
+    }
+
+    private static Map<String, Object> position(double latitude, double longitude) {
+        Map<String, Object> inputData = new HashMap<>();
+        inputData.put("latitude", latitude);
+        inputData.put("longitude", longitude);
+        return inputData;
+    }
+
+}